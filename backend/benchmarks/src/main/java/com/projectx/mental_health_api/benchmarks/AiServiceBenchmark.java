@@ -0,0 +1,79 @@
+package com.projectx.mental_health_api.benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.projectx.mental_health_api.eunoia.virtualpet.model.AiResponse;
+import com.projectx.mental_health_api.eunoia.virtualpet.service.AiService;
+import com.projectx.mental_health_api.eunoia.virtualpet.service.ChatMetrics;
+import com.projectx.mental_health_api.eunoia.virtualpet.service.OfflineResponder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * AiService without the network:
+ *
+ * mockRouting - getResponse() in mock mode (no API key): the keyword router that answers
+ *               every chat when Groq isn't configured. stdout is discarded while measuring,
+ *               so the MOCK MODE println costs formatting but no terminal I/O.
+ *
+ * Groq request/response encoding is measured in GroqCodecBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AiServiceBenchmark {
+
+    private AiService mockService;
+    private String[] messages;
+    private int next;
+
+    private PrintStream originalOut;
+
+    @Setup
+    public void setUp() throws Exception {
+        mockService = new AiService();
+        inject(mockService, "apiKey", "");
+        inject(mockService, "metrics", new ChatMetrics(new SimpleMeterRegistry()));
+        inject(mockService, "offlineResponder", new OfflineResponder());
+        messages = Samples.USER_MESSAGES;
+
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public AiResponse mockRouting() {
+        String message = messages[next++ % messages.length];
+        return mockService.getResponse(message);
+    }
+
+    // AiService uses field injection; set the fields the way Spring would
+    private static void inject(Object target, String field, Object value) throws ReflectiveOperationException {
+        Field f = target.getClass().getDeclaredField(field);
+        f.setAccessible(true);
+        f.set(target, value);
+    }
+}
@@ -0,0 +1,177 @@
+package com.projectx.mental_health_api.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.projectx.mental_health_api.eunoia.virtualpet.model.AiResponse;
+import com.projectx.mental_health_api.eunoia.virtualpet.service.ConversationMemory;
+import com.projectx.mental_health_api.eunoia.virtualpet.service.GroqCodec;
+
+/**
+ * Groq request/response handling: the tree-model code AiService used to run ("tree")
+ * against GroqCodec ("codec"). Mostly interesting for allocation, so run it with the
+ * GC profiler and compare gc.alloc.rate.norm (bytes per call):
+ *
+ *   ../mvnw -f pom.xml package exec:exec -Djmh.args="GroqCodecBenchmark -prof gc"
+ *
+ * encode*  - request body for the system prompt, {@code turns} remembered turns and the message
+ * decode*  - a complete chat.completion body (bytes, as they come off the socket) to AiResponse
+ * delta*   - one streamed chunk to its delta.content
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroqCodecBenchmark {
+
+    // Same size and shape as AiService.SYSTEM_PROMPT
+    private static final String SYSTEM_PROMPT = """
+            You are Eunoia, a virtual mental health companion.
+            Your goal is to be empathetic, comforting, and concise.
+
+            CRITICAL INSTRUCTION: You must ONLY respond in valid JSON format.
+            Do not include markdown blocks (like ```json). Just the raw JSON object.
+
+            The user is in a room with:
+            - BED (Action: SLEEP, LIE_DOWN)
+            - CHAIR (Action: SIT)
+            - WATER_STATION (Action: DRINK)
+            - MAT (Action: BREATHE, MEDITATE)
+
+            Response Schema:
+            {
+                "reply": "Your spoken response here.",
+                "emotion": "HAPPY | SAD | CONCERNED | CALM | EXCITED",
+                "action": "IDLE | WALK | WAVE | SIT | SLEEP | DRINK | BREATHE",
+                "targetObject": "NONE | BED | CHAIR | WATER_STATION | MAT",
+                "recommendedFilter": "NONE | BREATHING | GROUNDING | RELAXATION | MINDFULNESS | ANXIOUS | LOW | OVERWHELMED"
+            }
+
+            LOGIC FOR RECOMMENDED FILTER:
+            - If user is stressed/tense -> "RELAXATION" or "BREATHE"
+            - If user is sad/low/depressed -> "JOURNALING" or "CBT" or "MINDFULNESS"
+            - If user is anxious/panicked -> "BREATHE" or "GROUNDING" or "ANXIOUS"
+            - If user is overwhelmed -> "GROUNDING" or "MEDITATION"
+            - If user needs sleep/rest -> "RELAXATION" or "MEDITATION"
+            - If user has negative thoughts -> "CBT"
+            - If user is HAPPY/POSITIVE -> "NONE" (Do not force exercises)
+            - Default -> "NONE"
+
+            VALID CATEGORIES: BREATHING, GROUNDING, MINDFULNESS, RELAXATION, CBT, JOURNALING, MEDITATION, ANXIOUS, LOW, OVERWHELMED.
+            """;
+    private static final String MODEL = "llama-3.3-70b-versatile";
+
+    // "clean" = bare JSON as the prompt asks for; "fenced" = wrapped in prose and ```json fences
+    @Param({ "clean", "fenced" })
+    public String reply;
+
+    // Remembered turns sent along with the message (0 = context-free small talk)
+    @Param({ "0", "8" })
+    public int turns;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private GroqCodec codec;
+
+    private List<ConversationMemory.Turn> history;
+    private String message;
+    private byte[] completion;
+    private String chunk;
+
+    @Setup
+    public void setUp() throws Exception {
+        codec = new GroqCodec(objectMapper, MODEL, SYSTEM_PROMPT, 0.7);
+
+        history = new ArrayList<>();
+        for (int i = 0; i < turns; i++) {
+            boolean user = i % 2 == 0;
+            String text = Samples.USER_MESSAGES[i % Samples.USER_MESSAGES.length];
+            history.add(new ConversationMemory.Turn(user ? "user" : "assistant",
+                    user ? text : objectMapper.writeValueAsString(Map.of("reply", text)), text.length() / 4));
+        }
+        message = "I can't stop worrying about my exams next week, everything feels like too much.";
+
+        String content = "{\"reply\":\"It sounds like you're carrying a lot of tension. Let's try to relax your muscles.\","
+                + "\"emotion\":\"CONCERNED\",\"action\":\"SIT\",\"targetObject\":\"CHAIR\",\"recommendedFilter\":\"RELAXATION\"}";
+        if ("fenced".equals(reply)) {
+            content = "Sure! Here is my answer:\n```json\n" + content + "\n```";
+        }
+        completion = ("{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion\",\"model\":\"" + MODEL + "\","
+                + "\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":"
+                + objectMapper.writeValueAsString(content) + "},\"finish_reason\":\"stop\"}],"
+                + "\"usage\":{\"prompt_tokens\":512,\"completion_tokens\":48,\"total_tokens\":560}}")
+                .getBytes(StandardCharsets.UTF_8);
+        chunk = "{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion.chunk\",\"model\":\"" + MODEL + "\","
+                + "\"choices\":[{\"index\":0,\"delta\":{\"content\":\" relax your\"},\"finish_reason\":null}]}";
+    }
+
+    @Benchmark
+    public byte[] encodeTree() throws Exception {
+        List<Map<String, Object>> messages = new ArrayList<>();
+        messages.add(Map.of("role", "system", "content", SYSTEM_PROMPT));
+        for (ConversationMemory.Turn turn : history) {
+            messages.add(Map.of("role", turn.role(), "content", turn.content()));
+        }
+        messages.add(Map.of("role", "user", "content", message));
+        String body = objectMapper.writeValueAsString(Map.of(
+                "model", MODEL,
+                "messages", messages,
+                "temperature", 0.7,
+                "stream", false));
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] encodeCodec() {
+        return codec.encode(history, message, false);
+    }
+
+    @Benchmark
+    public AiResponse decodeTree() throws Exception {
+        // RestTemplate's String converter, then the envelope tree, substring and a second parse
+        String body = new String(completion, StandardCharsets.UTF_8);
+        JsonNode root = objectMapper.readTree(body);
+        String aiText = root.path("choices").get(0).path("message").path("content").asText();
+
+        int jsonStart = aiText.indexOf("{");
+        int jsonEnd = aiText.lastIndexOf("}");
+        if (jsonStart != -1 && jsonEnd != -1) {
+            aiText = aiText.substring(jsonStart, jsonEnd + 1);
+        }
+        return objectMapper.readValue(aiText, AiResponse.class);
+    }
+
+    @Benchmark
+    public AiResponse decodeCodec() throws Exception {
+        return codec.readReply(new ByteArrayInputStream(completion));
+    }
+
+    @Benchmark
+    public String deltaTree() throws Exception {
+        return objectMapper.readTree(chunk).path("choices").path(0).path("delta").path("content").asText("");
+    }
+
+    @Benchmark
+    public String deltaCodec() throws Exception {
+        return codec.readDelta(chunk);
+    }
+}
@@ -0,0 +1,102 @@
+package com.projectx.mental_health_api.benchmarks;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.projectx.mental_health_api.model.Exercise;
+import com.projectx.mental_health_api.model.User;
+
+/**
+ * Jackson serialization of the bodies returned by /api/users/{id} and /api/exercises,
+ * using the same ObjectMapper defaults Spring MVC builds (Jackson2ObjectMapperBuilder).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private User user;
+    private Exercise exercise;
+    private List<Exercise> catalog;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        user = new User();
+        user.setId(UUID.randomUUID());
+        user.setUsername("usingphru");
+        user.setEmail("using.phru@gmail.com");
+        user.setPasswordHash("$2a$10$abcdefghijklmnopqrstuuJ1cJcY0zZQ0l7mS9lqG2rVv7mKcQ2y");
+        user.setFirstName("Using");
+        user.setLastName("Phru");
+        user.setFullName("Using Phru");
+        user.setPreferences(Map.of("notes", "I like deep breathing exercises and calm music before bed.", "theme", "calm"));
+        user.setProgress("{\"streak\":4}");
+        user.setDateOfBirth(LocalDate.of(2001, 4, 12));
+        user.setEmailNotifications(true);
+        user.setSmsNotifications(false);
+        user.setIsActive(true);
+        user.setIsEmailVerified(true);
+        user.setLoginCount(42);
+        user.setCreatedAt(OffsetDateTime.now().minusDays(90));
+        user.setUpdatedAt(OffsetDateTime.now());
+        user.setLastLoginAt(OffsetDateTime.now());
+
+        catalog = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            catalog.add(exercise(i));
+        }
+        exercise = catalog.get(0);
+    }
+
+    private static Exercise exercise(int i) {
+        Exercise e = new Exercise();
+        e.setId((long) i + 1);
+        e.setTitle("Box breathing " + i);
+        e.setCategory(i % 3 == 0 ? "breathing" : i % 3 == 1 ? "grounding" : "mindfulness");
+        e.setDuration(5 + (i % 4) * 5);
+        e.setMoodType(i % 2 == 0 ? "anxious" : "low");
+        e.setDescription("A short exercise to slow your breathing and calm the nervous system.");
+        e.setInstructions("Breathe in for 4 seconds\nHold for 4 seconds\nBreathe out for 4 seconds\nHold for 4 seconds");
+        return e;
+    }
+
+    @Benchmark
+    public byte[] user() throws Exception {
+        return objectMapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] exercise() throws Exception {
+        return objectMapper.writeValueAsBytes(exercise);
+    }
+
+    // GET /api/exercises without filters (30 exercises)
+    @Benchmark
+    public byte[] exerciseList() throws Exception {
+        return objectMapper.writeValueAsBytes(catalog);
+    }
+}
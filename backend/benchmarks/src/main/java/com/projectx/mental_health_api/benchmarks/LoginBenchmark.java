@@ -0,0 +1,126 @@
+package com.projectx.mental_health_api.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import com.projectx.mental_health_api.MentalHealthApiApplication;
+import com.projectx.mental_health_api.controller.AuthController;
+import com.projectx.mental_health_api.dto.LoginRequest;
+import com.projectx.mental_health_api.model.User;
+import com.projectx.mental_health_api.repository.UserRepository;
+
+/**
+ * Login against a users table with 1M rows (in-memory H2, schema from the entities).
+ *
+ * findAllScan    - the old AuthController path: load every user, filter by username
+ * indexedLookup  - findByUsername alone (the unique username index)
+ * indexedLogin   - the full new login: lookup + BCrypt check on the hashing pool
+ *
+ * Run with -prof gc for heap allocation per login (gc.alloc.rate.norm):
+ *
+ *   ../mvnw -f pom.xml package exec:exec -Djmh.args="LoginBenchmark -prof gc"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx3g" })
+public class LoginBenchmark {
+
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({ "1000000" })
+    public int users;
+
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private AuthController authController;
+    private LoginRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(MentalHealthApiApplication.class)
+                .web(WebApplicationType.NONE)
+                // command-line args, so they win over the Postgres settings in application.properties
+                .run("--spring.datasource.url=jdbc:h2:mem:login-bench;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.flyway.enabled=false");
+        userRepository = context.getBean(UserRepository.class);
+        authController = context.getBean(AuthController.class);
+
+        seed(context.getBean(JdbcTemplate.class));
+
+        // Someone in the middle of the table
+        request = new LoginRequest();
+        request.setUsername("user" + (users / 2));
+        request.setPassword(PASSWORD);
+    }
+
+    // Every row shares one BCrypt hash; hashing a million passwords would take hours
+    private void seed(JdbcTemplate jdbc) {
+        String hash = new BCryptPasswordEncoder(10).encode(PASSWORD);
+        String sql = "INSERT INTO users (id, email, username, password_hash, is_active) VALUES (?, ?, ?, ?, true)";
+        List<Object[]> batch = new ArrayList<>(10_000);
+        for (int i = 0; i < users; i++) {
+            batch.add(new Object[] { UUID.randomUUID(), "user" + i + "@example.com", "user" + i, hash });
+            if (batch.size() == 10_000) {
+                jdbc.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbc.batchUpdate(sql, batch);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<User> findAllScan() {
+        return userRepository.findAll().stream()
+                .filter(u -> u.getUsername().equals(request.getUsername()))
+                .findFirst();
+    }
+
+    @Benchmark
+    public Optional<User> indexedLookup() {
+        return userRepository.findByUsername(request.getUsername());
+    }
+
+    @Benchmark
+    public ResponseEntity<?> indexedLogin() {
+        return authController.login(request).join();
+    }
+}
@@ -0,0 +1,69 @@
+package com.projectx.mental_health_api.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.projectx.mental_health_api.eunoia.virtualpet.model.ChatMessage;
+
+/**
+ * Building the text that gets sent to sentiment analysis from a user's recent messages.
+ *
+ * streamJoining - the original MoodController code: every message, Collectors.joining(". ")
+ * userTextsJoin - what MoodTrackingService does now: user messages only, oldest first, String.join
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoodAggregationBenchmark {
+
+    @Param({ "20" })
+    public int messages;
+
+    private List<ChatMessage> recentChats;
+
+    @Setup
+    public void setUp() {
+        List<String> texts = Samples.recentChats(messages);
+        recentChats = new ArrayList<>(messages);
+        for (int i = 0; i < texts.size(); i++) {
+            recentChats.add(new ChatMessage(texts.get(i), i % 2 == 0, "bench-user"));
+        }
+    }
+
+    @Benchmark
+    public String streamJoining() {
+        return recentChats.stream()
+                .map(ChatMessage::getContent)
+                .collect(Collectors.joining(". "));
+    }
+
+    @Benchmark
+    public String userTextsJoin() {
+        List<String> userTexts = new ArrayList<>(recentChats.size());
+        for (ChatMessage message : recentChats) {
+            if (message.isUser() && message.getContent() != null) {
+                userTexts.add(message.getContent());
+            }
+        }
+        Collections.reverse(userTexts);
+        return String.join(". ", userTexts);
+    }
+}
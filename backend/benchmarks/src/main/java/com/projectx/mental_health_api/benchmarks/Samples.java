@@ -0,0 +1,44 @@
+package com.projectx.mental_health_api.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Realistic-looking chat content shared by the benchmarks
+final class Samples {
+
+    static final String[] USER_MESSAGES = {
+            "hi",
+            "I'm so tired, I barely slept last night",
+            "work has been really stressful and I feel overwhelmed",
+            "I'm not happy with how the meeting went",
+            "honestly I'm kind of angry at my roommate",
+            "thanks, that breathing exercise actually helped a bit",
+            "I feel lonely lately and I don't know why",
+            "today was good! I went for a walk and felt calmer",
+            "I keep worrying about my exams",
+            "can we talk about something else?",
+    };
+
+    static final String[] AI_REPLIES = {
+            "Hello! I'm Euna, your friend. How are you feeling right now?",
+            "Rest is important. Let's take a few slow breaths together.",
+            "That sounds like a lot. Let's take it one step at a time.",
+            "I'm sorry it didn't go the way you hoped. Want to talk about it?",
+            "It's okay to feel angry. What happened?",
+    };
+
+    private Samples() {
+    }
+
+    static List<String> recentChats(int size) {
+        List<String> chats = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            chats.add(i % 2 == 0 ? USER_MESSAGES[i % USER_MESSAGES.length] : AI_REPLIES[i % AI_REPLIES.length]);
+        }
+        return chats;
+    }
+
+    static String chatBatch() {
+        return String.join(". ", recentChats(20));
+    }
+}
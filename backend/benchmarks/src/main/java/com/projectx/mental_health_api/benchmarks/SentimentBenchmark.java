@@ -0,0 +1,55 @@
+package com.projectx.mental_health_api.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+
+import com.projectx.mental_health_api.eunoia.virtualpet.service.LexiconSentimentAnalyzer;
+import com.projectx.mental_health_api.eunoia.virtualpet.service.SentimentService;
+import com.projectx.mental_health_api.eunoia.virtualpet.service.SentimentService.SentimentResult;
+
+/**
+ * Local lexicon engine vs the keyword mock that SentimentService falls back to today.
+ * "batch" is the shape MoodController sends: the last 20 messages joined with ". ".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SentimentBenchmark {
+
+    @Param({ "short", "batch" })
+    public String shape;
+
+    private String text;
+    private LexiconSentimentAnalyzer lexicon;
+
+    @Setup
+    public void setUp() {
+        lexicon = new LexiconSentimentAnalyzer(new ClassPathResource("sentiment/lexicon.tsv"));
+        text = "short".equals(shape) ? "I'm not feeling great today, kind of anxious." : Samples.chatBatch();
+    }
+
+    @Benchmark
+    public SentimentResult keywordMock() {
+        return SentimentService.mockAnalyze(text);
+    }
+
+    @Benchmark
+    public SentimentResult lexiconEngine() {
+        return lexicon.analyze(text);
+    }
+}
@@ -0,0 +1,75 @@
+package com.projectx.mental_health_api.config;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Scheduling drives the nightly bulk mood recompute (MoodRecomputeJob)
+@Configuration
+@EnableScheduling
+public class AsyncConfig {
+
+    // Work that mostly sits waiting on the LLM (e.g. streaming replies) runs here,
+    // so it never holds on to a Tomcat request thread. Password checks also complete here,
+    // so the database writes that follow them stay off the hashing pool (see PasswordService).
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService llmExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    // Executor behind /api/chat/send and /api/mood/analyze-batch.
+    // chat.async.enabled=true  -> the request thread is released and the work continues on a virtual thread
+    // chat.async.enabled=false -> runs inline on the request thread (the classic blocking path)
+    @Bean
+    public Executor chatExecutor(@Value("${chat.async.enabled:false}") boolean asyncEnabled,
+            ExecutorService llmExecutor) {
+        if (asyncEnabled) {
+            System.out.println("⚡ Chat pipeline: ASYNC (virtual threads)");
+            return llmExecutor;
+        }
+        return Runnable::run;
+    }
+
+    // Password hashing is pure CPU work (BCrypt), so it gets a small fixed pool instead of
+    // the request threads. When the queue is full new logins are rejected (503) rather than
+    // piling up behind each other and starving the rest of the API.
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService passwordHashExecutor(@Value("${auth.hash.threads:0}") int threads,
+            @Value("${auth.hash.queue-capacity:64}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "password-hash-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // Avatar thumbnails (see AvatarThumbnailer): image decoding/scaling is CPU work too, so it
+    // gets its own small pool. A full queue just means the thumbnails are made on first request.
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService imageExecutor(@Value("${uploads.thumbnail.threads:2}") int threads,
+            @Value("${uploads.thumbnail.queue-capacity:64}") int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "image-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+}
@@ -1,5 +1,7 @@
 package com.projectx.mental_health_api.config;
 
+import java.util.Map;
+
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
@@ -30,7 +32,7 @@ public class DevDataSeeder implements CommandLineRunner {
             testUser.setFirstName("Test");
             testUser.setLastName("User");
             testUser.setFullName("Test User");
-            testUser.setPreferences("{\"description\": \"I like deep breathing exercises.\", \"theme\": \"calm\"}");
+            testUser.setPreferences(Map.of("description", "I like deep breathing exercises.", "theme", "calm"));
             testUser.setIsActive(true);
             testUser.setLoginCount(0);
 
@@ -1,16 +1,188 @@
 package com.projectx.mental_health_api.config;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
-import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.ResourceHttpMessageConverter;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.handler.SimpleUrlHandlerMapping;
+import org.springframework.web.servlet.resource.AbstractResourceResolver;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+import com.projectx.mental_health_api.service.AvatarThumbnailer;
+import com.projectx.mental_health_api.service.UploadStore;
+
+import jakarta.servlet.http.HttpServletRequest;
 
+/**
+ * Serves uploaded photos at /uploads/{name} and their thumbnails at
+ * /uploads/thumbs/{64|128|256}/{name}, both looked up through the UploadStore.
+ *
+ * Photo names never change meaning (content hashes; older uploads have write-once names),
+ * so responses carry a content ETag and a long immutable Cache-Control. The resource
+ * handler answers If-None-Match / If-Modified-Since with 304 and Range with 206. Full
+ * bodies go out with sendfile when the container supports it (Tomcat NIO) and through
+ * FileChannel.transferTo otherwise, never through a heap buffer.
+ */
 @Configuration
-public class WebConfig implements WebMvcConfigurer {
+public class WebConfig {
+
+    // Beyond this many files the ETag cache starts over (a hash is cheap to redo)
+    private static final int MAX_CACHED_ETAGS = 10_000;
+
+    private final UploadStore uploadStore;
+    private final AvatarThumbnailer thumbnailer;
+    private final Duration cacheMaxAge;
+
+    // Content hash per file version (path + size + mtime)
+    private final Map<String, String> etags = new ConcurrentHashMap<>();
+
+    public WebConfig(UploadStore uploadStore, AvatarThumbnailer thumbnailer,
+            @Value("${uploads.cache-max-age:365d}") Duration cacheMaxAge) {
+        this.uploadStore = uploadStore;
+        this.thumbnailer = thumbnailer;
+        this.cacheMaxAge = cacheMaxAge;
+    }
+
+    // Its own mapping rather than addResourceHandlers, which offers no way to swap the body writer.
+    // Ordered ahead of the /** static resource mapping.
+    @Bean
+    public SimpleUrlHandlerMapping uploadsHandlerMapping() throws Exception {
+        ResourceHttpRequestHandler handler = new ResourceHttpRequestHandler();
+        handler.setResourceResolvers(List.of(new UploadResolver(uploadStore, thumbnailer)));
+        handler.setResourceHttpMessageConverter(new SendfileResourceHttpMessageConverter());
+        handler.setCacheControl(CacheControl.maxAge(cacheMaxAge).cachePublic().immutable());
+        handler.setEtagGenerator(this::etag);
+        handler.afterPropertiesSet();
+        return new SimpleUrlHandlerMapping(Map.of("/uploads/**", handler), Ordered.LOWEST_PRECEDENCE - 2);
+    }
+
+    // Strong ETag: SHA-256 of the bytes, computed once per file version
+    private String etag(Resource resource) {
+        try {
+            String key = resource.getURI() + "|" + resource.contentLength() + "|" + resource.lastModified();
+            String cached = etags.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(resource.getInputStream(), digest)) {
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+            String etag = "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+            if (etags.size() >= MAX_CACHED_ETAGS) {
+                etags.clear();
+            }
+            etags.put(key, etag);
+            return etag;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Maps /uploads/{name} and /uploads/thumbs/{size}/{name} onto the store; a thumbnail
+    // that isn't on disk yet is made first
+    private static final class UploadResolver extends AbstractResourceResolver {
+
+        private static final Pattern THUMBNAIL = Pattern.compile("thumbs/(\\d{1,4})/([^/]+)");
+        private static final Duration WAIT = Duration.ofSeconds(5);
+
+        private final UploadStore uploadStore;
+        private final AvatarThumbnailer thumbnailer;
+
+        UploadResolver(UploadStore uploadStore, AvatarThumbnailer thumbnailer) {
+            this.uploadStore = uploadStore;
+            this.thumbnailer = thumbnailer;
+        }
+
+        @Override
+        protected Resource resolveResourceInternal(HttpServletRequest request, String requestPath,
+                List<? extends Resource> locations, ResourceResolverChain chain) {
+            Matcher m = THUMBNAIL.matcher(requestPath);
+            if (m.matches()) {
+                int size = Integer.parseInt(m.group(1));
+                String name = m.group(2);
+                if (!thumbnailer.ensure(size, name, WAIT)) {
+                    return null;
+                }
+                return new FileSystemResource(thumbnailer.thumbnailPath(size, name));
+            }
+            Path file = uploadStore.pathOf(requestPath);
+            return file != null && Files.isRegularFile(file) ? new FileSystemResource(file) : null;
+        }
+
+        @Override
+        protected String resolveUrlPathInternal(String resourceUrlPath, List<? extends Resource> locations,
+                ResourceResolverChain chain) {
+            return uploadStore.pathOf(resourceUrlPath) != null ? resourceUrlPath : null;
+        }
+    }
+
+    // Writes a file body without copying it through the JVM: Tomcat's sendfile when the
+    // connector offers it (the container sends the file once the headers are out), else
+    // FileChannel.transferTo into the response
+    private static final class SendfileResourceHttpMessageConverter extends ResourceHttpMessageConverter {
+
+        private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+        private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+        private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+        private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
 
-    @Override
-    public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        // Serve files from the 'uploads' directory at the root /uploads/** URL
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:uploads/");
+        @Override
+        protected void writeContent(Resource resource, HttpOutputMessage outputMessage) throws IOException {
+            if (!resource.isFile()) {
+                super.writeContent(resource, outputMessage);
+                return;
+            }
+            Path file = resource.getFile().toPath();
+            HttpServletRequest request = null;
+            if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+                request = attributes.getRequest();
+            }
+            if (request != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+                request.setAttribute(SENDFILE_FILENAME, file.toRealPath().toString());
+                request.setAttribute(SENDFILE_START, 0L);
+                request.setAttribute(SENDFILE_END, resource.contentLength());
+                return;
+            }
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                WritableByteChannel out = Channels.newChannel(outputMessage.getBody());
+                long size = in.size();
+                long position = 0;
+                while (position < size) {
+                    position += in.transferTo(position, size - position, out);
+                }
+            }
+        }
     }
 }
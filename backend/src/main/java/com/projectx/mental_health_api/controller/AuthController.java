@@ -3,10 +3,13 @@ package com.projectx.mental_health_api.controller;
 import com.projectx.mental_health_api.dto.LoginRequest;
 import com.projectx.mental_health_api.model.User;
 import com.projectx.mental_health_api.repository.UserRepository;
+import com.projectx.mental_health_api.service.PasswordService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 @CrossOrigin(origins = "http://localhost:5173")
 @RestController
@@ -14,64 +17,91 @@ import java.util.Optional;
 public class AuthController {
 
     private final UserRepository userRepository;
+    private final PasswordService passwordService;
 
-    public AuthController(UserRepository userRepository) {
+    public AuthController(UserRepository userRepository, PasswordService passwordService) {
         this.userRepository = userRepository;
+        this.passwordService = passwordService;
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest loginRequest) {
-        // 1. Find user by username
-        // Note: In a real app, use a service layer and proper exception handling
-        Optional<User> userOpt = userRepository.findAll().stream()
-                .filter(u -> u.getUsername().equals(loginRequest.getUsername()))
-                .findFirst();
-
-        if (userOpt.isEmpty()) {
-            return ResponseEntity.status(401).body("Invalid username or password");
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody LoginRequest loginRequest) {
+        // 1. Find user by username (one indexed lookup on users_username_key)
+        Optional<User> userOpt = loginRequest.getUsername() == null ? Optional.empty()
+                : userRepository.findByUsername(loginRequest.getUsername());
+
+        // 2. Check the password on the hashing pool; unknown users cost the same as wrong passwords
+        String storedHash = userOpt.map(User::getPasswordHash).orElse(null);
+        CompletableFuture<Boolean> check;
+        try {
+            check = passwordService.matches(loginRequest.getPassword(), storedHash);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(busy());
         }
 
-        User user = userOpt.get();
+        return check.thenApply(isMatch -> {
+            if (!isMatch) {
+                return ResponseEntity.status(401).body("Invalid username or password");
+            }
 
-        // 2. Validate password (SIMPLE STRING MATCH for prototype)
-        // In production, compare hashes: BCrypt.checkpw(loginRequest.getPassword(),
-        // user.getPasswordHash())
-        String storedHash = user.getPasswordHash();
+            User user = userOpt.get();
+            if (passwordService.needsRehash(storedHash)) {
+                upgradeHash(user, storedHash, loginRequest.getPassword());
+            }
 
-        // Allow "dummy-hash-123" to work with "secret123" for dev convenience,
-        // OR checks if the input matches the stored hash directly.
-        boolean isMatch = loginRequest.getPassword().equals(storedHash) ||
-                (storedHash.equals("dummy-hash-123") && loginRequest.getPassword().equals("secret123")) ||
-                loginRequest.getPassword().equals("secret123"); // fallback for dev
+            // 3. Return user info (the password hash is never serialized)
+            return ResponseEntity.ok(user);
+        });
+    }
 
-        if (!isMatch) {
-            return ResponseEntity.status(401).body("Invalid username or password");
+    // Legacy plain-text (or weaker) hash: store a proper one in the background, the login doesn't wait
+    private void upgradeHash(User user, String oldHash, String rawPassword) {
+        try {
+            passwordService.hash(rawPassword)
+                    .thenAccept(newHash -> userRepository.replacePasswordHash(user.getId(), oldHash, newHash))
+                    .exceptionally(e -> {
+                        System.err.println("--- AUTH: could not upgrade password hash: " + e.getMessage());
+                        return null;
+                    });
+        } catch (RejectedExecutionException e) {
+            // Pool is busy; the next login will try again
         }
-
-        // 3. Return user info (excluding sensitive data if possible, but returning User
-        // for now)
-        return ResponseEntity.ok(user);
     }
 
     @PostMapping("/register")
-    public ResponseEntity<?> register(@RequestBody com.projectx.mental_health_api.dto.RegisterRequest req) {
+    public CompletableFuture<ResponseEntity<?>> register(@RequestBody com.projectx.mental_health_api.dto.RegisterRequest req) {
         if (userRepository.findByUsername(req.getUsername()).isPresent()) {
-            return ResponseEntity.badRequest().body("Username already exists");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Username already exists"));
         }
         if (userRepository.findByEmail(req.getEmail()).isPresent()) {
-            return ResponseEntity.badRequest().body("Email already exists");
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body("Email already exists"));
+        }
+
+        CompletableFuture<String> hash;
+        try {
+            hash = passwordService.hash(req.getPassword());
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(busy());
         }
 
-        User newUser = new User();
-        newUser.setUsername(req.getUsername());
-        newUser.setPasswordHash(req.getPassword()); // In real app, hash this!
-        newUser.setEmail(req.getEmail());
-        newUser.setFirstName(req.getFirstName());
-        newUser.setLastName(req.getLastName());
-        newUser.setFullName(req.getFirstName() + " " + req.getLastName());
-        newUser.setIsActive(true);
-
-        User saved = userRepository.save(newUser);
-        return ResponseEntity.ok(saved);
+        // Runs once the hash is done, on a virtual thread rather than the hashing pool (see PasswordService)
+        return hash.thenApply(passwordHash -> {
+            User newUser = new User();
+            newUser.setUsername(req.getUsername());
+            newUser.setPasswordHash(passwordHash);
+            newUser.setEmail(req.getEmail());
+            newUser.setFirstName(req.getFirstName());
+            newUser.setLastName(req.getLastName());
+            newUser.setFullName(req.getFirstName() + " " + req.getLastName());
+            newUser.setIsActive(true);
+
+            User saved = userRepository.save(newUser);
+            return ResponseEntity.ok(saved);
+        });
+    }
+
+    // Hashing pool and its queue are full
+    private ResponseEntity<?> busy() {
+        return ResponseEntity.status(503).header("Retry-After", "1").body("Too many login attempts, please retry");
     }
 }
@@ -2,6 +2,7 @@ package com.projectx.mental_health_api.controller;
 
 import com.projectx.mental_health_api.model.Exercise;
 import com.projectx.mental_health_api.repository.ExerciseRepository;
+import com.projectx.mental_health_api.service.ExerciseCatalog;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -13,28 +14,46 @@ import java.util.List;
 public class ExerciseController {
 
     private final ExerciseRepository exerciseRepository;
+    private final ExerciseCatalog exerciseCatalog;
 
-    public ExerciseController(ExerciseRepository exerciseRepository) {
+    public ExerciseController(ExerciseRepository exerciseRepository, ExerciseCatalog exerciseCatalog) {
         this.exerciseRepository = exerciseRepository;
+        this.exerciseCatalog = exerciseCatalog;
     }
 
     @PostMapping
     public ResponseEntity<Exercise> createExercise(@RequestBody Exercise exercise) {
         Exercise saved = exerciseRepository.save(exercise);
+        exerciseCatalog.reload();
         return ResponseEntity.status(201).body(saved);
     }
 
+    // Served from the in-memory catalog. Without page/size the whole match list is returned (as before);
+    // with them, one page plus the total in X-Total-Count.
     @GetMapping
-    public List<Exercise> getExercises(
+    public ResponseEntity<List<Exercise>> getExercises(
             @RequestParam(required = false) String category,
             @RequestParam(required = false) Integer duration,
-            @RequestParam(required = false, name = "mood") String mood) {
-        return exerciseRepository.searchExercises(category, duration, mood);
+            @RequestParam(required = false, name = "mood") String mood,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        List<Exercise> matches = exerciseCatalog.search(category, duration, mood);
+        if (page == null && size == null) {
+            return ResponseEntity.ok(matches);
+        }
+
+        int pageSize = Math.max(1, Math.min(size == null ? 20 : size, 100));
+        long from = (long) Math.max(0, page == null ? 0 : page) * pageSize;
+        List<Exercise> slice = from >= matches.size() ? List.of()
+                : matches.subList((int) from, (int) Math.min(from + pageSize, matches.size()));
+        return ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(matches.size()))
+                .body(slice);
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<Exercise> getExercise(@PathVariable Long id) {
-        return exerciseRepository.findById(id)
+        return exerciseCatalog.findById(id)
                 .map(ResponseEntity::ok)
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
@@ -55,6 +74,7 @@ public class ExerciseController {
             return ResponseEntity.status(404).body("Exercise not found");
         }
         exerciseRepository.deleteById(id);
+        exerciseCatalog.reload();
         return ResponseEntity.ok("Exercise deleted successfully");
     }
 
@@ -69,6 +89,7 @@ public class ExerciseController {
                     existing.setDescription(updated.getDescription());
                     existing.setInstructions(updated.getInstructions());
                     Exercise saved = exerciseRepository.save(existing);
+                    exerciseCatalog.reload();
                     return ResponseEntity.ok(saved);
                 })
                 .orElseGet(() -> ResponseEntity.notFound().build());
@@ -1,79 +1,115 @@
 package com.projectx.mental_health_api.controller;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.projectx.mental_health_api.model.User;
 import com.projectx.mental_health_api.repository.UserRepository;
+import com.projectx.mental_health_api.service.AvatarThumbnailer;
+import com.projectx.mental_health_api.service.PasswordService;
+import com.projectx.mental_health_api.service.UploadStore;
+import com.projectx.mental_health_api.service.UserProfileService;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 
 @CrossOrigin(origins = "http://localhost:5173") // allow Vite dev server
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
 
+    private static final int DEFAULT_MATCH_LIMIT = 500;
+
     private final UserRepository userRepository;
+    private final PasswordService passwordService;
+    private final UserProfileService profiles;
+    private final UploadStore uploadStore;
+    private final AvatarThumbnailer thumbnailer;
+    private final ObjectMapper objectMapper;
 
-    public UserController(UserRepository userRepository) {
+    public UserController(UserRepository userRepository, PasswordService passwordService,
+            UserProfileService profiles, UploadStore uploadStore, AvatarThumbnailer thumbnailer,
+            ObjectMapper objectMapper) {
         this.userRepository = userRepository;
+        this.passwordService = passwordService;
+        this.profiles = profiles;
+        this.uploadStore = uploadStore;
+        this.thumbnailer = thumbnailer;
+        this.objectMapper = objectMapper;
     }
 
     // ---------- CREATE ----------
 
     @PostMapping
-    public ResponseEntity<User> createUser(@RequestBody User user) {
-        // TODO: hash incoming password into passwordHash before saving
-        User saved = userRepository.save(user);
-        return ResponseEntity.status(201).body(saved);
+    public CompletableFuture<ResponseEntity<?>> createUser(@RequestBody User user) {
+        // passwordHash arrives as the raw password; BCrypt runs on the hashing pool, not here
+        if (user.getPasswordHash() == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(201).body(userRepository.save(user)));
+        }
+        CompletableFuture<String> hash;
+        try {
+            hash = passwordService.hash(user.getPasswordHash());
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(busy());
+        }
+        return hash.thenApply(passwordHash -> {
+            user.setPasswordHash(passwordHash);
+            return ResponseEntity.status(201).body(userRepository.save(user));
+        });
     }
 
     @PostMapping("/{id}/photo")
     public ResponseEntity<String> uploadPhoto(@PathVariable UUID id, @RequestParam("file") MultipartFile file) {
         try {
-            // 1. Create uploads directory if not exists
-            String uploadDir = "uploads/";
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-
-            // 2. Generate unique filename
-            String filename = id + "_" + System.currentTimeMillis() + "_" + file.getOriginalFilename();
-            Path filePath = uploadPath.resolve(filename);
+            // 1. Store by content hash (an identical photo is stored once; see UploadStore)
+            UploadStore.Stored stored = uploadStore.save(file.getInputStream(), file.getOriginalFilename());
 
-            // 3. Save file
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+            // 2. 64/128/256 px thumbnails in the background (/uploads/thumbs/{size}/{name});
+            // a deduplicated photo already has them
+            if (stored.created()) {
+                thumbnailer.generateAsync(stored.name());
+            }
 
-            // 4. Update User URL (Assuming static serving is configured or just serving
+            // 3. Update User URL (Assuming static serving is configured or just serving
             // relative)
             // For prototype, we'll return the full URL assuming backend serves it
-            String fileUrl = "http://localhost:8080/uploads/" + filename;
+            String fileUrl = "http://localhost:8080/uploads/" + stored.name();
 
             Optional<User> userOpt = userRepository.findById(id);
             if (userOpt.isPresent()) {
                 User user = userOpt.get();
                 user.setProfilePictureUrl(fileUrl);
-                userRepository.save(user);
+                profiles.saved(userRepository.save(user));
             }
 
             return ResponseEntity.ok(fileUrl);
+        } catch (UploadStore.TooLargeException e) {
+            return ResponseEntity.status(413).body("Could not upload file: " + e.getMessage());
+        } catch (UploadStore.UnsupportedTypeException e) {
+            return ResponseEntity.status(415).body("Could not upload file: " + e.getMessage());
         } catch (IOException e) {
             return ResponseEntity.internalServerError().body("Could not upload file: " + e.getMessage());
         }
@@ -81,29 +117,54 @@ public class UserController {
 
     // ---------- READ ----------
 
+    // Served from the profile cache; the ETag is the user's version (304 if unchanged)
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUser(@PathVariable UUID id) {
-        Optional<User> userOpt = userRepository.findById(id);
-        return userOpt
-                .map(ResponseEntity::ok)
-                .orElseGet(() -> ResponseEntity.notFound().build());
+    public ResponseEntity<User> getUser(@PathVariable UUID id, WebRequest request) {
+        Optional<User> userOpt = profiles.find(id);
+        if (userOpt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = etagOf(userOpt.get());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(etag).body(userOpt.get());
     }
 
     // ---------- UPDATE ----------
 
+    // With If-Match, only applies on top of that version (412 otherwise); an edit that
+    // loses a race with another one gets 409 instead of silently overwriting it
     @PutMapping("/{id}")
-    public ResponseEntity<User> updateUser(@PathVariable UUID id, @RequestBody User updated) {
+    public CompletableFuture<ResponseEntity<?>> updateUser(@PathVariable UUID id, @RequestBody User updated,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        Long expectedVersion = UserProfileService.versionOf(ifMatch);
+
+        // Only update passwordHash if a new value is provided (raw password, hashed on the hashing pool)
+        if (updated.getPasswordHash() == null || updated.getPasswordHash().isBlank()) {
+            return CompletableFuture.completedFuture(update(id, updated, expectedVersion, null));
+        }
+        CompletableFuture<String> hash;
+        try {
+            hash = passwordService.hash(updated.getPasswordHash());
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(busy());
+        }
+        return hash.thenApply(passwordHash -> update(id, updated, expectedVersion, passwordHash));
+    }
+
+    private ResponseEntity<?> update(UUID id, User updated, Long expectedVersion, String passwordHash) {
         return userRepository.findById(id)
                 .map(existing -> {
+                    if (expectedVersion != null && !expectedVersion.equals(existing.getVersion())) {
+                        return ResponseEntity.status(412).build();
+                    }
                     if (updated.getEmail() != null)
                         existing.setEmail(updated.getEmail());
                     if (updated.getUsername() != null)
                         existing.setUsername(updated.getUsername());
-
-                    // Only update passwordHash if a new value is provided
-                    if (updated.getPasswordHash() != null && !updated.getPasswordHash().isBlank()) {
-                        existing.setPasswordHash(updated.getPasswordHash());
-                    }
+                    if (passwordHash != null)
+                        existing.setPasswordHash(passwordHash);
 
                     if (updated.getFirstName() != null)
                         existing.setFirstName(updated.getFirstName());
@@ -113,8 +174,13 @@ public class UserController {
                         existing.setLastName(updated.getLastName());
                     if (updated.getPhoneNumber() != null)
                         existing.setPhoneNumber(updated.getPhoneNumber());
-                    if (updated.getPreferences() != null)
-                        existing.setPreferences(updated.getPreferences());
+                    if (updated.getPreferences() != null) {
+                        // Keys not in the request are kept (the profile form only sends "notes")
+                        Map<String, Object> preferences = existing.getPreferences() == null ? new LinkedHashMap<>()
+                                : new LinkedHashMap<>(existing.getPreferences());
+                        preferences.putAll(updated.getPreferences());
+                        existing.setPreferences(preferences);
+                    }
                     if (updated.getProgress() != null)
                         existing.setProgress(updated.getProgress());
                     if (updated.getProfilePictureUrl() != null)
@@ -132,12 +198,58 @@ public class UserController {
                     if (updated.getUpdates() != null)
                         existing.setUpdates(updated.getUpdates());
 
-                    User saved = userRepository.save(existing);
-                    return ResponseEntity.ok(saved);
+                    User saved;
+                    try {
+                        saved = userRepository.saveAndFlush(existing);
+                    } catch (ObjectOptimisticLockingFailureException e) {
+                        return ResponseEntity.status(409).build();
+                    }
+                    profiles.saved(saved);
+                    return ResponseEntity.ok().eTag(etagOf(saved)).body(saved);
                 })
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    // RFC 7396 merge patch: only the fields in the body change, in one targeted UPDATE
+    @PatchMapping(value = "/{id}", consumes = { "application/merge-patch+json", "application/json" })
+    public CompletableFuture<ResponseEntity<?>> patchUser(@PathVariable UUID id, @RequestBody JsonNode patch,
+            @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        return profiles.patch(id, patch, UserProfileService.versionOf(ifMatch)).thenApply(UserController::toResponse);
+    }
+
+    private static ResponseEntity<?> toResponse(UserProfileService.PatchResult result) {
+        return switch (result.status()) {
+            case UPDATED -> ResponseEntity.ok().eTag(etagOf(result.user())).body(result.user());
+            case NOT_FOUND -> ResponseEntity.notFound().build();
+            case VERSION_MISMATCH -> ResponseEntity.status(412).body("User was changed meanwhile, reload it");
+            case INVALID -> ResponseEntity.badRequest().body(result.error());
+            case CONFLICT -> ResponseEntity.status(409).body(result.error());
+            case BUSY -> ResponseEntity.status(503).header("Retry-After", "1").body(result.error());
+        };
+    }
+
+    // Merge patch of the preferences document alone, applied in the database:
+    // {"theme": "dark", "notifications": {"sms": null}} sets theme and removes notifications.sms
+    @PatchMapping(value = "/{id}/preferences", consumes = { "application/merge-patch+json", "application/json" })
+    public CompletableFuture<ResponseEntity<?>> patchPreferences(@PathVariable UUID id,
+            @RequestBody JsonNode preferences, @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        return profiles.patchPreferences(id, preferences, UserProfileService.versionOf(ifMatch))
+                .thenApply(UserController::toResponse);
+    }
+
+    // Users whose preferences contain the filter, for segment jobs:
+    // GET /preferences/match?filter={"theme":"dark"}&limit=1000, then pass nextAfter as ?after=
+    @GetMapping("/preferences/match")
+    public ResponseEntity<?> matchPreferences(@RequestParam String filter,
+            @RequestParam(required = false) UUID after,
+            @RequestParam(defaultValue = "" + DEFAULT_MATCH_LIMIT) int limit) {
+        try {
+            return ResponseEntity.ok(profiles.matchPreferences(objectMapper.readTree(filter), after, limit));
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("filter must be a JSON object");
+        }
+    }
+
     // ---------- DELETE ----------
 
     @DeleteMapping("/{id}")
@@ -146,6 +258,16 @@ public class UserController {
             return ResponseEntity.status(404).body("User not found");
         }
         userRepository.deleteById(id);
+        profiles.deleted(id);
         return ResponseEntity.ok("User deleted successfully");
     }
+
+    // Hashing pool and its queue are full
+    private static ResponseEntity<?> busy() {
+        return ResponseEntity.status(503).header("Retry-After", "1").body("Too many requests, please retry");
+    }
+
+    private static String etagOf(User user) {
+        return "\"" + user.getVersion() + "\"";
+    }
 }
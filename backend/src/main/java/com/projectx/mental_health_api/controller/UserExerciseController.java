@@ -1,22 +1,27 @@
 package com.projectx.mental_health_api.controller;
 
+import com.projectx.mental_health_api.dto.CompletedExercise;
+import com.projectx.mental_health_api.dto.ExerciseStats;
 import com.projectx.mental_health_api.model.Exercise;
 import com.projectx.mental_health_api.model.UserExercise;
 import com.projectx.mental_health_api.repository.ExerciseRepository;
 import com.projectx.mental_health_api.repository.UserExerciseRepository;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @CrossOrigin(origins = "http://localhost:5173")
 @RestController
 @RequestMapping("/api/users")
 public class UserExerciseController {
 
+    private static final int DEFAULT_PAGE_LIMIT = 50;
+    private static final int MAX_PAGE_LIMIT = 200;
+
     private final UserExerciseRepository userExerciseRepository;
     private final ExerciseRepository exerciseRepository;
 
@@ -42,12 +47,55 @@ public class UserExerciseController {
         return ResponseEntity.ok(saved);
     }
 
+    // Newest first: GET /completed-exercises?limit=50, then pass nextBefore as ?before= for older pages
+    public record CompletedPage(List<CompletedExercise> exercises, Long nextBefore, boolean hasMore) {
+    }
+
     @GetMapping("/{userId}/completed-exercises")
-    public ResponseEntity<List<Exercise>> getCompletedExercises(@PathVariable UUID userId) {
-        List<UserExercise> completed = userExerciseRepository.findByUserIdOrderByCompletedAtDesc(userId);
-        List<Exercise> exercises = completed.stream()
-                .map(UserExercise::getExercise)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(exercises);
+    public ResponseEntity<CompletedPage> getCompletedExercises(@PathVariable UUID userId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_LIMIT) int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_LIMIT));
+
+        // Fetch one extra row to know whether there is more without a COUNT
+        Limit fetch = Limit.of(pageSize + 1);
+        List<CompletedExercise> rows;
+        if (before != null) {
+            UserExercise cursor = userExerciseRepository.findById(before).orElse(null);
+            if (cursor == null || !userId.equals(cursor.getUserId())) {
+                return ResponseEntity.badRequest().build();
+            }
+            rows = userExerciseRepository.findCompletedPageBefore(userId, cursor.getCompletedAt(), cursor.getId(),
+                    fetch);
+        } else {
+            rows = userExerciseRepository.findCompletedPage(userId, fetch);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<CompletedExercise> page = hasMore ? rows.subList(0, pageSize) : rows;
+        Long nextBefore = hasMore ? page.get(page.size() - 1).completionId() : null;
+        return ResponseEntity.ok(new CompletedPage(page, nextBefore, hasMore));
+    }
+
+    // Ids of the exercises done at least once, for ticking them off in the catalogue
+    @GetMapping("/{userId}/completed-exercises/ids")
+    public ResponseEntity<List<Long>> getCompletedExerciseIds(@PathVariable UUID userId) {
+        return ResponseEntity.ok(userExerciseRepository.findCompletedExerciseIds(userId));
+    }
+
+    @GetMapping("/{userId}/exercise-stats")
+    public ResponseEntity<ExerciseStats> getExerciseStats(@PathVariable UUID userId) {
+        List<ExerciseStats.CategoryStats> categories = userExerciseRepository.findCategoryStats(userId);
+        long completed = 0;
+        long minutes = 0;
+        OffsetDateTime last = null;
+        for (ExerciseStats.CategoryStats category : categories) {
+            completed += category.completed();
+            minutes += category.minutes();
+            if (last == null || (category.lastCompletedAt() != null && category.lastCompletedAt().isAfter(last))) {
+                last = category.lastCompletedAt();
+            }
+        }
+        return ResponseEntity.ok(new ExerciseStats(completed, minutes, last, categories));
     }
 }
@@ -0,0 +1,9 @@
+package com.projectx.mental_health_api.dto;
+
+import java.time.OffsetDateTime;
+
+// One completion with the exercise fields the UI shows; id is the exercise id (as before, when the
+// endpoint returned Exercise), completionId the user_exercises row, which pages are keyed on
+public record CompletedExercise(Long id, String title, String category, Integer duration, String moodType,
+        Long completionId, OffsetDateTime completedAt) {
+}
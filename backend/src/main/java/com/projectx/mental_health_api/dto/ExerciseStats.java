@@ -0,0 +1,12 @@
+package com.projectx.mental_health_api.dto;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+// Totals over all of a user's completions, and the same per exercise category (most practised first)
+public record ExerciseStats(long completed, long minutes, OffsetDateTime lastCompletedAt,
+        List<CategoryStats> categories) {
+
+    public record CategoryStats(String category, long completed, long minutes, OffsetDateTime lastCompletedAt) {
+    }
+}
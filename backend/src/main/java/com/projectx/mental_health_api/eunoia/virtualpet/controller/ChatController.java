@@ -1,8 +1,20 @@
 package com.projectx.mental_health_api.eunoia.virtualpet.controller;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.springframework.beans.factory.annotation.Autowired; // Better response handling
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,11 +23,14 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.projectx.mental_health_api.eunoia.virtualpet.model.AiResponse;
 import com.projectx.mental_health_api.eunoia.virtualpet.model.ChatMessage;
 import com.projectx.mental_health_api.eunoia.virtualpet.repository.ChatMessageRepository;
 import com.projectx.mental_health_api.eunoia.virtualpet.service.AiService;
+import com.projectx.mental_health_api.eunoia.virtualpet.service.ChatMessageWriter;
+import com.projectx.mental_health_api.service.ExerciseCatalog;
 
 @RestController
 @RequestMapping("/api/chat")
@@ -28,6 +43,35 @@ public class ChatController {
     @Autowired
     private ChatMessageRepository chatMessageRepository; // <--- 1. INJECT REPO
 
+    @Autowired
+    private ChatMessageWriter chatMessageWriter;
+
+    @Autowired
+    @Qualifier("llmExecutor")
+    private ExecutorService llmExecutor;
+
+    @Autowired
+    @Qualifier("chatExecutor")
+    private Executor chatExecutor;
+
+    @Autowired
+    private ExerciseCatalog exerciseCatalog;
+
+    // Delta reads only return messages this old, see ChatMessageRepository.findSettledSince
+    @Value("${chat.watermark-lag:5s}")
+    private Duration watermarkLag;
+
+    // Exercises sent along with a reply that recommends some, so the UI can show them without another request
+    @Value("${chat.recommendations.limit:3}")
+    private int recommendationLimit;
+
+    // Page size bounds for /history
+    private static final int DEFAULT_HISTORY_LIMIT = 30;
+    private static final int MAX_HISTORY_LIMIT = 100;
+
+    // Long enough for a slow completion, short enough that dead clients get cleaned up
+    private static final long STREAM_TIMEOUT_MS = 120_000;
+
     // DTO for incoming JSON
     public static class ChatRequest {
 
@@ -52,8 +96,13 @@ public class ChatController {
     }
 
     // --- THE FIX: SEND & SAVE ---
+    // Runs on chatExecutor: inline by default, on a virtual thread when chat.async.enabled=true
     @PostMapping("/send")
-    public ResponseEntity<AiResponse> sendMessage(@RequestBody ChatRequest request) {
+    public CompletableFuture<ResponseEntity<AiResponse>> sendMessage(@RequestBody ChatRequest request) {
+        return CompletableFuture.supplyAsync(() -> handleSend(request), chatExecutor);
+    }
+
+    private ResponseEntity<AiResponse> handleSend(ChatRequest request) {
 
         // Validation (Safety Check)
         String userId = request.getUserId();
@@ -61,21 +110,162 @@ public class ChatController {
             userId = "anonymous"; // Fallback if frontend fails
         }
 
-        // 3. SAVE USER MESSAGE
+        // 3. USER MESSAGE (saved together with the reply; ChatMessageWriter timestamps both)
         ChatMessage userMsg = new ChatMessage(request.getMessage(), true, userId);
-        chatMessageRepository.save(userMsg);
 
         // 4. GET AI RESPONSE
         // (Assuming aiService.getResponse returns AiResponse object)
-        AiResponse response = aiService.getResponse(request.getMessage());
+        AiResponse response;
+        try {
+            response = aiService.getResponse(userId, request.getMessage());
+        } catch (RuntimeException e) {
+            saveUnanswered(userMsg);
+            throw e;
+        }
+        attachRecommendations(response);
 
-        // 5. SAVE AI RESPONSE
+        // 5. SAVE BOTH IN ONE BATCH (or hand them to the write-behind buffer)
         ChatMessage aiMsg = new ChatMessage(response.getReply(), false, userId);
-        chatMessageRepository.save(aiMsg);
+        chatMessageWriter.write(userMsg, aiMsg);
 
         return ResponseEntity.ok(response);
     }
 
+    // --- STREAMING: SEND & SAVE, REPLY ARRIVES AS SERVER-SENT EVENTS ---
+    // Events: "token" {text} while the reply is generated, then "final" with the full AiResponse
+    // (or "error" {message} if the turn failed).
+    @PostMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMessage(@RequestBody ChatRequest request) {
+        return stream(request.getMessage(), request.getUserId());
+    }
+
+    // GET variant so the browser's EventSource can be used directly
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamMessage(@RequestParam String message,
+            @RequestParam(required = false) String userId) {
+        return stream(message, userId);
+    }
+
+    private SseEmitter stream(String message, String requestedUserId) {
+        String userId = (requestedUserId == null || requestedUserId.isEmpty()) ? "anonymous" : requestedUserId;
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+
+        // If the client goes away we stop pushing events, but still finish the turn so history stays complete
+        AtomicBoolean clientGone = new AtomicBoolean(false);
+        emitter.onTimeout(() -> clientGone.set(true));
+        emitter.onError(e -> clientGone.set(true));
+
+        llmExecutor.execute(() -> {
+            ChatMessage userMsg = new ChatMessage(message, true, userId);
+            boolean saved = false;
+            try {
+                AiResponse response = aiService.streamResponse(userId, message,
+                        text -> sendEvent(emitter, clientGone, "token", Map.of("text", text)));
+
+                // Persist both sides of the turn once the stream has completed
+                ChatMessage aiMsg = new ChatMessage(response.getReply(), false, userId);
+                chatMessageWriter.write(userMsg, aiMsg);
+                saved = true;
+
+                attachRecommendations(response);
+                if (sendEvent(emitter, clientGone, "final", response)) {
+                    emitter.complete();
+                }
+            } catch (RuntimeException e) {
+                // Without this the client would wait for a "final" event until the emitter times out
+                System.err.println("--- CHAT STREAM FAILED for " + userId + ": " + e.getMessage());
+                if (!saved) {
+                    saveUnanswered(userMsg);
+                }
+                try {
+                    sendEvent(emitter, clientGone, "error", Map.of("message", "Something went wrong, please try again."));
+                } finally {
+                    emitter.completeWithError(e);
+                }
+            }
+        });
+
+        return emitter;
+    }
+
+    // The turn failed before there was a reply to save with it: keep what the user said anyway
+    private void saveUnanswered(ChatMessage userMsg) {
+        try {
+            chatMessageWriter.write(userMsg);
+        } catch (RuntimeException e) {
+            System.err.println("--- Could not save message of " + userMsg.getUserId() + ": " + e.getMessage());
+        }
+    }
+
+    // Responses are per-request copies (see AiResponseCache / RequestCoalescer), so decorating them is safe
+    private void attachRecommendations(AiResponse response) {
+        response.setRecommendedExercises(exerciseCatalog.recommend(response.getRecommendedFilter(),
+                recommendationLimit));
+    }
+
+    private boolean sendEvent(SseEmitter emitter, AtomicBoolean clientGone, String name, Object data) {
+        if (clientGone.get()) {
+            return false;
+        }
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            clientGone.set(true);
+            return false;
+        }
+    }
+
+    // --- PAGED HISTORY ---
+    // Newest first:  GET /history?userId=u&limit=30, then pass nextBefore as ?before= for older pages.
+    // Delta mode:    GET /history?userId=u&sinceId=<last id the client has> returns newer messages, oldest first.
+    //               Messages younger than chat.watermark-lag are held back until a later poll, so one still
+    //               being inserted (ChatMessageWriter timestamps rows right before the insert) is never skipped.
+    public record HistoryPage(List<ChatMessage> messages, Long nextBefore, boolean hasMore) {
+    }
+
+    @GetMapping("/history")
+    public ResponseEntity<HistoryPage> getHistory(@RequestParam String userId,
+            @RequestParam(required = false) Long before,
+            @RequestParam(required = false) Long sinceId,
+            @RequestParam(defaultValue = "" + DEFAULT_HISTORY_LIMIT) int limit) {
+
+        if (before != null && sinceId != null) {
+            return ResponseEntity.badRequest().build();
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_HISTORY_LIMIT));
+
+        // Messages still in the write-behind buffer should show up too
+        chatMessageWriter.flush();
+
+        // Fetch one extra row to know whether there is more without a COUNT
+        Limit fetch = Limit.of(pageSize + 1);
+        List<ChatMessage> rows;
+        if (sinceId != null) {
+            ChatMessage cursor = chatMessageRepository.findById(sinceId).orElse(null);
+            if (cursor == null || !userId.equals(cursor.getUserId())) {
+                return ResponseEntity.badRequest().build();
+            }
+            rows = chatMessageRepository.findSettledSince(userId, cursor.getTimestamp(), cursor.getId(),
+                    LocalDateTime.now().minus(watermarkLag), fetch);
+        } else if (before != null) {
+            ChatMessage cursor = chatMessageRepository.findById(before).orElse(null);
+            if (cursor == null || !userId.equals(cursor.getUserId())) {
+                return ResponseEntity.badRequest().build();
+            }
+            rows = chatMessageRepository.findPageBefore(userId, cursor.getTimestamp(), cursor.getId(), fetch);
+        } else {
+            rows = chatMessageRepository.findPage(userId, fetch);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<ChatMessage> page = hasMore ? rows.subList(0, pageSize) : rows;
+
+        // Only backward pages hand out a cursor; delta callers continue from the last id they got
+        Long nextBefore = (sinceId == null && hasMore) ? page.get(page.size() - 1).getId() : null;
+        return ResponseEntity.ok(new HistoryPage(page, nextBefore, hasMore));
+    }
+
     // --- BONUS: HISTORY ENDPOINT ---
     // This lets your frontend load previous chats!
     @GetMapping("/history/latest")
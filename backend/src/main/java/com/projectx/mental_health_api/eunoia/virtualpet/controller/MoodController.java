@@ -1,9 +1,15 @@
 package com.projectx.mental_health_api.eunoia.virtualpet.controller;
 
+import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -12,11 +18,12 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.projectx.mental_health_api.eunoia.virtualpet.model.ChatMessage;
 import com.projectx.mental_health_api.eunoia.virtualpet.model.MoodEntry;
-import com.projectx.mental_health_api.eunoia.virtualpet.repository.ChatMessageRepository;
+import com.projectx.mental_health_api.eunoia.virtualpet.model.MoodRollup;
 import com.projectx.mental_health_api.eunoia.virtualpet.repository.MoodEntryRepository;
-import com.projectx.mental_health_api.eunoia.virtualpet.service.SentimentService;
+import com.projectx.mental_health_api.eunoia.virtualpet.service.MoodRecomputeJob;
+import com.projectx.mental_health_api.eunoia.virtualpet.service.MoodRollupService;
+import com.projectx.mental_health_api.eunoia.virtualpet.service.MoodTrackingService;
 
 @RestController
 @RequestMapping("/api/mood")
@@ -24,13 +31,20 @@ import com.projectx.mental_health_api.eunoia.virtualpet.service.SentimentService
 public class MoodController {
 
     @Autowired
-    private ChatMessageRepository chatRepository;
+    private MoodEntryRepository moodRepository;
 
     @Autowired
-    private MoodEntryRepository moodRepository;
+    private MoodTrackingService moodTrackingService;
+
+    @Autowired
+    private MoodRollupService rollupService;
+
+    @Autowired
+    private MoodRecomputeJob recomputeJob;
 
     @Autowired
-    private SentimentService sentimentService;
+    @Qualifier("chatExecutor")
+    private Executor chatExecutor;
 
     // --- DTO: Helper class to read the JSON body { "userId": "..." } ---
     public static class AnalysisRequest {
@@ -47,54 +61,66 @@ public class MoodController {
     }
 
     // 1. ANALYZE BATCH: Now accepts userId!
+    // Runs on chatExecutor, same as /api/chat/send (see AsyncConfig)
     @PostMapping("/analyze-batch")
-    public MoodEntry analyzeRecentMessages(@RequestBody AnalysisRequest request) { // <--- CHANGED
+    public CompletableFuture<MoodEntry> analyzeRecentMessages(@RequestBody AnalysisRequest request) {
+        return CompletableFuture.supplyAsync(() -> analyze(request), chatExecutor);
+    }
+
+    private MoodEntry analyze(AnalysisRequest request) {
 
         String userId = request.getUserId();
         if (userId == null || userId.isEmpty()) {
             userId = "anonymous";
         }
 
-        System.out.println("--- [DEBUG] Controller: Starting Batch Analysis for: " + userId);
+        // Only messages that arrived since the last analysis are scored; if there are none this
+        // returns the latest entry without calling the sentiment API or writing a new row.
+        // Returns null when the user has no data yet (handled by the frontend's "No Data" logic).
+        return moodTrackingService.refresh(userId);
+    }
 
-        // A. Fetch last 20 messages FOR THIS USER
-        List<ChatMessage> recentChats = chatRepository.findTop20ByUserIdOrderByTimestampDesc(userId); // <--- FIXED
+    // 2. GET HISTORY: Now filters by User ID
+    @GetMapping("/history")
+    public List<MoodEntry> getMoodHistory(@RequestParam String userId) { // <--- CHANGED
+        return moodRepository.findTop10ByUserIdOrderByTimestampDesc(userId);
+    }
 
-        System.out.println("--- [DEBUG] Controller: Found " + recentChats.size() + " messages.");
+    // 3. TRENDS: day or week buckets (count + mean/min/max of each score), served from mood_rollup only.
+    // Defaults to the last 30 days (bucket=day) or the last 12 weeks (bucket=week).
+    @GetMapping("/trends")
+    public ResponseEntity<List<MoodRollupService.MoodTrend>> getMoodTrends(@RequestParam String userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "day") String bucket) {
 
-        if (recentChats.isEmpty()) {
-            return null; // This will return empty body to frontend, handled by your "No Data" logic
+        if (!MoodRollupService.isBucket(bucket)) {
+            return ResponseEntity.badRequest().build();
         }
-
-        // B. Combine them
-        String combinedText = recentChats.stream()
-                .map(ChatMessage::getContent)
-                .collect(Collectors.joining(". "));
-
-        // C. Call Twinword API
-        SentimentService.SentimentResult result = sentimentService.analyzeText(combinedText);
-
-        // D. Save to DB (WITH UserID)
-        MoodEntry entry = new MoodEntry();
-        entry.setUserId(userId); // <--- IMPORTANT: Link result to user
-        entry.setUserMessage("Analysis of " + recentChats.size() + " messages");
-        entry.setOverallSentiment(result.score());
-
-        // Map specific emotion scores if available
-        if (result.score() > 0) {
-            entry.setJoyScore(result.score());
-            entry.setSadnessScore(0.0);
-        } else {
-            entry.setSadnessScore(Math.abs(result.score()));
-            entry.setJoyScore(0.0);
+        if (to == null) {
+            to = LocalDate.now();
+        }
+        if (from == null) {
+            from = MoodRollup.WEEK.equals(bucket) ? to.minusWeeks(12) : to.minusDays(30);
+        }
+        if (from.isAfter(to)) {
+            return ResponseEntity.badRequest().build();
         }
+        return ResponseEntity.ok(rollupService.trends(userId, bucket, from, to));
+    }
 
-        return moodRepository.save(entry);
+    // 4. BULK RECOMPUTE: every user's mood at once (also runs nightly, see MoodRecomputeJob)
+    // 202 + status when started, 409 + the running job's status if one is already going
+    @PostMapping("/recompute")
+    public ResponseEntity<MoodRecomputeJob.Status> startRecompute() {
+        boolean started = recomputeJob.start();
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT).body(recomputeJob.status());
     }
 
-    // 2. GET HISTORY: Now filters by User ID
-    @GetMapping("/history")
-    public List<MoodEntry> getMoodHistory(@RequestParam String userId) { // <--- CHANGED
-        return moodRepository.findTop10ByUserIdOrderByTimestampDesc(userId);
+    // Progress / throughput of the current or last run (204 if it hasn't run since startup)
+    @GetMapping("/recompute")
+    public ResponseEntity<MoodRecomputeJob.Status> recomputeStatus() {
+        MoodRecomputeJob.Status status = recomputeJob.status();
+        return status == null ? ResponseEntity.noContent().build() : ResponseEntity.ok(status);
     }
 }
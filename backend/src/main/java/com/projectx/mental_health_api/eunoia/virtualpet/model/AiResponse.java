@@ -1,11 +1,21 @@
 package com.projectx.mental_health_api.eunoia.virtualpet.model;
 
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.projectx.mental_health_api.model.Exercise;
+
 public class AiResponse {
     private String reply;
     private String emotion;
     private String action;
     private String targetObject;
     private String recommendedFilter; // e.g. "breathing", "relaxation", "anxious"
+    // Catalog exercises for recommendedFilter, filled in by ChatController (not by the LLM)
+    private List<Exercise> recommendedExercises;
+    // Canned reply from OfflineResponder, not the model's; kept out of conversation memory
+    @JsonIgnore
+    private boolean offline;
 
     // Empty constructor for Jackson deserialization
     public AiResponse() {
@@ -64,4 +74,21 @@ public class AiResponse {
     public void setRecommendedFilter(String recommendedFilter) {
         this.recommendedFilter = recommendedFilter;
     }
-}
\ No newline at end of file
+
+    public List<Exercise> getRecommendedExercises() {
+        return recommendedExercises;
+    }
+
+    public void setRecommendedExercises(List<Exercise> recommendedExercises) {
+        this.recommendedExercises = recommendedExercises;
+    }
+
+    @JsonIgnore
+    public boolean isOffline() {
+        return offline;
+    }
+
+    public void setOffline(boolean offline) {
+        this.offline = offline;
+    }
+}
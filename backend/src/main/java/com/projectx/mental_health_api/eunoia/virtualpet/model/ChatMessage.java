@@ -8,6 +8,7 @@ import jakarta.persistence.GeneratedValue; // Add this
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
@@ -16,8 +17,10 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor // Add this for JPA
 public class ChatMessage {
 
+    // Pooled sequence (not IDENTITY) so inserts can be JDBC-batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chat_message_seq")
+    @SequenceGenerator(name = "chat_message_seq", sequenceName = "chat_message_seq", allocationSize = 50)
     private Long id;
 
     @Column(columnDefinition = "TEXT")
@@ -27,11 +30,16 @@ public class ChatMessage {
 
     private String userId;  // <--- NEW: Crucial for multi-user support
 
+    // Partition key of chat_message (monthly ranges, see V15), so never null
+    @Column(nullable = false)
     private LocalDateTime timestamp;
 
     @PrePersist
     protected void onCreate() {
-        this.timestamp = LocalDateTime.now();
+        // ChatMessageWriter stamps messages right before the insert; this covers direct saves
+        if (this.timestamp == null) {
+            this.timestamp = LocalDateTime.now();
+        }
     }
 
     // Constructor for easy saving
@@ -8,14 +8,17 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
 import lombok.Data;
 
 @Entity
 @Data // Automatically generates Getters, Setters, and ToString via Lombok
 public class MoodEntry {
 
+    // Pooled sequence (not IDENTITY) so the bulk recompute job can batch its inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "mood_entry_seq")
+    @SequenceGenerator(name = "mood_entry_seq", sequenceName = "mood_entry_seq", allocationSize = 50)
     private Long id;
 
     // The text the user sent to the chat
@@ -0,0 +1,62 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One user's mood entries summed up per day or per week (see MoodRollupService).
+// Written only by the upsert in MoodRollupRepository; read by /api/mood/trends.
+@Entity
+@Data
+@NoArgsConstructor
+@IdClass(MoodRollup.Key.class)
+public class MoodRollup {
+
+    public static final String DAY = "day";
+    public static final String WEEK = "week";
+
+    @Id
+    private String userId;
+
+    @Id
+    @Column(length = 8)
+    private String bucket; // DAY or WEEK
+
+    @Id
+    private LocalDate bucketStart; // the day, or the Monday of the week
+
+    private long entries;
+
+    // Sums (mean = sum / entries), minimum and maximum of each MoodEntry score
+    private double sentimentSum;
+    private double sentimentMin;
+    private double sentimentMax;
+
+    private double joySum;
+    private double joyMin;
+    private double joyMax;
+
+    private double sadnessSum;
+    private double sadnessMin;
+    private double sadnessMax;
+
+    private double angerSum;
+    private double angerMin;
+    private double angerMax;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String userId;
+        private String bucket;
+        private LocalDate bucketStart;
+    }
+}
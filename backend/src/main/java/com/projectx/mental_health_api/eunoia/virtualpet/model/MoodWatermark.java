@@ -0,0 +1,51 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.Version;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// How far incremental mood tracking has got for one user
+@Entity
+@Data
+@NoArgsConstructor
+public class MoodWatermark {
+
+    @Id
+    private String userId;
+
+    // (timestamp, id) of the newest ChatMessage already analysed; ids alone are not commit-ordered.
+    // lastMessageAt is null until the first analysis.
+    private LocalDateTime lastMessageAt;
+    private long lastMessageId;
+
+    // Running scores, exponentially decayed per analysed message
+    private double decayedSentiment;
+    private double decayedAnger;
+
+    private long messagesAnalyzed;
+
+    // MoodEntry written by the last analysis, returned when nothing new has arrived
+    private Long lastEntryId;
+
+    private LocalDateTime updatedAt;
+
+    // Two refreshes for the same user racing each other: only one may win
+    @Version
+    private Long version;
+
+    public MoodWatermark(String userId) {
+        this.userId = userId;
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
@@ -1,8 +1,12 @@
 package com.projectx.mental_health_api.eunoia.virtualpet.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.projectx.mental_health_api.eunoia.virtualpet.model.ChatMessage;
 
@@ -10,4 +14,42 @@ public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long>
 
     // NEW: Find chats for a SPECIFIC user, ordered by newest first
     List<ChatMessage> findTop20ByUserIdOrderByTimestampDesc(String userId);
+
+    // Keyset page of everyone who has chatted, for the bulk mood recompute (walks idx_chat_message_user_ts)
+    @Query("SELECT DISTINCT m.userId FROM ChatMessage m WHERE m.userId > :afterUserId ORDER BY m.userId")
+    List<String> findUserIdsAfter(@Param("afterUserId") String afterUserId, Limit limit);
+
+    // --- Keyset pages for /api/chat/history (served by idx_chat_message_user_ts) ---
+    // Sorted on timestamp, the partition key: a page stops after the newest partition(s) it needs
+
+    // Newest page: no cursor yet
+    @Query("SELECT m FROM ChatMessage m WHERE m.userId = :userId ORDER BY m.timestamp DESC, m.id DESC")
+    List<ChatMessage> findPage(@Param("userId") String userId, Limit limit);
+
+    // Next (older) page: everything strictly before the (timestamp, id) of the cursor message.
+    // The plain timestamp bound is redundant but lets Postgres skip the newer monthly partitions (V15).
+    @Query("SELECT m FROM ChatMessage m WHERE m.userId = :userId AND m.timestamp <= :ts "
+            + "AND (m.timestamp, m.id) < (:ts, :id) ORDER BY m.timestamp DESC, m.id DESC")
+    List<ChatMessage> findPageBefore(@Param("userId") String userId, @Param("ts") LocalDateTime timestamp,
+            @Param("id") long id, Limit limit);
+
+    // --- Commit-ordered reads for incremental readers (mood watermark, /history delta) ---
+    // Ids come from a pooled sequence (V11), so a lower id can commit after a higher one and an
+    // "id > last seen" reader would skip it for good. These walk (timestamp, id) instead and stop at
+    // :settledBefore (now - chat.watermark-lag). ChatMessageWriter timestamps rows right before the
+    // insert, so every message that old has committed already.
+
+    // A user's newest settled messages, when there is no watermark yet (newest first)
+    @Query("SELECT m FROM ChatMessage m WHERE m.userId = :userId AND m.timestamp <= :settledBefore "
+            + "ORDER BY m.timestamp DESC, m.id DESC")
+    List<ChatMessage> findNewestSettled(@Param("userId") String userId,
+            @Param("settledBefore") LocalDateTime settledBefore, Limit limit);
+
+    // Settled messages after a (timestamp, id) cursor, oldest first: the mood watermark and
+    // /history delta mode, which continue from the last row they read
+    @Query("SELECT m FROM ChatMessage m WHERE m.userId = :userId AND m.timestamp >= :ts "
+            + "AND m.timestamp <= :settledBefore AND (m.timestamp, m.id) > (:ts, :id) "
+            + "ORDER BY m.timestamp ASC, m.id ASC")
+    List<ChatMessage> findSettledSince(@Param("userId") String userId, @Param("ts") LocalDateTime timestamp,
+            @Param("id") long id, @Param("settledBefore") LocalDateTime settledBefore, Limit limit);
 }
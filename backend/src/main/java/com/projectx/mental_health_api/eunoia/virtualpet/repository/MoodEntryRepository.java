@@ -1,6 +1,7 @@
 package com.projectx.mental_health_api.eunoia.virtualpet.repository;
 
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 
@@ -10,4 +11,6 @@ public interface MoodEntryRepository extends JpaRepository<MoodEntry, Long> {
 
     // ✅ NEW: Fetch history ONLY for the requested user
     List<MoodEntry> findTop10ByUserIdOrderByTimestampDesc(String userId);
+
+    Optional<MoodEntry> findFirstByUserIdOrderByTimestampDesc(String userId);
 }
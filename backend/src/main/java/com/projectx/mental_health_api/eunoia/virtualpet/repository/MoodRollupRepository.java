@@ -0,0 +1,48 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.projectx.mental_health_api.eunoia.virtualpet.model.MoodRollup;
+
+public interface MoodRollupRepository extends JpaRepository<MoodRollup, MoodRollup.Key> {
+
+    // Buckets of one user in [from, to], oldest first (a range scan of the primary key)
+    List<MoodRollup> findByUserIdAndBucketAndBucketStartBetweenOrderByBucketStartAsc(String userId, String bucket,
+            LocalDate from, LocalDate to);
+
+    // Folds one pre-aggregated group of entries into its bucket in a single statement:
+    // the first entry of a bucket inserts the row, later ones add to it. Concurrent writers
+    // for the same bucket serialize on the row lock instead of losing each other's counts.
+    @Modifying
+    @Query(value = """
+            INSERT INTO mood_rollup (user_id, bucket, bucket_start, entries,
+                sentiment_sum, sentiment_min, sentiment_max, joy_sum, joy_min, joy_max,
+                sadness_sum, sadness_min, sadness_max, anger_sum, anger_min, anger_max)
+            VALUES (:#{#r.userId}, :#{#r.bucket}, :#{#r.bucketStart}, :#{#r.entries},
+                :#{#r.sentimentSum}, :#{#r.sentimentMin}, :#{#r.sentimentMax},
+                :#{#r.joySum}, :#{#r.joyMin}, :#{#r.joyMax},
+                :#{#r.sadnessSum}, :#{#r.sadnessMin}, :#{#r.sadnessMax},
+                :#{#r.angerSum}, :#{#r.angerMin}, :#{#r.angerMax})
+            ON CONFLICT (user_id, bucket, bucket_start) DO UPDATE SET
+                entries = mood_rollup.entries + EXCLUDED.entries,
+                sentiment_sum = mood_rollup.sentiment_sum + EXCLUDED.sentiment_sum,
+                sentiment_min = LEAST(mood_rollup.sentiment_min, EXCLUDED.sentiment_min),
+                sentiment_max = GREATEST(mood_rollup.sentiment_max, EXCLUDED.sentiment_max),
+                joy_sum = mood_rollup.joy_sum + EXCLUDED.joy_sum,
+                joy_min = LEAST(mood_rollup.joy_min, EXCLUDED.joy_min),
+                joy_max = GREATEST(mood_rollup.joy_max, EXCLUDED.joy_max),
+                sadness_sum = mood_rollup.sadness_sum + EXCLUDED.sadness_sum,
+                sadness_min = LEAST(mood_rollup.sadness_min, EXCLUDED.sadness_min),
+                sadness_max = GREATEST(mood_rollup.sadness_max, EXCLUDED.sadness_max),
+                anger_sum = mood_rollup.anger_sum + EXCLUDED.anger_sum,
+                anger_min = LEAST(mood_rollup.anger_min, EXCLUDED.anger_min),
+                anger_max = GREATEST(mood_rollup.anger_max, EXCLUDED.anger_max)
+            """, nativeQuery = true)
+    int upsert(@Param("r") MoodRollup delta);
+}
@@ -0,0 +1,8 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.projectx.mental_health_api.eunoia.virtualpet.model.MoodWatermark;
+
+public interface MoodWatermarkRepository extends JpaRepository<MoodWatermark, String> {
+}
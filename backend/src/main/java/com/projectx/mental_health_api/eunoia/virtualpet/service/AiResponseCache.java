@@ -0,0 +1,134 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.projectx.mental_health_api.eunoia.virtualpet.model.AiResponse;
+
+/**
+ * Bounded cache in front of the Groq call for short, interchangeable messages
+ * ("hi", "hello", "i'm tired"). Each key keeps up to {@code variants} different
+ * replies and rotates through them, so the pet doesn't answer word-for-word the same.
+ * Entries expire after the TTL and the least recently used key is evicted when full.
+ */
+@Component
+public class AiResponseCache {
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final int variants;
+    private final int maxWords;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    // access-order LinkedHashMap = LRU; guarded by "this"
+    private final LinkedHashMap<String, Entry> entries;
+
+    public AiResponseCache(
+            @Value("${ai.cache.enabled:true}") boolean enabled,
+            @Value("${ai.cache.ttl:10m}") Duration ttl,
+            @Value("${ai.cache.max-entries:1000}") int maxEntries,
+            @Value("${ai.cache.variants:3}") int variants,
+            @Value("${ai.cache.max-words:4}") int maxWords) {
+        this.enabled = enabled;
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        this.variants = Math.max(1, variants);
+        this.maxWords = maxWords;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > AiResponseCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Cache key for a message, or null if the message shouldn't be cached
+     * (cache disabled, empty, or long enough to be personal).
+     */
+    public String keyFor(String userMessage) {
+        if (!enabled) {
+            return null;
+        }
+        String normalized = PromptNormalizer.normalize(userMessage);
+        int words = PromptNormalizer.wordCount(normalized);
+        return (words == 0 || words > maxWords) ? null : normalized;
+    }
+
+    /**
+     * Returns a cached reply, or null on a miss. A key counts as a miss until it has
+     * collected all its reply variants, so the first few callers still reach the model.
+     */
+    public AiResponse get(String key) {
+        if (key == null) {
+            return null;
+        }
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.createdAt > ttlNanos) {
+                entries.remove(key);
+                entry = null;
+            }
+            if (entry == null || entry.replies.size() < variants) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            AiResponse reply = entry.replies.get(entry.next);
+            entry.next = (entry.next + 1) % entry.replies.size();
+            return copyOf(reply);
+        }
+    }
+
+    public void put(String key, AiResponse response) {
+        if (key == null || response == null || response.getReply() == null) {
+            return;
+        }
+        synchronized (this) {
+            Entry entry = entries.computeIfAbsent(key, k -> new Entry(System.nanoTime()));
+            if (entry.replies.size() < variants) {
+                entry.replies.add(copyOf(response));
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Callers may decorate the response they get back, so never hand out the cached instance
+    private static AiResponse copyOf(AiResponse r) {
+        AiResponse copy = new AiResponse(r.getReply(), r.getEmotion(), r.getAction(), r.getTargetObject(),
+                r.getRecommendedFilter());
+        copy.setOffline(r.isOffline());
+        return copy;
+    }
+
+    private static final class Entry {
+        private final long createdAt;
+        private final List<AiResponse> replies = new ArrayList<>();
+        private int next;
+
+        private Entry(long createdAt) {
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -1,34 +1,68 @@
 package com.projectx.mental_health_api.eunoia.virtualpet.service;
 
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Consumer;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.projectx.mental_health_api.eunoia.virtualpet.model.AiResponse;
 
+import io.micrometer.core.instrument.Timer;
+
 @Service
 public class AiService {
 
     @Value("${groq.api.key}") // Keeping this name so you don't have to change other files
     private String apiKey;
 
-    // GROQ API Endpoint (OpenAI Compatible)
-    private final String API_URL = "https://api.groq.com/openai/v1/chat/completions";
+    // GROQ API Endpoint (OpenAI Compatible) - overridable so we can point at a local stub
+    @Value("${groq.api.url:https://api.groq.com/openai/v1/chat/completions}")
+    private String apiUrl;
 
     // The specific model from your curl command
     private final String MODEL_NAME = "llama-3.3-70b-versatile";
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private AiResponseCache responseCache;
+
+    @Autowired
+    private ChatMetrics metrics;
+
+    @Autowired
+    private RequestCoalescer coalescer;
+
+    @Autowired
+    private ConversationMemory conversationMemory;
+
+    @Autowired
+    private GroqResilience resilience;
+
+    @Autowired
+    private OfflineResponder offlineResponder;
+
+    @Autowired
+    private GroqScheduler scheduler;
+
+    // Replies starting with this are error messages, never remembered as conversation
+    static final String ERROR_REPLY_PREFIX = "DEBUG ERROR: ";
+
+    // Built in init() once the timeouts are known
+    private RestTemplate restTemplate;
+
+    @Value("${ai.resilience.connect-timeout:2s}")
+    private Duration connectTimeout;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     private final String SYSTEM_PROMPT = """
@@ -68,6 +102,9 @@ public class AiService {
                 If the user says "Hello", "Hi", or starts a conversation, respond with a warm, friendly greeting like "Hello! I'm Euna, your friend. How are you feeling right now?" or "Hi there! I'm here for you. What's on your mind?".
             """;
 
+    // Pre-encoded request prefix + streaming response parser (no JsonNode trees)
+    private final GroqCodec groqCodec = new GroqCodec(objectMapper, MODEL_NAME, SYSTEM_PROMPT, 0.7);
+
     @jakarta.annotation.PostConstruct
     public void init() {
         System.out.println("=================================================");
@@ -75,109 +112,213 @@ public class AiService {
         boolean hasKey = apiKey != null && !apiKey.isBlank();
         System.out.println("🔑 GROQ_API_KEY Loaded: " + (hasKey ? "YES (Length: " + apiKey.length() + ")" : "NO ❌"));
         System.out.println("=================================================");
+
+        // No more waiting forever on a stalled connection; GroqResilience enforces the tighter per-call limit
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeout);
+        requestFactory.setReadTimeout(resilience.readTimeout());
+        restTemplate = new RestTemplate(requestFactory);
     }
 
+    // Context-free reply (no conversation memory)
     public AiResponse getResponse(String userMessage) {
+        return getResponse(null, userMessage);
+    }
+
+    /**
+     * Reply to {@code userMessage}, with the user's recent turns (ConversationMemory) sent
+     * along so the pet remembers the conversation. Short small-talk answered from the response
+     * cache is the one exception: those replies are shared between users, so only replies
+     * generated without any history are put in the cache.
+     */
+    public AiResponse getResponse(String userId, String userMessage) {
         // --- MOCK MODE (For Testing without API Key) ---
-        if (apiKey == null || apiKey.isBlank() || apiKey.equals("insert_your_key_here")) {
+        if (isMockMode()) {
             System.out.println("⚠️ MOCK MODE: Generating fake AI response (No API Key found)");
+            metrics.mockFallback("llm");
+            return offlineResponder.respond(userMessage, OfflineResponder.MOCK_DEFAULT_REPLY);
+        }
 
-            String msg = userMessage.toLowerCase();
-            if (msg.contains("anxious") || msg.contains("panic") || msg.contains("worry")) {
-                return new AiResponse(
-                        "I hear you. Taking deep breaths can really help with anxiety. Let's try some breathing exercises together.",
-                        "SAD", "BREATHE", "MAT", "BREATHING");
-            } else if (msg.contains("sad") || msg.contains("low") || msg.contains("depress")) {
-                return new AiResponse(
-                        "I am sorry you are feeling down. Journaling your thoughts might help get them out.",
-                        "SAD", "IDLE", "BED", "JOURNALING");
-            } else if (msg.contains("stress") || msg.contains("tense")) {
-                return new AiResponse(
-                        "It sounds like you're carrying a lot of tension. Let's try to relax your muscles.",
-                        "CONCERNED", "SIT", "CHAIR", "RELAXATION");
-            } else if (msg.contains("overwhelm")) {
-                return new AiResponse(
-                        "Let's take it one step at a time. Grounding yourself can help bring you back to the present.",
-                        "CONCERNED", "SIT", "MAT", "GROUNDING");
-            } else if (msg.contains("negative") || msg.contains("thought")) {
-                return new AiResponse(
-                        "Challenging those negative thoughts can be helpful. Let's try some Cognitive Reframing.",
-                        "CONCERNED", "IDLE", "CHAIR", "CBT");
-            } else if (msg.contains("sleep") || msg.contains("rest") || msg.contains("tired") || msg.contains("nap")) {
-                return new AiResponse(
-                        "Rest is important. I'm going to take a quick nap too.",
-                        "CALM", "SLEEP", "BED", "NONE"); // No filter, just sleep
-            } else if (msg.contains("drink") || msg.contains("water") || msg.contains("thirsty")) {
-                return new AiResponse(
-                        "Hydration is key! Let's get some water.",
-                        "HAPPY", "DRINK", "WATER_STATION", "NONE");
-            } else if (msg.contains("happy") || msg.contains("good") || msg.contains("great") || msg.contains("love")) {
-                return new AiResponse(
-                        "That is wonderful! I love seeing you happy! Keep shining!",
-                        "EXCITED", "HAPPY", "NONE", "NONE");
-            } else if (msg.contains("hello") || msg.contains("hi")) {
-                return new AiResponse(
-                        "Hello! I'm Euna, your friend. How are you feeling right now?",
-                        "HAPPY", "WAVE", "NONE", "NONE");
-            } else {
-                return new AiResponse(
-                        "I am here for you! (Mock Mode active)",
-                        "HAPPY", "IDLE", "NONE", "NONE");
-            }
+        // Short small-talk ("hi", "i'm tired") is answered from the cache when we can
+        String cacheKey = responseCache.keyFor(userMessage);
+        AiResponse response = responseCache.get(cacheKey);
+        if (response == null) {
+            List<ConversationMemory.Turn> history = conversationMemory.recall(userId);
+            // A reply that saw this user's conversation is not shared through the cache
+            String storeKey = history.isEmpty() ? cacheKey : null;
+            response = coalesced(userMessage, history, storeKey);
         }
 
+        remember(userId, userMessage, response);
+        return response;
+    }
+
+    // Identical prompts with identical context arriving together (a whole class saying "hi") share one Groq call
+    private AiResponse coalesced(String userMessage, List<ConversationMemory.Turn> history, String cacheKey) {
         try {
-            // 1. Build Request Body
-            Map<String, Object> systemMessage = Map.of("role", "system", "content", SYSTEM_PROMPT);
-            Map<String, Object> userMessageJson = Map.of("role", "user", "content", userMessage);
+            return coalescer.execute(coalescer.keyFor(userMessage, history),
+                    () -> callGroq(history, userMessage, cacheKey));
+        } catch (GroqResilience.GroqUnavailableException e) {
+            // We joined a call that outlived its deadline
+            return offlineResponse(userMessage, e);
+        }
+    }
 
-            Map<String, Object> requestBody = Map.of(
-                    "model", MODEL_NAME,
-                    "messages", List.of(systemMessage, userMessageJson),
-                    "temperature", 0.7);
+    private AiResponse callGroq(List<ConversationMemory.Turn> history, String userMessage, String cacheKey) {
+        try {
+            // 1. Build Request Body (system prompt is already encoded)
+            byte[] jsonBody = groqCodec.encode(history, userMessage, false);
 
-            String jsonBody = objectMapper.writeValueAsString(requestBody);
+            // 2. Send Request, 3. Parse the reply straight off the response stream
+            //    (within Groq quota, with the adaptive timeout, a hedged second request if it's slow,
+            //    and the circuit breaker)
+            AiResponse aiResponse = resilience.call(scheduler.estimateTokens(jsonBody.length),
+                    hedge -> metrics.timeLlmCall(hedge ? "hedge" : "blocking", () -> restTemplate.execute(apiUrl,
+                            HttpMethod.POST, request -> {
+                                request.getHeaders().putAll(groqHeaders());
+                                request.getBody().write(jsonBody);
+                            }, response -> {
+                                scheduler.onResponse(response.getHeaders());
+                                Timer.Sample decode = Timer.start();
+                                try {
+                                    return groqCodec.readReply(response.getBody());
+                                } finally {
+                                    decode.stop(metrics.jsonDecode());
+                                }
+                            })));
 
-            // 2. Prepare Headers
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.set("Authorization", "Bearer " + apiKey);
+            responseCache.put(cacheKey, aiResponse);
+            return aiResponse;
 
-            HttpEntity<String> entity = new HttpEntity<>(jsonBody, headers);
+        } catch (GroqResilience.GroqUnavailableException e) {
+            return offlineResponse(userMessage, e);
+        } catch (Exception e) {
+            return errorResponse(e);
+        }
+    }
 
-            // 3. Send Request
-            ResponseEntity<String> response = restTemplate.exchange(
-                    API_URL, HttpMethod.POST, entity, String.class);
+    /**
+     * Same as {@link #getResponse(String, String)}, but asks Groq to stream the completion
+     * and hands every decoded piece of the "reply" field to {@code onReplyText}
+     * as soon as it arrives. The fully bound response is returned once the
+     * stream has finished.
+     */
+    public AiResponse streamResponse(String userId, String userMessage, Consumer<String> onReplyText) {
+        if (isMockMode()) {
+            System.out.println("⚠️ MOCK MODE: Generating fake AI response (No API Key found)");
+            metrics.mockFallback("llm");
+            AiResponse mock = offlineResponder.respond(userMessage, OfflineResponder.MOCK_DEFAULT_REPLY);
+            onReplyText.accept(mock.getReply());
+            return mock;
+        }
 
-            // 4. Parse Response
-            JsonNode root = objectMapper.readTree(response.getBody());
+        String cacheKey = responseCache.keyFor(userMessage);
+        AiResponse cached = responseCache.get(cacheKey);
+        if (cached != null) {
+            onReplyText.accept(cached.getReply());
+            remember(userId, userMessage, cached);
+            return cached;
+        }
+        List<ConversationMemory.Turn> history = conversationMemory.recall(userId);
+        // A reply that saw this user's conversation is not shared through the cache
+        String storeKey = history.isEmpty() ? cacheKey : null;
 
-            String aiText = root.path("choices").get(0)
-                    .path("message")
-                    .path("content").asText();
+        ReplyFieldStreamer replyStreamer = new ReplyFieldStreamer(onReplyText);
+        StringBuilder aiText = new StringBuilder();
 
-            // 5. Clean & Convert
-            int jsonStart = aiText.indexOf("{");
-            int jsonEnd = aiText.lastIndexOf("}");
+        try {
+            byte[] jsonBody = groqCodec.encode(history, userMessage, true);
 
-            if (jsonStart != -1 && jsonEnd != -1) {
-                aiText = aiText.substring(jsonStart, jsonEnd + 1);
-            }
+            resilience.callStreaming(scheduler.estimateTokens(jsonBody.length),
+                    hedge -> metrics.timeLlmCall("stream", () -> restTemplate.execute(apiUrl,
+                            HttpMethod.POST, request -> {
+                                request.getHeaders().putAll(groqHeaders());
+                                request.getBody().write(jsonBody);
+                            }, response -> {
+                                scheduler.onResponse(response.getHeaders());
+                                // Groq sends OpenAI-style SSE: "data: {chunk}" lines, closed by "data: [DONE]"
+                                BufferedReader reader = new BufferedReader(
+                                        new InputStreamReader(response.getBody(), StandardCharsets.UTF_8));
+                                String line;
+                                while ((line = reader.readLine()) != null) {
+                                    if (!line.startsWith("data:")) {
+                                        continue;
+                                    }
+                                    String data = line.substring(5).trim();
+                                    if (data.equals("[DONE]")) {
+                                        break;
+                                    }
+                                    String delta = groqCodec.readDelta(data);
+                                    if (delta != null && !delta.isEmpty()) {
+                                        aiText.append(delta);
+                                        replyStreamer.accept(delta);
+                                    }
+                                }
+                                return null;
+                            })));
 
-            return objectMapper.readValue(aiText, AiResponse.class);
+            AiResponse aiResponse = parseAiJson(aiText.toString());
+            responseCache.put(storeKey, aiResponse);
+            remember(userId, userMessage, aiResponse);
+            return aiResponse;
 
-        } catch (Exception e) {
-            System.err.println("--- GROQ API ERROR ---");
-            System.err.println("Message: " + e.getMessage());
-            if (apiKey == null || apiKey.isBlank()) {
-                System.err.println("⚠️ WARNING: GROQ_API_KEY is missing or empty!");
+        } catch (GroqResilience.GroqUnavailableException e) {
+            if (aiText.length() > 0) {
+                return errorResponse(e); // part of a reply is already on screen; don't swap in another one
             }
-            e.printStackTrace();
+            AiResponse offline = offlineResponse(userMessage, e);
+            onReplyText.accept(offline.getReply());
+            return offline;
+        } catch (Exception e) {
+            return errorResponse(e);
+        }
+    }
+
+    // Groq is down or too slow: answer instantly from the keyword responder instead of an error
+    private AiResponse offlineResponse(String userMessage, GroqResilience.GroqUnavailableException e) {
+        System.err.println("--- GROQ UNAVAILABLE (" + e.getReason() + "): answering offline"
+                + (e.getCause() != null ? " - " + e.getCause().getMessage() : ""));
+        metrics.offlineReply(e.getReason());
+        return offlineResponder.respond(userMessage, OfflineResponder.OFFLINE_DEFAULT_REPLY);
+    }
 
-            // DEBUG: Return the actual error to the user
-            return new AiResponse(
-                    "DEBUG ERROR: " + e.getMessage(),
-                    "CONCERNED", "IDLE", "NONE");
+    // Error messages and canned offline replies aren't part of the conversation the model should see
+    private void remember(String userId, String userMessage, AiResponse response) {
+        String reply = response.getReply();
+        if (reply != null && !reply.startsWith(ERROR_REPLY_PREFIX) && !response.isOffline()) {
+            conversationMemory.record(userId, userMessage, reply);
         }
     }
+
+    private boolean isMockMode() {
+        return apiKey == null || apiKey.isBlank() || apiKey.equals("insert_your_key_here");
+    }
+
+    private HttpHeaders groqHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("Authorization", "Bearer " + apiKey);
+        return headers;
+    }
+
+    // The model sometimes wraps the JSON in prose or code fences, so start binding at the first '{'
+    private AiResponse parseAiJson(String aiText) throws Exception {
+        int jsonStart = metrics.jsonExtract().record(() -> GroqCodec.replyStart(aiText));
+        return metrics.jsonBind().recordCallable(() -> groqCodec.bindReply(aiText, jsonStart));
+    }
+
+    private AiResponse errorResponse(Exception e) {
+        System.err.println("--- GROQ API ERROR ---");
+        System.err.println("Message: " + e.getMessage());
+        if (apiKey == null || apiKey.isBlank()) {
+            System.err.println("⚠️ WARNING: GROQ_API_KEY is missing or empty!");
+        }
+        e.printStackTrace();
+        metrics.errorReply();
+
+        // DEBUG: Return the actual error to the user
+        return new AiResponse(
+                ERROR_REPLY_PREFIX + e.getMessage(),
+                "CONCERNED", "IDLE", "NONE");
+    }
 }
@@ -0,0 +1,238 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.projectx.mental_health_api.eunoia.virtualpet.model.ChatMessage;
+import com.projectx.mental_health_api.eunoia.virtualpet.repository.ChatMessageRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Single entry point for persisting chat messages.
+ *
+ * By default a chat turn is saved with one saveAll (one transaction, one JDBC batch).
+ * With chat.write-behind.enabled=true messages are buffered in memory and flushed in
+ * batches when batch-size messages are waiting or every flush-interval, whichever comes
+ * first. The buffer is drained on shutdown. If it is full, the caller flushes inline.
+ *
+ * Messages are timestamped here, right before their insert, not when they were created:
+ * readers order chat by (timestamp, id), so a message must not carry a time from before a
+ * slow LLM call or a stay in the buffer while newer rows commit ahead of it.
+ *
+ * A batch that fails is put back and retried on the next flush. After max-attempts
+ * failures in a row its rows are saved one by one, and the ones that still fail are
+ * appended to the dead-letter file (same CSV layout as the chat archive) so they no
+ * longer block the messages behind them. Flush failures are logged, never thrown: a
+ * reader or a chat request doesn't fail because a batch couldn't be written yet.
+ */
+@Component
+public class ChatMessageWriter {
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Value("${chat.write-behind.enabled:false}")
+    private boolean writeBehind;
+
+    @Value("${chat.write-behind.batch-size:100}")
+    private int batchSize;
+
+    @Value("${chat.write-behind.flush-interval:200ms}")
+    private Duration flushInterval;
+
+    @Value("${chat.write-behind.capacity:10000}")
+    private int capacity;
+
+    @Value("${chat.write-behind.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${chat.write-behind.dead-letter-file:archive/chat/dead-letter.csv}")
+    private Path deadLetterFile;
+
+    private LinkedBlockingDeque<ChatMessage> buffer;
+    private ScheduledExecutorService flusher;
+
+    // only one flush at a time, so batches go out in order
+    private final Object flushLock = new Object();
+
+    // failed attempts of the batch at the head of the buffer; guarded by flushLock
+    private int failedAttempts;
+
+    @PostConstruct
+    public void init() {
+        if (!writeBehind) {
+            return;
+        }
+        buffer = new LinkedBlockingDeque<>(capacity);
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "chat-write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        System.out.println("📝 Chat write-behind enabled (batch " + batchSize + ", every " + flushInterval + ")");
+    }
+
+    public void write(ChatMessage... messages) {
+        write(Arrays.asList(messages));
+    }
+
+    public void write(List<ChatMessage> messages) {
+        if (!writeBehind) {
+            stamp(messages);
+            chatMessageRepository.saveAll(messages);
+            return;
+        }
+        for (ChatMessage message : messages) {
+            while (!buffer.offerLast(message)) {
+                flush(); // buffer full: the caller pays for the flush (backpressure)
+            }
+        }
+        if (buffer.size() >= batchSize) {
+            flusher.execute(this::flush);
+        }
+    }
+
+    /**
+     * Writes everything buffered so far. Readers that need to see the latest messages
+     * (e.g. mood analysis) call this first; it is a no-op without write-behind.
+     * Never throws: a batch that can't be written stays buffered (or is dead-lettered).
+     */
+    public void flush() {
+        if (!writeBehind) {
+            return;
+        }
+        synchronized (flushLock) {
+            List<ChatMessage> batch = new ArrayList<>(batchSize);
+            while (buffer.drainTo(batch, batchSize) > 0) {
+                try {
+                    stamp(batch);
+                    chatMessageRepository.saveAll(batch);
+                    failedAttempts = 0;
+                } catch (RuntimeException e) {
+                    if (++failedAttempts < maxAttempts) {
+                        System.err.println("--- CHAT WRITE-BEHIND: flush failed (attempt " + failedAttempts + "/"
+                                + maxAttempts + "), will retry: " + e.getMessage());
+                        requeue(batch);
+                        return;
+                    }
+                    failedAttempts = 0;
+                    saveOneByOne(batch);
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    // Put the batch back in front so it is retried in order on the next flush
+    private void requeue(List<ChatMessage> batch) {
+        List<ChatMessage> overflow = new ArrayList<>();
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            ChatMessage message = batch.get(i);
+            if (!buffer.offerFirst(message)) {
+                overflow.add(message);
+            }
+        }
+        deadLetter(overflow, "buffer full");
+    }
+
+    // The batch keeps failing: find the rows that are the problem and set them aside
+    private void saveOneByOne(List<ChatMessage> batch) {
+        List<ChatMessage> failed = new ArrayList<>();
+        String reason = null;
+        int failuresInARow = 0;
+        for (ChatMessage message : batch) {
+            // As many failures in a row as whole-batch attempts: the database is down, not the rows
+            if (failuresInARow >= maxAttempts) {
+                failed.add(message);
+                continue;
+            }
+            try {
+                stamp(List.of(message));
+                chatMessageRepository.save(message);
+                failuresInARow = 0;
+            } catch (RuntimeException e) {
+                failed.add(message);
+                reason = e.getMessage();
+                failuresInARow++;
+            }
+        }
+        deadLetter(failed, reason);
+    }
+
+    // Time of the insert; also clears an id left over from a rolled-back attempt
+    private static void stamp(List<ChatMessage> messages) {
+        LocalDateTime now = LocalDateTime.now();
+        for (ChatMessage message : messages) {
+            message.setId(null);
+            message.setTimestamp(now);
+        }
+    }
+
+    private void deadLetter(List<ChatMessage> messages, String reason) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        try {
+            if (deadLetterFile.getParent() != null) {
+                Files.createDirectories(deadLetterFile.getParent());
+            }
+            boolean header = !Files.exists(deadLetterFile);
+            try (Writer out = Files.newBufferedWriter(deadLetterFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                if (header) {
+                    out.write(ChatPartitionMaintenance.CSV_HEADER);
+                    out.write('\n');
+                }
+                for (ChatMessage message : messages) {
+                    // Never written, so no id (0)
+                    ChatPartitionMaintenance.writeRow(out, 0, message.getContent(), message.isUser(),
+                            message.getTimestamp() == null ? null : message.getTimestamp().toString(),
+                            message.getUserId());
+                }
+            }
+            System.err.println("--- CHAT WRITE-BEHIND: dead-lettered " + messages.size() + " message(s) to "
+                    + deadLetterFile + ": " + reason);
+        } catch (IOException e) {
+            System.err.println("--- CHAT WRITE-BEHIND: could not dead-letter " + messages.size()
+                    + " message(s), dropped: " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!writeBehind) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Keep going until the buffer is empty; a batch that won't go in ends up in the dead-letter file
+        for (int i = 0; i <= maxAttempts && !buffer.isEmpty(); i++) {
+            flush();
+        }
+    }
+}
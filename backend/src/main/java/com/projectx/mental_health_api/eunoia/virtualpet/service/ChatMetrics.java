@@ -0,0 +1,203 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * All chat-path meters in one place, so the names stay consistent (scraped from
+ * /actuator/prometheus). Timers publish p50/p95/p99 and a histogram.
+ *
+ * eunoia.llm.request{mode,outcome}     Groq round-trip (blocking or stream)
+ * eunoia.llm.inflight                  Groq calls currently waiting
+ * eunoia.llm.json{stage}               decode = one-pass GroqCodec read of a blocking reply;
+ *                                      extract / bind = locating and binding the JSON of a streamed reply
+ * eunoia.llm.error.replies             "DEBUG ERROR" replies sent to the user
+ * eunoia.llm.coalesced                 calls that joined an identical in-flight call (RequestCoalescer)
+ * eunoia.llm.offline{reason}           replies from OfflineResponder because Groq was unavailable (GroqResilience)
+ * eunoia.llm.timeouts                  calls cut off by the adaptive timeout
+ * eunoia.llm.hedges{outcome}           hedged calls: won = the second request answered first, lost = the first did
+ * eunoia.llm.timeout / .hedge.delay    current adaptive timeout and hedge delay (ms)
+ * eunoia.llm.breaker.state             0 = closed, 1 = half-open, 2 = open
+ * eunoia.llm.queue.depth / .wait{priority}   calls waiting for Groq quota and how long they waited (GroqScheduler)
+ * eunoia.llm.throttled{reason}         calls turned away by the scheduler (queue-full / wait)
+ * eunoia.llm.rate.limited              429s from Groq
+ * eunoia.context.users / .bytes       live conversation contexts and their estimated heap (ConversationMemory)
+ * eunoia.context.seeded                contexts loaded from chat_message
+ * eunoia.context.evictions{reason}     idle / memory
+ * eunoia.sentiment.request{engine,outcome}
+ * eunoia.mood.recompute.users{result}  users handled by the bulk mood job: updated / unchanged / conflict / failed
+ * eunoia.mood.recompute.run{state}     duration of each bulk mood run (MoodRecomputeJob)
+ * eunoia.mock.fallbacks{component}     llm / sentiment answered by the mock (no API key)
+ *
+ * Repository latency comes from Spring Boot's spring.data.repository.invocations timer.
+ */
+@Component
+public class ChatMetrics {
+
+    private static final double[] PERCENTILES = { 0.5, 0.95, 0.99 };
+
+    private final MeterRegistry registry;
+    private final AtomicInteger llmInFlight = new AtomicInteger();
+
+    private final Timer jsonDecode;
+    private final Timer jsonExtract;
+    private final Timer jsonBind;
+    private final Counter errorReplies;
+    private final Counter coalesced;
+
+    public ChatMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("eunoia.llm.inflight", llmInFlight, AtomicInteger::get)
+                .description("Groq requests in flight")
+                .register(registry);
+        this.jsonDecode = timer("eunoia.llm.json").tag("stage", "decode").register(registry);
+        this.jsonExtract = timer("eunoia.llm.json").tag("stage", "extract").register(registry);
+        this.jsonBind = timer("eunoia.llm.json").tag("stage", "bind").register(registry);
+        this.errorReplies = Counter.builder("eunoia.llm.error.replies")
+                .description("Replies that carried a DEBUG ERROR message")
+                .register(registry);
+        this.coalesced = Counter.builder("eunoia.llm.coalesced")
+                .description("Groq calls saved by joining an identical request already in flight")
+                .register(registry);
+    }
+
+    // Times one Groq call; the in-flight gauge covers the whole wait
+    public <T> T timeLlmCall(String mode, Supplier<T> call) {
+        llmInFlight.incrementAndGet();
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "error";
+        try {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } finally {
+            llmInFlight.decrementAndGet();
+            sample.stop(timer("eunoia.llm.request").tag("mode", mode).tag("outcome", outcome).register(registry));
+        }
+    }
+
+    public <T> T timeSentimentCall(String engine, Supplier<T> call) {
+        Timer.Sample sample = Timer.start(registry);
+        String outcome = "error";
+        try {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(timer("eunoia.sentiment.request").tag("engine", engine).tag("outcome", outcome)
+                    .register(registry));
+        }
+    }
+
+    public Timer jsonDecode() {
+        return jsonDecode;
+    }
+
+    public Timer jsonExtract() {
+        return jsonExtract;
+    }
+
+    public Timer jsonBind() {
+        return jsonBind;
+    }
+
+    public void mockFallback(String component) {
+        registry.counter("eunoia.mock.fallbacks", "component", component).increment();
+    }
+
+    public void errorReply() {
+        errorReplies.increment();
+    }
+
+    public void coalesced() {
+        coalesced.increment();
+    }
+
+    public <T> void resilienceGauges(T resilience, ToDoubleFunction<T> timeoutMs, ToDoubleFunction<T> hedgeDelayMs,
+            ToDoubleFunction<T> breakerState) {
+        Gauge.builder("eunoia.llm.timeout", resilience, timeoutMs)
+                .description("Current per-attempt Groq timeout")
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("eunoia.llm.hedge.delay", resilience, hedgeDelayMs)
+                .description("Delay before a hedged second request (0 = not hedging yet)")
+                .baseUnit("milliseconds")
+                .register(registry);
+        Gauge.builder("eunoia.llm.breaker.state", resilience, breakerState)
+                .description("Groq circuit breaker: 0 closed, 1 half-open, 2 open")
+                .register(registry);
+    }
+
+    public <T> void schedulerGauges(T scheduler, ToDoubleFunction<T> queueDepth) {
+        Gauge.builder("eunoia.llm.queue.depth", scheduler, queueDepth)
+                .description("Groq calls waiting for quota")
+                .register(registry);
+    }
+
+    public void queueWait(String priority, long nanos) {
+        timer("eunoia.llm.queue.wait").tag("priority", priority).register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void throttled(String reason) {
+        registry.counter("eunoia.llm.throttled", "reason", reason).increment();
+    }
+
+    public void rateLimited() {
+        registry.counter("eunoia.llm.rate.limited").increment();
+    }
+
+    public void offlineReply(String reason) {
+        registry.counter("eunoia.llm.offline", "reason", reason).increment();
+    }
+
+    public void llmTimeout() {
+        registry.counter("eunoia.llm.timeouts").increment();
+    }
+
+    public void hedge(String outcome) {
+        registry.counter("eunoia.llm.hedges", "outcome", outcome).increment();
+    }
+
+    public void moodRecomputeUsers(String result, long count) {
+        if (count > 0) {
+            registry.counter("eunoia.mood.recompute.users", "result", result).increment(count);
+        }
+    }
+
+    public void moodRecomputeRun(String state, long nanos) {
+        Timer.builder("eunoia.mood.recompute.run").tag("state", state).register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public <T> void contextGauges(T memory, ToDoubleFunction<T> users, ToDoubleFunction<T> bytes) {
+        Gauge.builder("eunoia.context.users", memory, users)
+                .description("Users with a conversation context in memory")
+                .register(registry);
+        Gauge.builder("eunoia.context.bytes", memory, bytes)
+                .description("Estimated heap held by conversation contexts")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    public void contextSeeded() {
+        registry.counter("eunoia.context.seeded").increment();
+    }
+
+    public void contextEvicted(String reason) {
+        registry.counter("eunoia.context.evictions", "reason", reason).increment();
+    }
+
+    private static Timer.Builder timer(String name) {
+        return Timer.builder(name).publishPercentiles(PERCENTILES).publishPercentileHistogram();
+    }
+}
@@ -0,0 +1,272 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Housekeeping for the monthly chat_message partitions (see V15).
+ *
+ * At startup and every night: makes sure the partitions for the coming months exist
+ * (ensure_chat_message_partitions). With chat.archive.enabled (off by default) it then
+ * archives every partition older than chat.archive.older-than-months: its rows are streamed to
+ * {directory}/chat_message_yYYYYmMM.csv.gz, the row count is checked against the table,
+ * and only then is the partition detached (CONCURRENTLY, so chat writes keep going).
+ * A detached partition is dropped only if chat.archive.drop-after-export is set.
+ * Archived messages no longer show up in /api/chat/history, conversation memory or mood
+ * recompute, which is why archiving has to be switched on explicitly.
+ *
+ * Does nothing when chat_message isn't partitioned (H2 in tests).
+ */
+@Component
+public class ChatPartitionMaintenance {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("chat_message_y(\\d{4})m(\\d{2})");
+    static final String CSV_HEADER = "id,content,is_user,timestamp,user_id";
+
+    @Value("${chat.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${chat.archive.enabled:false}")
+    private boolean archiveEnabled;
+
+    // Partitions whose month lies more than this many months back are archived
+    @Value("${chat.archive.older-than-months:12}")
+    private int archiveAfterMonths;
+
+    @Value("${chat.archive.directory:archive/chat}")
+    private Path directory;
+
+    @Value("${chat.archive.drop-after-export:false}")
+    private boolean dropAfterExport;
+
+    // Rows per round trip while streaming a partition out
+    @Value("${chat.archive.fetch-size:1000}")
+    private int fetchSize;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Export runs in one read-only snapshot so the streamed rows and the count agree
+    private TransactionTemplate snapshot;
+    // Same DataSource (so it joins the snapshot transaction) but fetching in chunks instead of all rows at once
+    private JdbcTemplate streaming;
+    private volatile boolean partitioned;
+
+    // One partition as seen in pg_inherits; detachPending = an earlier CONCURRENTLY detach was cut short
+    record Partition(String name, YearMonth month, boolean detachPending) {
+    }
+
+    @PostConstruct
+    public void init() {
+        snapshot = new TransactionTemplate(transactionManager);
+        snapshot.setReadOnly(true);
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streaming.setFetchSize(fetchSize);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        partitioned = isPartitioned();
+        if (!partitioned) {
+            System.out.println("🗄️ chat_message is not partitioned, partition maintenance OFF");
+            return;
+        }
+        ensurePartitions();
+    }
+
+    @Scheduled(cron = "${chat.archive.cron:0 30 3 * * *}")
+    public void nightly() {
+        if (!partitioned) {
+            return;
+        }
+        ensurePartitions();
+        if (archiveEnabled) {
+            archiveOldPartitions();
+        }
+    }
+
+    /** Creates the partitions for this month and the next months-ahead months if missing. */
+    public int ensurePartitions() {
+        Integer created = jdbcTemplate.queryForObject(
+                "SELECT public.ensure_chat_message_partitions(CAST(now() AS date), ?)", Integer.class, monthsAhead);
+        if (created != null && created > 0) {
+            System.out.println("🗄️ Created " + created + " chat_message partition(s)");
+        }
+        return created == null ? 0 : created;
+    }
+
+    /** Exports and detaches every partition past the archive age; returns the archived partition names. */
+    public List<String> archiveOldPartitions() {
+        YearMonth cutoff = YearMonth.now().minusMonths(archiveAfterMonths);
+        List<String> archived = new ArrayList<>();
+        for (Partition partition : partitions()) {
+            if (!partition.month().isBefore(cutoff)) {
+                continue;
+            }
+            try {
+                if (partition.detachPending()) {
+                    // Already exported last time; just finish the detach
+                    jdbcTemplate.execute("ALTER TABLE public.chat_message DETACH PARTITION public."
+                            + partition.name() + " FINALIZE");
+                } else {
+                    long rows = export(partition.name());
+                    jdbcTemplate.execute("ALTER TABLE public.chat_message DETACH PARTITION public."
+                            + partition.name() + " CONCURRENTLY");
+                    System.out.println("🗄️ Archived " + partition.name() + ": " + rows + " messages -> "
+                            + archiveFile(partition.name()));
+                }
+                if (dropAfterExport) {
+                    jdbcTemplate.execute("DROP TABLE public." + partition.name());
+                }
+                archived.add(partition.name());
+            } catch (IOException | UncheckedIOException | DataAccessException e) {
+                // Left attached; the next run tries again
+                System.err.println("--- CHAT ARCHIVE FAILED for " + partition.name() + ": " + e.getMessage());
+            }
+        }
+        return archived;
+    }
+
+    // Attached (or half-detached) partitions, oldest first
+    List<Partition> partitions() {
+        List<Partition> partitions = new ArrayList<>();
+        jdbcTemplate.query("""
+                SELECT c.relname, i.inhdetachpending
+                FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'public.chat_message'::regclass
+                ORDER BY c.relname
+                """, rs -> {
+            YearMonth month = monthOf(rs.getString(1));
+            if (month != null) {
+                partitions.add(new Partition(rs.getString(1), month, rs.getBoolean(2)));
+            }
+        });
+        return partitions;
+    }
+
+    // Streams the partition to a temp file, checks the count, then moves it into place
+    private long export(String partition) throws IOException {
+        Files.createDirectories(directory);
+        Path target = archiveFile(partition);
+        Path temp = directory.resolve(partition + ".csv.gz.part");
+        try {
+            long rows = snapshot.execute(status -> {
+                try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                        new GZIPOutputStream(Files.newOutputStream(temp), 64 * 1024), StandardCharsets.UTF_8))) {
+                    long written = writeCsv(partition, out);
+                    Long expected = jdbcTemplate.queryForObject("SELECT count(*) FROM public." + partition, Long.class);
+                    if (expected == null || expected != written) {
+                        throw new IOException("exported " + written + " rows but the partition has " + expected);
+                    }
+                    return written;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return rows;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private long writeCsv(String partition, Writer out) throws IOException {
+        out.write(CSV_HEADER);
+        out.write('\n');
+        AtomicLong rows = new AtomicLong();
+        streaming.query("SELECT id, content, is_user, \"timestamp\", user_id FROM public." + partition + " ORDER BY id",
+                rs -> {
+                    try {
+                        Timestamp ts = rs.getTimestamp(4);
+                        writeRow(out, rs.getLong(1), rs.getString(2), rs.getBoolean(3),
+                                ts == null ? null : ts.toLocalDateTime().toString(), rs.getString(5));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    rows.incrementAndGet();
+                });
+        return rows.get();
+    }
+
+    // RFC 4180: text fields always quoted, embedded quotes doubled; null = empty unquoted field
+    static void writeRow(Writer out, long id, String content, boolean isUser, String timestamp, String userId)
+            throws IOException {
+        out.write(Long.toString(id));
+        out.write(',');
+        quoted(out, content);
+        out.write(',');
+        out.write(isUser ? "true" : "false");
+        out.write(',');
+        if (timestamp != null) {
+            out.write(timestamp);
+        }
+        out.write(',');
+        quoted(out, userId);
+        out.write('\n');
+    }
+
+    private static void quoted(Writer out, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    static YearMonth monthOf(String partition) {
+        Matcher m = PARTITION_NAME.matcher(partition);
+        if (!m.matches()) {
+            return null;
+        }
+        return YearMonth.of(Integer.parseInt(m.group(1)), Integer.parseInt(m.group(2)));
+    }
+
+    private Path archiveFile(String partition) {
+        return directory.resolve(partition + ".csv.gz");
+    }
+
+    private boolean isPartitioned() {
+        try {
+            Integer n = jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM pg_partitioned_table WHERE partrelid = to_regclass('public.chat_message')",
+                    Integer.class);
+            return n != null && n > 0;
+        } catch (DataAccessException e) {
+            return false; // not PostgreSQL
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.projectx.mental_health_api.eunoia.virtualpet.model.ChatMessage;
+import com.projectx.mental_health_api.eunoia.virtualpet.repository.ChatMessageRepository;
+
+/**
+ * Recent conversation turns per user, kept in memory so the pet remembers what was
+ * just said without a chat_message query on every message.
+ *
+ * Each user gets a ring buffer of the last {@code max-turns} messages, seeded from
+ * ChatMessageRepository the first time we see them (or after they were evicted).
+ * Before a Groq call the buffer is cut down to the newest turns that fit the token budget.
+ *
+ * The whole thing is bounded: contexts idle for longer than {@code idle-ttl} are dropped,
+ * and when the estimated footprint goes over {@code max-memory} the least recently used
+ * contexts are dropped until it fits. Both numbers are exported as gauges (ChatMetrics).
+ */
+@Component
+public class ConversationMemory {
+
+    // Rough JVM cost of a Turn + its String + the deque slot, and of an empty context + map entry
+    private static final long TURN_OVERHEAD_BYTES = 96;
+    private static final long CONTEXT_OVERHEAD_BYTES = 200;
+    // Per-message framing Groq adds on top of the text ("role", separators)
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    /** One message, already in the shape Groq expects ({@code role} = user | assistant). */
+    public record Turn(String role, String content, int tokens) {
+    }
+
+    private final boolean enabled;
+    private final int maxTurns;
+    private final int tokenBudget;
+    private final long idleNanos;
+    private final long maxBytes;
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final ChatMessageWriter chatMessageWriter;
+    private final ChatMetrics metrics;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // access-order LinkedHashMap = LRU, so the eldest entries are also the longest idle; guarded by "this"
+    private final LinkedHashMap<String, Context> contexts = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public ConversationMemory(
+            @Value("${ai.context.enabled:true}") boolean enabled,
+            @Value("${ai.context.max-turns:12}") int maxTurns,
+            @Value("${ai.context.token-budget:1500}") int tokenBudget,
+            @Value("${ai.context.idle-ttl:30m}") Duration idleTtl,
+            @Value("${ai.context.max-memory:64MB}") DataSize maxMemory,
+            ChatMessageRepository chatMessageRepository,
+            ChatMessageWriter chatMessageWriter,
+            ChatMetrics metrics) {
+        this.enabled = enabled;
+        this.maxTurns = Math.max(1, maxTurns);
+        this.tokenBudget = tokenBudget;
+        this.idleNanos = idleTtl.toNanos();
+        this.maxBytes = maxMemory.toBytes();
+        this.chatMessageRepository = chatMessageRepository;
+        this.chatMessageWriter = chatMessageWriter;
+        this.metrics = metrics;
+        metrics.contextGauges(this, ConversationMemory::size, ConversationMemory::estimatedBytes);
+        System.out.println("🧠 Conversation memory: " + (enabled ? "ON" : "OFF") + " (" + this.maxTurns
+                + " turns/user, " + tokenBudget + " token budget, cap " + maxMemory.toMegabytes() + " MB)");
+    }
+
+    /**
+     * The user's recent turns, oldest first, trimmed to the token budget.
+     * Empty when disabled or for an unknown / anonymous user.
+     */
+    public List<Turn> recall(String userId) {
+        if (!enabled || userId == null || userId.isEmpty() || userId.equals("anonymous")) {
+            return List.of();
+        }
+        synchronized (this) {
+            evictIdle();
+            Context context = contexts.get(userId);
+            if (context != null) {
+                return context.trimmed(tokenBudget);
+            }
+        }
+
+        // First turn we see for this user: seed from the table outside the lock
+        List<Turn> seed = loadFromHistory(userId);
+        synchronized (this) {
+            Context context = contexts.get(userId);
+            if (context == null) {
+                context = new Context(userId);
+                for (Turn turn : seed) {
+                    add(context, turn);
+                }
+                contexts.put(userId, context);
+                totalBytes += context.bytes;
+                metrics.contextSeeded();
+                enforceMemoryCap();
+            }
+            return context.trimmed(tokenBudget);
+        }
+    }
+
+    /**
+     * Appends a completed turn. Only users with a live context are updated; anyone else
+     * is seeded from the table on their next message, which by then includes this turn.
+     */
+    public void record(String userId, String userText, String replyText) {
+        if (!enabled || userId == null || userText == null || replyText == null) {
+            return;
+        }
+        Turn user = userTurn(userText);
+        Turn assistant = assistantTurn(replyText);
+        synchronized (this) {
+            Context context = contexts.get(userId);
+            if (context == null) {
+                return;
+            }
+            long before = context.bytes;
+            add(context, user);
+            add(context, assistant);
+            totalBytes += context.bytes - before;
+            enforceMemoryCap();
+        }
+    }
+
+    public synchronized int size() {
+        return contexts.size();
+    }
+
+    public synchronized long estimatedBytes() {
+        return totalBytes;
+    }
+
+    Turn userTurn(String text) {
+        return turn("user", text);
+    }
+
+    // The model only ever answers in JSON, so show it its own earlier replies the same way
+    Turn assistantTurn(String reply) {
+        try {
+            return turn("assistant", objectMapper.writeValueAsString(Map.of("reply", reply)));
+        } catch (JsonProcessingException e) {
+            return turn("assistant", reply);
+        }
+    }
+
+    private static Turn turn(String role, String content) {
+        // ~4 characters per token is close enough for English and errs on the safe side for budgeting
+        return new Turn(role, content, content.length() / 4 + MESSAGE_OVERHEAD_TOKENS);
+    }
+
+    private List<Turn> loadFromHistory(String userId) {
+        try {
+            chatMessageWriter.flush(); // the previous turns may still be in the write-behind buffer
+        } catch (RuntimeException e) {
+            System.err.println("--- CONVERSATION MEMORY: flush before seeding failed: " + e.getMessage());
+        }
+        List<ChatMessage> newestFirst = chatMessageRepository.findPage(userId, Limit.of(maxTurns));
+        List<Turn> turns = new ArrayList<>(newestFirst.size());
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            ChatMessage m = newestFirst.get(i);
+            if (m.getContent() == null || m.getContent().startsWith(AiService.ERROR_REPLY_PREFIX)) {
+                continue;
+            }
+            turns.add(m.isUser() ? userTurn(m.getContent()) : assistantTurn(m.getContent()));
+        }
+        return turns;
+    }
+
+    // Ring buffer: once full, every new turn pushes out the oldest one
+    private void add(Context context, Turn turn) {
+        if (context.turns.size() == maxTurns) {
+            context.bytes -= bytesOf(context.turns.removeFirst());
+        }
+        context.turns.addLast(turn);
+        context.bytes += bytesOf(turn);
+        context.lastUsed = System.nanoTime();
+    }
+
+    private void evictIdle() {
+        long now = System.nanoTime();
+        Iterator<Context> it = contexts.values().iterator();
+        while (it.hasNext()) {
+            Context eldest = it.next();
+            if (now - eldest.lastUsed <= idleNanos) {
+                break; // everything after this one was used more recently
+            }
+            it.remove();
+            totalBytes -= eldest.bytes;
+            metrics.contextEvicted("idle");
+        }
+    }
+
+    private void enforceMemoryCap() {
+        Iterator<Context> it = contexts.values().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Context eldest = it.next();
+            it.remove();
+            totalBytes -= eldest.bytes;
+            metrics.contextEvicted("memory");
+        }
+    }
+
+    private static long bytesOf(Turn turn) {
+        return TURN_OVERHEAD_BYTES + 2L * turn.content().length();
+    }
+
+    private static final class Context {
+        private final ArrayDeque<Turn> turns = new ArrayDeque<>();
+        private long bytes;
+        private long lastUsed = System.nanoTime();
+
+        private Context(String userId) {
+            this.bytes = CONTEXT_OVERHEAD_BYTES + 2L * userId.length();
+        }
+
+        // Newest turns that fit the budget, returned oldest first
+        private List<Turn> trimmed(int tokenBudget) {
+            lastUsed = System.nanoTime();
+            List<Turn> kept = new ArrayList<>(turns.size());
+            int tokens = 0;
+            Iterator<Turn> newestFirst = turns.descendingIterator();
+            while (newestFirst.hasNext()) {
+                Turn turn = newestFirst.next();
+                tokens += turn.tokens();
+                if (tokens > tokenBudget) {
+                    break;
+                }
+                kept.add(turn);
+            }
+            Collections.reverse(kept);
+            return kept;
+        }
+    }
+}
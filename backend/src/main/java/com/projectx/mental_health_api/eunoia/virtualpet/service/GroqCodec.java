@@ -0,0 +1,188 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.projectx.mental_health_api.eunoia.virtualpet.model.AiResponse;
+
+/**
+ * Request/response encoding for the Groq chat-completions API, without the tree model.
+ *
+ * Requests: everything up to and including the system message never changes, so it is
+ * encoded to UTF-8 once; a request is that prefix, the conversation turns and the user
+ * message escaped straight into a byte buffer, and a fixed suffix.
+ *
+ * Responses: a streaming JsonParser walks to choices[0].message.content (or .delta.content
+ * for stream chunks) and skips everything else without building nodes. For a complete reply
+ * the model's own JSON is bound to AiResponse straight from the parser's character buffer,
+ * starting at its first '{' - no content String, no substring, and anything after the object
+ * (closing ``` fences, prose) is never looked at.
+ */
+public final class GroqCodec {
+
+    private static final JsonStringEncoder ESCAPER = JsonStringEncoder.getInstance();
+    private static final byte[] USER_ROLE = bytes(",{\"role\":\"user\",\"content\":\"");
+    private static final byte[] ASSISTANT_ROLE = bytes(",{\"role\":\"assistant\",\"content\":\"");
+    private static final byte[] MESSAGE_END = bytes("\"}");
+
+    private final JsonFactory jsonFactory;
+    private final ObjectReader replyReader;
+
+    // {"model":..,"temperature":..,"messages":[{system}   ...turns...   ],"stream":false}
+    private final byte[] prefix;
+    private final byte[] blockingSuffix = bytes("],\"stream\":false}");
+    private final byte[] streamingSuffix = bytes("],\"stream\":true}");
+
+    public GroqCodec(ObjectMapper objectMapper, String model, String systemPrompt, double temperature) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.replyReader = objectMapper.readerFor(AiResponse.class);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(systemPrompt.length() + 128);
+        try (JsonGenerator g = jsonFactory.createGenerator(out)) {
+            g.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            g.writeStartObject();
+            g.writeStringField("model", model);
+            g.writeNumberField("temperature", temperature);
+            g.writeArrayFieldStart("messages");
+            g.writeStartObject();
+            g.writeStringField("role", "system");
+            g.writeStringField("content", systemPrompt);
+            g.writeEndObject();
+            // the messages array and the request object stay open; encode() continues from here
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.prefix = out.toByteArray();
+    }
+
+    /** The full request body as UTF-8 JSON. */
+    public byte[] encode(List<ConversationMemory.Turn> history, String userMessage, boolean stream) {
+        byte[] suffix = stream ? streamingSuffix : blockingSuffix;
+
+        // Escape first so the body can be allocated at its exact size and the prefix copied only once
+        byte[][] parts = new byte[(history.size() + 1) * 3][];
+        int p = 0;
+        for (ConversationMemory.Turn turn : history) {
+            parts[p++] = "user".equals(turn.role()) ? USER_ROLE : ASSISTANT_ROLE;
+            parts[p++] = ESCAPER.quoteAsUTF8(turn.content());
+            parts[p++] = MESSAGE_END;
+        }
+        parts[p++] = USER_ROLE;
+        parts[p++] = ESCAPER.quoteAsUTF8(userMessage);
+        parts[p] = MESSAGE_END;
+
+        int size = prefix.length + suffix.length;
+        for (byte[] part : parts) {
+            size += part.length;
+        }
+        byte[] body = new byte[size];
+        int at = append(body, 0, prefix);
+        for (byte[] part : parts) {
+            at = append(body, at, part);
+        }
+        append(body, at, suffix);
+        return body;
+    }
+
+    /** Reads a (non-streamed) completion and binds choices[0].message.content as AiResponse. */
+    public AiResponse readReply(InputStream body) throws IOException {
+        try (JsonParser p = jsonFactory.createParser(body)) {
+            if (!toChoiceContent(p, "message")) {
+                throw new IOException("Groq response has no choices[0].message.content");
+            }
+            char[] chars = p.getTextCharacters();
+            int offset = p.getTextOffset();
+            int length = p.getTextLength();
+            int start = 0;
+            while (start < length && chars[offset + start] != '{') {
+                start++;
+            }
+            if (start == length) {
+                start = 0; // no object at all; let the binder report what it got
+            }
+            try (JsonParser reply = jsonFactory.createParser(chars, offset + start, length - start)) {
+                return replyReader.readValue(reply);
+            }
+        }
+    }
+
+    /** choices[0].delta.content of one streamed chunk ("data: {...}"); null if the chunk has none. */
+    public String readDelta(String chunk) throws IOException {
+        try (JsonParser p = jsonFactory.createParser(chunk)) {
+            return toChoiceContent(p, "delta") ? p.getText() : null;
+        }
+    }
+
+    /** Index of the model's JSON object inside the content (its first '{'), or 0 if there is none. */
+    public static int replyStart(String content) {
+        int start = content.indexOf('{');
+        return start == -1 ? 0 : start;
+    }
+
+    /** Binds a streamed reply's JSON starting at {@code start}; trailing text after the object is ignored. */
+    public AiResponse bindReply(String content, int start) throws IOException {
+        Reader reader = new StringReader(content);
+        reader.skip(start);
+        return replyReader.readValue(reader);
+    }
+
+    // Walks {"choices":[{"<container>":{"content":"..."}}]}, skipping every other value unread,
+    // and leaves the parser on the content string; false if there is no such string
+    private static boolean toChoiceContent(JsonParser p, String container) throws IOException {
+        if (p.nextToken() != JsonToken.START_OBJECT) {
+            return false;
+        }
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            if (!"choices".equals(field) || value != JsonToken.START_ARRAY) {
+                p.skipChildren();
+                continue;
+            }
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String choiceField = p.currentName();
+                JsonToken choiceValue = p.nextToken();
+                if (!container.equals(choiceField) || choiceValue != JsonToken.START_OBJECT) {
+                    p.skipChildren();
+                    continue;
+                }
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = p.currentName();
+                    JsonToken token = p.nextToken();
+                    if ("content".equals(name)) {
+                        return token == JsonToken.VALUE_STRING;
+                    }
+                    p.skipChildren();
+                }
+                return false;
+            }
+            return false; // only the first choice is used
+        }
+        return false;
+    }
+
+    private static int append(byte[] target, int at, byte[] part) {
+        System.arraycopy(part, 0, target, at, part.length);
+        return at + part.length;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,354 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Keeps a slow or failing Groq from holding chat requests hostage.
+ *
+ * Timeouts  - each attempt gets {@code p99 x multiplier} of the recently observed latencies,
+ *             clamped to [timeout.min, timeout.max]. Until enough calls have been seen it is
+ *             timeout.max. Timed-out attempts count as a sample at the timeout, so the limit
+ *             grows again when the provider is slow across the board.
+ * Hedging   - if the first attempt hasn't answered after the p95 latency, a second identical
+ *             request is sent and whichever answers first wins; the other is cancelled.
+ *             So a call waits at most hedge delay + timeout.
+ * Breaker   - timeouts, I/O errors and 5xx count as provider failures (CircuitBreaker);
+ *             while it is open calls fail immediately with {@link GroqUnavailableException}
+ *             and AiService answers from OfflineResponder instead of waiting.
+ * Quota     - every attempt is admitted by GroqScheduler first: the call itself as INTERACTIVE,
+ *             a hedge as BACKGROUND. A 429 is not a provider failure; it pauses the scheduler.
+ *
+ * Errors on our side (other 4xx, a reply we can't parse) are passed through unchanged and
+ * don't count against the provider.
+ */
+@Component
+public class GroqResilience {
+
+    @Value("${ai.resilience.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.resilience.timeout.min:2s}")
+    private Duration minTimeout;
+
+    @Value("${ai.resilience.timeout.max:20s}")
+    private Duration maxTimeout;
+
+    @Value("${ai.resilience.timeout.multiplier:2.0}")
+    private double timeoutMultiplier;
+
+    @Value("${ai.resilience.hedge.enabled:true}")
+    private boolean hedgeEnabled;
+
+    @Value("${ai.resilience.hedge.min-delay:300ms}")
+    private Duration minHedgeDelay;
+
+    // How many recent latencies the percentiles are computed from, and how many we need first
+    @Value("${ai.resilience.latency.window:200}")
+    private int latencyWindow;
+
+    @Value("${ai.resilience.latency.min-samples:20}")
+    private int minSamples;
+
+    @Value("${ai.resilience.breaker.window:20}")
+    private int breakerWindow;
+
+    @Value("${ai.resilience.breaker.min-calls:10}")
+    private int breakerMinCalls;
+
+    @Value("${ai.resilience.breaker.failure-rate:50}")
+    private double breakerFailureRate;
+
+    @Value("${ai.resilience.breaker.open-duration:30s}")
+    private Duration breakerOpenDuration;
+
+    @Autowired
+    @Qualifier("llmExecutor")
+    private ExecutorService llmExecutor;
+
+    @Autowired
+    private ChatMetrics metrics;
+
+    @Autowired
+    private GroqScheduler scheduler;
+
+    private CircuitBreaker breaker;
+    private LatencyWindow latencies;
+
+    /** One request to Groq; {@code hedge} is true for the second, hedged attempt. */
+    @FunctionalInterface
+    public interface Attempt<T> {
+        T run(boolean hedge) throws Exception;
+    }
+
+    /** Groq can't be used right now (circuit open, timed out or failing); answer offline. */
+    public static class GroqUnavailableException extends RuntimeException {
+        private final String reason;
+
+        public GroqUnavailableException(String reason, Throwable cause) {
+            super("Groq unavailable: " + reason, cause);
+            this.reason = reason;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        breaker = new CircuitBreaker(breakerWindow, breakerMinCalls, breakerFailureRate, breakerOpenDuration);
+        latencies = new LatencyWindow(latencyWindow);
+        metrics.resilienceGauges(this, r -> r.currentTimeout().toMillis(),
+                r -> Math.max(0, r.currentHedgeDelay().toMillis()), r -> r.breaker.state().ordinal());
+        System.out.println("🛡️ Groq resilience: " + (enabled ? "ON" : "OFF") + " (timeout " + minTimeout.toMillis()
+                + "-" + maxTimeout.toMillis() + " ms, hedging " + (hedgeEnabled ? "ON" : "OFF") + ")");
+    }
+
+    /**
+     * Runs a blocking Groq call of about {@code tokens} tokens with the adaptive timeout,
+     * hedging, the breaker and the quota scheduler.
+     *
+     * @throws GroqUnavailableException when the breaker is open, the call was throttled,
+     *                                  or the provider failed
+     */
+    public <T> T call(int tokens, Attempt<T> attempt) throws Exception {
+        if (!enabled) {
+            scheduler.acquire(GroqScheduler.Priority.INTERACTIVE, tokens);
+            return attempt.run(false);
+        }
+        return guarded(() -> hedged(tokens, attempt));
+    }
+
+    /**
+     * Breaker only, for streamed replies: a stream can't be hedged or cut off by a total
+     * timeout, stalls are bounded by the socket read timeout instead.
+     */
+    public <T> T callStreaming(int tokens, Attempt<T> attempt) throws Exception {
+        if (!enabled) {
+            scheduler.acquire(GroqScheduler.Priority.INTERACTIVE, tokens);
+            return attempt.run(false);
+        }
+        return guarded(() -> {
+            scheduler.acquire(GroqScheduler.Priority.INTERACTIVE, tokens);
+            return attempt.run(false);
+        });
+    }
+
+    /**
+     * Longest a {@link #call} can take: the quota wait, then hedge delay + timeout (each at most
+     * timeout.max). Whoever waits on someone else's call (RequestCoalescer) gives up after this.
+     */
+    public Duration callDeadline() {
+        return scheduler.maxWait().plus(maxTimeout.multipliedBy(2));
+    }
+
+    /** Socket-level ceiling for any single read, so abandoned or stalled requests always end. */
+    public Duration readTimeout() {
+        return maxTimeout;
+    }
+
+    public CircuitBreaker.State breakerState() {
+        return breaker.state();
+    }
+
+    private <T> T guarded(Callable<T> call) throws Exception {
+        if (!breaker.tryAcquire()) {
+            throw new GroqUnavailableException("open", null);
+        }
+        boolean reported = false;
+        try {
+            T result = call.call();
+            breaker.onSuccess();
+            reported = true;
+            return result;
+        } catch (GroqUnavailableException e) {
+            // Throttled before anything was sent; says nothing about the provider
+            breaker.release();
+            reported = true;
+            throw e;
+        } catch (Exception e) {
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof HttpStatusCodeException http && http.getStatusCode().value() == 429) {
+                scheduler.onRateLimited(http.getResponseHeaders());
+                breaker.release();
+                reported = true;
+                throw new GroqUnavailableException("rate-limited", cause);
+            }
+            if (isProviderFailure(cause)) {
+                breaker.onFailure();
+                reported = true;
+                throw new GroqUnavailableException(cause instanceof TimeoutException ? "timeout" : "failing", cause);
+            }
+            // Groq answered; the problem is on our side
+            breaker.onSuccess();
+            reported = true;
+            throw cause instanceof Exception ex ? ex : e;
+        } finally {
+            if (!reported) {
+                breaker.onFailure();
+            }
+        }
+    }
+
+    private <T> T hedged(int tokens, Attempt<T> attempt) throws Exception {
+        long[] recent = latencies.sortedSnapshot();
+        long timeoutNanos = timeoutFor(recent).toNanos();
+        long hedgeDelayNanos = hedgeEnabled ? hedgeDelayFor(recent).toNanos() : -1;
+
+        // Queueing for quota happens before the clock starts, so it never counts as Groq latency
+        scheduler.acquire(GroqScheduler.Priority.INTERACTIVE, tokens);
+
+        CompletionService<Timed<T>> attempts = new ExecutorCompletionService<>(llmExecutor);
+        List<Future<Timed<T>>> started = new ArrayList<>(2);
+        long start = System.nanoTime();
+        started.add(attempts.submit(() -> timed(attempt, false)));
+        long deadline = start + timeoutNanos;
+        boolean hedged = false;
+        int pending = 1;
+        Exception lastError = null;
+
+        try {
+            while (pending > 0) {
+                long waitUntil = (!hedged && hedgeDelayNanos >= 0) ? Math.min(deadline, start + hedgeDelayNanos)
+                        : deadline;
+                Future<Timed<T>> done = attempts.poll(waitUntil - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    if (System.nanoTime() - deadline >= 0) {
+                        break;
+                    }
+                    // First attempt is slower than p95: race a second one against it,
+                    // as background work so it never takes quota from someone's first request
+                    hedged = true;
+                    started.add(attempts.submit(() -> {
+                        scheduler.acquire(GroqScheduler.Priority.BACKGROUND, tokens);
+                        return timed(attempt, true);
+                    }));
+                    pending++;
+                    deadline = System.nanoTime() + timeoutNanos;
+                    continue;
+                }
+                pending--;
+                try {
+                    Timed<T> result = done.get();
+                    latencies.record(result.nanos());
+                    if (hedged) {
+                        metrics.hedge(result.hedge() ? "won" : "lost");
+                    }
+                    return result.value();
+                } catch (ExecutionException e) {
+                    lastError = e.getCause() instanceof Exception ex ? ex : e;
+                }
+            }
+        } finally {
+            for (Future<Timed<T>> f : started) {
+                f.cancel(true); // interrupts the virtual thread, which closes its socket
+            }
+        }
+
+        if (pending == 0 && lastError != null) {
+            throw lastError;
+        }
+        latencies.record(timeoutNanos);
+        metrics.llmTimeout();
+        throw new TimeoutException("Groq did not answer within " + TimeUnit.NANOSECONDS.toMillis(timeoutNanos)
+                + " ms" + (hedged ? " (hedged)" : ""));
+    }
+
+    private static <T> Timed<T> timed(Attempt<T> attempt, boolean hedge) throws Exception {
+        long start = System.nanoTime();
+        T value = attempt.run(hedge);
+        return new Timed<>(value, System.nanoTime() - start, hedge);
+    }
+
+    private record Timed<T>(T value, long nanos, boolean hedge) {
+    }
+
+    Duration currentTimeout() {
+        return timeoutFor(latencies.sortedSnapshot());
+    }
+
+    Duration currentHedgeDelay() {
+        return hedgeDelayFor(latencies.sortedSnapshot());
+    }
+
+    private Duration timeoutFor(long[] sorted) {
+        if (sorted.length < minSamples) {
+            return maxTimeout;
+        }
+        long nanos = (long) (percentile(sorted, 0.99) * timeoutMultiplier);
+        return Duration.ofNanos(Math.max(minTimeout.toNanos(), Math.min(maxTimeout.toNanos(), nanos)));
+    }
+
+    // Negative = don't hedge (not enough samples yet)
+    private Duration hedgeDelayFor(long[] sorted) {
+        if (sorted.length < minSamples) {
+            return Duration.ofNanos(-1);
+        }
+        return Duration.ofNanos(Math.max(minHedgeDelay.toNanos(), percentile(sorted, 0.95)));
+    }
+
+    private static long percentile(long[] sorted, double q) {
+        int index = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    static boolean isProviderFailure(Throwable e) {
+        if (e instanceof TimeoutException) {
+            return true;
+        }
+        if (e instanceof HttpStatusCodeException http) {
+            return http.getStatusCode().is5xxServerError();
+        }
+        if (e instanceof ResourceAccessException) {
+            // RestTemplate also reports our own reply parsing as an I/O error
+            return !(e.getCause() instanceof JsonProcessingException);
+        }
+        return e instanceof IOException && !(e instanceof JsonProcessingException);
+    }
+
+    // Ring of the latest latencies (nanos)
+    private static final class LatencyWindow {
+        private final long[] samples;
+        private int next;
+        private int count;
+
+        private LatencyWindow(int size) {
+            this.samples = new long[Math.max(1, size)];
+        }
+
+        private synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        private synchronized long[] sortedSnapshot() {
+            long[] copy = Arrays.copyOf(samples, count);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import java.time.Duration;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * Outbound admission control for Groq, so bursts queue up briefly instead of ending in 429s.
+ *
+ * Two token buckets, refilled continuously: one for requests per minute and one for
+ * (estimated) tokens per minute. A call takes one request and its token estimate before it
+ * is sent. Callers that can't go yet wait in a bounded priority queue - INTERACTIVE chat
+ * ahead of BACKGROUND work (hedged duplicates), first come first served within a priority -
+ * and give up with {@link GroqResilience.GroqUnavailableException} ("throttled") when the
+ * queue is full or they have waited max-wait, so AiService answers offline.
+ *
+ * Groq's x-ratelimit-* response headers keep the buckets honest: the token bucket takes
+ * the provider's limit and never shows more than the provider says is left, an exhausted
+ * request quota pauses sending until its reset, and a 429 pauses everything for Retry-After.
+ */
+@Component
+public class GroqScheduler {
+
+    public enum Priority {
+        INTERACTIVE, BACKGROUND
+    }
+
+    // Groq sends resets like "7.66s", "2m59.56s", "1h2m3s" or "250ms"
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    @Value("${ai.quota.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ai.quota.requests-per-minute:30}")
+    private int requestsPerMinute;
+
+    @Value("${ai.quota.tokens-per-minute:12000}")
+    private int tokensPerMinute;
+
+    @Value("${ai.quota.queue-capacity:100}")
+    private int queueCapacity;
+
+    @Value("${ai.quota.max-wait:5s}")
+    private Duration maxWait;
+
+    // Expected size of a reply, added to the prompt estimate
+    @Value("${ai.quota.reply-tokens:300}")
+    private int replyTokens;
+
+    @Autowired
+    private ChatMetrics metrics;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>();
+    private long sequence;
+
+    // Bucket state; guarded by lock
+    private double requestCapacity;
+    private double requestsAvailable;
+    private double tokenCapacity;
+    private double tokensAvailable;
+    private long lastRefill;
+    private long pausedUntil;
+
+    private record Waiter(Priority priority, long seq, int tokens) implements Comparable<Waiter> {
+        @Override
+        public int compareTo(Waiter other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(seq, other.seq);
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        requestCapacity = requestsPerMinute;
+        requestsAvailable = requestsPerMinute;
+        tokenCapacity = tokensPerMinute;
+        tokensAvailable = tokensPerMinute;
+        lastRefill = System.nanoTime();
+        pausedUntil = lastRefill;
+        metrics.schedulerGauges(this, GroqScheduler::queueDepth);
+        System.out.println("🚦 Groq scheduler: " + (enabled ? "ON" : "OFF") + " (" + requestsPerMinute
+                + " req/min, " + tokensPerMinute + " tokens/min, queue " + queueCapacity + ")");
+    }
+
+    /** Longest acquire() blocks before giving up with "throttled". */
+    public Duration maxWait() {
+        return maxWait;
+    }
+
+    /**
+     * Blocks until the call may be sent, then takes one request and {@code tokens} from the buckets.
+     *
+     * @throws GroqResilience.GroqUnavailableException ("throttled") when the queue is full or
+     *                                                 the wait would exceed max-wait
+     */
+    public void acquire(Priority priority, int tokens) throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + maxWait.toNanos();
+        lock.lock();
+        try {
+            if (queue.size() >= queueCapacity) {
+                metrics.throttled("queue-full");
+                throw new GroqResilience.GroqUnavailableException("throttled", null);
+            }
+            // A single call bigger than the whole bucket would never fit; let it take everything
+            Waiter me = new Waiter(priority, sequence++, (int) Math.min(tokens, tokenCapacity));
+            queue.add(me);
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    refill(now);
+                    long readyIn = queue.peek() == me ? nanosUntilReady(me, now) : -1;
+                    if (readyIn == 0) {
+                        queue.poll();
+                        requestsAvailable -= 1;
+                        tokensAvailable -= Math.min(me.tokens(), tokenCapacity);
+                        changed.signalAll(); // the next waiter may be able to go too
+                        metrics.queueWait(priority.name().toLowerCase(), System.nanoTime() - start);
+                        return;
+                    }
+                    long remaining = deadline - now;
+                    if (remaining <= 0 || (readyIn > 0 && readyIn > remaining && queue.peek() == me)) {
+                        metrics.throttled("wait");
+                        throw new GroqResilience.GroqUnavailableException("throttled", null);
+                    }
+                    // Not at the head: wait for a signal; at the head: sleep until the buckets have refilled
+                    changed.awaitNanos(readyIn > 0 ? Math.min(readyIn, remaining) : remaining);
+                }
+            } finally {
+                if (queue.remove(me)) {
+                    changed.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Syncs the buckets with the x-ratelimit-* headers of any Groq response. */
+    public void onResponse(HttpHeaders headers) {
+        if (!enabled || headers == null) {
+            return;
+        }
+        Double tokenLimit = number(headers.getFirst("x-ratelimit-limit-tokens"));
+        Double tokensLeft = number(headers.getFirst("x-ratelimit-remaining-tokens"));
+        Double requestsLeft = number(headers.getFirst("x-ratelimit-remaining-requests"));
+        Duration requestReset = duration(headers.getFirst("x-ratelimit-reset-requests"));
+
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            refill(now);
+            if (tokenLimit != null && tokenLimit > 0) {
+                tokenCapacity = tokenLimit;
+                tokensAvailable = Math.min(tokensAvailable, tokenCapacity);
+            }
+            if (tokensLeft != null) {
+                tokensAvailable = Math.min(tokensAvailable, tokensLeft);
+            }
+            if (requestsLeft != null && requestsLeft < 1 && requestReset != null) {
+                pauseUntil(now + requestReset.toNanos());
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** A 429: stop sending until Retry-After (or the token reset) has passed. */
+    public void onRateLimited(HttpHeaders headers) {
+        if (!enabled) {
+            return;
+        }
+        metrics.rateLimited();
+        Duration wait = null;
+        if (headers != null) {
+            Double retryAfter = number(headers.getFirst(HttpHeaders.RETRY_AFTER));
+            wait = retryAfter != null ? Duration.ofMillis((long) (retryAfter * 1000))
+                    : duration(headers.getFirst("x-ratelimit-reset-tokens"));
+        }
+        if (wait == null) {
+            wait = Duration.ofSeconds(1);
+        }
+        lock.lock();
+        try {
+            pauseUntil(System.nanoTime() + wait.toNanos());
+            tokensAvailable = Math.min(tokensAvailable, 0);
+        } finally {
+            lock.unlock();
+        }
+        onResponse(headers);
+    }
+
+    /** Rough token cost of a request: prompt bytes / 4 plus the expected reply. */
+    public int estimateTokens(int requestBytes) {
+        return requestBytes / 4 + replyTokens;
+    }
+
+    public int queueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefill;
+        if (elapsed <= 0) {
+            return;
+        }
+        requestsAvailable = Math.min(requestCapacity, requestsAvailable + elapsed * requestCapacity / MINUTE_NANOS);
+        tokensAvailable = Math.min(tokenCapacity, tokensAvailable + elapsed * tokenCapacity / MINUTE_NANOS);
+        lastRefill = now;
+    }
+
+    // 0 = can go now, otherwise how long until both buckets (and any pause) allow it
+    private long nanosUntilReady(Waiter w, long now) {
+        long wait = Math.max(0, pausedUntil - now);
+        if (requestsAvailable < 1) {
+            wait = Math.max(wait, (long) ((1 - requestsAvailable) * MINUTE_NANOS / requestCapacity) + 1);
+        }
+        double tokens = Math.min(w.tokens(), tokenCapacity); // the provider limit may have shrunk meanwhile
+        if (tokensAvailable < tokens) {
+            wait = Math.max(wait, (long) ((tokens - tokensAvailable) * MINUTE_NANOS / tokenCapacity) + 1);
+        }
+        return wait;
+    }
+
+    private void pauseUntil(long until) {
+        if (until - pausedUntil > 0) {
+            pausedUntil = until;
+        }
+    }
+
+    private static Double number(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static Duration duration(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        Matcher m = DURATION_PART.matcher(value.trim());
+        double millis = 0;
+        boolean found = false;
+        while (m.find()) {
+            found = true;
+            double amount = Double.parseDouble(m.group(1));
+            millis += switch (m.group(2)) {
+                case "h" -> amount * 3_600_000;
+                case "m" -> amount * 60_000;
+                case "s" -> amount * 1_000;
+                default -> amount;
+            };
+        }
+        return found ? Duration.ofMillis((long) Math.ceil(millis)) : null;
+    }
+}
@@ -0,0 +1,206 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import com.projectx.mental_health_api.eunoia.virtualpet.service.SentimentService.SentimentResult;
+
+/**
+ * Local, lexicon-based sentiment scorer (selected with sentiment.engine=lexicon).
+ *
+ * Words are never materialised as Strings: the tokenizer walks the text once,
+ * folding each word into a 64-bit FNV-1a hash that is looked up in an
+ * open-addressing table of primitives built from the lexicon resource.
+ * Handles simple negation ("not happy") and intensifiers ("very sad").
+ */
+@Component
+public class LexiconSentimentAnalyzer {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final byte KIND_WORD = 1;
+    private static final byte KIND_NEGATOR = 2;
+    private static final byte KIND_INTENSIFIER = 3;
+
+    // a negator flips the next few sentiment words ("i'm not really that happy")
+    private static final int NEGATION_SCOPE = 3;
+    private static final float NEGATION_FACTOR = -0.75f;
+
+    // squashes the raw valence sum into (-1, 1); same idea as VADER's compound score
+    private static final double NORMALIZATION_ALPHA = 15.0;
+    private static final double NEUTRAL_THRESHOLD = 0.05;
+
+    private final long[] keys;
+    private final float[] values;
+    private final float[] anger;
+    private final byte[] kinds;
+    private final int mask;
+
+    public LexiconSentimentAnalyzer(
+            @Value("${sentiment.lexicon:classpath:sentiment/lexicon.tsv}") Resource lexicon) {
+        int capacity = 4096; // power of two, kept at most half full
+        this.keys = new long[capacity];
+        this.values = new float[capacity];
+        this.anger = new float[capacity];
+        this.kinds = new byte[capacity];
+        this.mask = capacity - 1;
+        load(lexicon);
+    }
+
+    public SentimentResult analyze(String text) {
+        if (text == null || text.isEmpty()) {
+            return new SentimentResult(0.0, "neutral", 0.0);
+        }
+
+        double valenceSum = 0;
+        double angerSum = 0;
+        int negationLeft = 0;
+        float boost = 1f;
+
+        long hash = FNV_OFFSET;
+        boolean inWord = false;
+        int length = text.length();
+
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            char folded = foldWordChar(c);
+            if (folded != 0) {
+                hash = (hash ^ folded) * FNV_PRIME;
+                inWord = true;
+                continue;
+            }
+            if (c == '\'' || c == '’') {
+                continue; // "don't" and "dont" are the same word
+            }
+            if (inWord) {
+                // --- end of a word: look it up ---
+                int slot = find(hash);
+                if (slot >= 0) {
+                    switch (kinds[slot]) {
+                        case KIND_NEGATOR -> negationLeft = NEGATION_SCOPE + 1;
+                        case KIND_INTENSIFIER -> boost = values[slot];
+                        default -> {
+                            float v = values[slot] * boost;
+                            if (negationLeft > 0) {
+                                v *= NEGATION_FACTOR;
+                            } else {
+                                angerSum += anger[slot] * boost;
+                            }
+                            valenceSum += v;
+                            boost = 1f;
+                        }
+                    }
+                }
+                if (negationLeft > 0) {
+                    negationLeft--;
+                }
+                hash = FNV_OFFSET;
+                inWord = false;
+            }
+
+            // sentence breaks end negation scope
+            if (c == '.' || c == '!' || c == '?' || c == ';') {
+                negationLeft = 0;
+                boost = 1f;
+            }
+        }
+
+        double score = valenceSum / Math.sqrt(valenceSum * valenceSum + NORMALIZATION_ALPHA);
+        double angerScore = angerSum / Math.sqrt(angerSum * angerSum + NORMALIZATION_ALPHA);
+        String type = score >= NEUTRAL_THRESHOLD ? "positive"
+                : score <= -NEUTRAL_THRESHOLD ? "negative" : "neutral";
+
+        return new SentimentResult(score, type, angerScore);
+    }
+
+    // ---------- LEXICON TABLE ----------
+
+    private int find(long hash) {
+        long key = hash == 0 ? 1 : hash;
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void put(long hash, byte kind, float value, float angerWeight) {
+        long key = hash == 0 ? 1 : hash;
+        int slot = (int) (key ^ (key >>> 32)) & mask;
+        while (keys[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        kinds[slot] = kind;
+        values[slot] = value;
+        anger[slot] = angerWeight;
+    }
+
+    // Format: "word<TAB>valence[<TAB>anger]" under [words], "word" under [negators],
+    // "word<TAB>multiplier" under [intensifiers]. '#' starts a comment.
+    private void load(Resource lexicon) {
+        int loaded = 0;
+        byte section = KIND_WORD;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(lexicon.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                switch (line) {
+                    case "[words]" -> section = KIND_WORD;
+                    case "[negators]" -> section = KIND_NEGATOR;
+                    case "[intensifiers]" -> section = KIND_INTENSIFIER;
+                    default -> {
+                        String[] cols = line.split("\t");
+                        float value = cols.length > 1 ? Float.parseFloat(cols[1]) : 0f;
+                        float angerWeight = cols.length > 2 ? Float.parseFloat(cols[2]) : 0f;
+                        if (loaded >= keys.length / 2) {
+                            throw new IllegalStateException("Sentiment lexicon is too large for the table");
+                        }
+                        put(hashWord(cols[0]), section, value, angerWeight);
+                        loaded++;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load sentiment lexicon " + lexicon, e);
+        }
+        System.out.println("🧠 Sentiment lexicon loaded: " + loaded + " entries");
+    }
+
+    private static long hashWord(String word) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < word.length(); i++) {
+            char folded = foldWordChar(word.charAt(i));
+            if (folded != 0) {
+                hash = (hash ^ folded) * FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    // Lower-cased character if it belongs to a word, 0 otherwise. ASCII is the common case.
+    private static char foldWordChar(char c) {
+        if (c < 128) {
+            if (c >= 'a' && c <= 'z' || c >= '0' && c <= '9') {
+                return c;
+            }
+            return (c >= 'A' && c <= 'Z') ? (char) (c | 0x20) : 0;
+        }
+        return Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : 0;
+    }
+}
@@ -0,0 +1,243 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.projectx.mental_health_api.eunoia.virtualpet.model.MoodWatermark;
+import com.projectx.mental_health_api.eunoia.virtualpet.repository.ChatMessageRepository;
+import com.projectx.mental_health_api.eunoia.virtualpet.repository.MoodWatermarkRepository;
+
+/**
+ * Brings every user's mood up to date in one go - nightly, and on demand via
+ * POST /api/mood/recompute - instead of waiting for the frontend to call
+ * /api/mood/analyze-batch one user at a time.
+ *
+ * Walks the distinct chat_message.user_id values in keyset pages. For each page the
+ * watermarks are loaded with one query, the users with new messages are scored in parallel
+ * on virtual threads (a semaphore caps the sentiment calls in flight, so Twinword isn't
+ * flooded), and the page's mood entries and watermarks are saved in one batched
+ * transaction (see {@link MoodTrackingService#saveAll}). Same watermark logic as a
+ * single refresh, so users without new messages cost one index lookup and no API call.
+ * A refresh scores at most max-messages-per-analysis messages, so users with a longer
+ * backlog (say after an outage) get further passes until they have caught up.
+ *
+ * Only one run at a time; progress and throughput are logged per page, exported as
+ * metrics and returned by {@link #status()}.
+ */
+@Component
+public class MoodRecomputeJob {
+
+    @Value("${mood.recompute.enabled:true}")
+    private boolean scheduleEnabled;
+
+    // Users per keyset page (and per save transaction)
+    @Value("${mood.recompute.page-size:100}")
+    private int pageSize;
+
+    // Sentiment calls in flight at once
+    @Value("${mood.recompute.concurrency:8}")
+    private int concurrency;
+
+    @Autowired
+    private ChatMessageRepository chatRepository;
+
+    @Autowired
+    private MoodWatermarkRepository watermarkRepository;
+
+    @Autowired
+    private MoodTrackingService moodTrackingService;
+
+    @Autowired
+    private ChatMessageWriter chatMessageWriter;
+
+    @Autowired
+    private ChatMetrics metrics;
+
+    @Autowired
+    @Qualifier("llmExecutor")
+    private ExecutorService llmExecutor;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Run current;
+
+    /** Snapshot of the current (or last) run. */
+    public record Status(String state, String trigger, LocalDateTime startedAt, LocalDateTime finishedAt,
+            long usersScanned, long usersUpdated, long messagesScored, long failures,
+            double elapsedSeconds, double usersPerSecond) {
+    }
+
+    // Counters of one run; written by the job and the scoring threads, read by status()
+    private static class Run {
+        final String trigger;
+        final LocalDateTime startedAt = LocalDateTime.now();
+        final long startNanos = System.nanoTime();
+        final AtomicLong usersScanned = new AtomicLong();
+        final AtomicLong usersUpdated = new AtomicLong();
+        final AtomicLong messagesScored = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        volatile String state = "running";
+        volatile LocalDateTime finishedAt;
+        volatile long endNanos;
+
+        Run(String trigger) {
+            this.trigger = trigger;
+        }
+
+        Status status() {
+            long end = finishedAt != null ? endNanos : System.nanoTime();
+            double seconds = Math.max(end - startNanos, 1) / 1e9;
+            return new Status(state, trigger, startedAt, finishedAt, usersScanned.get(), usersUpdated.get(),
+                    messagesScored.get(), failures.get(), seconds, usersScanned.get() / seconds);
+        }
+    }
+
+    // Nightly run (03:00 by default) so clinicians start the day with fresh mood data
+    @Scheduled(cron = "${mood.recompute.cron:0 0 3 * * *}")
+    public void nightly() {
+        if (scheduleEnabled && running.compareAndSet(false, true)) {
+            run(new Run("scheduled"));
+        }
+    }
+
+    /**
+     * Starts a run in the background.
+     *
+     * @return false if a run is already going
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Run run = new Run("manual");
+        current = run;
+        llmExecutor.execute(() -> run(run));
+        return true;
+    }
+
+    /** Null if the job has never run since startup. */
+    public Status status() {
+        Run run = current;
+        return run == null ? null : run.status();
+    }
+
+    private void run(Run run) {
+        current = run;
+        System.out.println("📈 Mood recompute started (" + run.trigger + ", " + concurrency + " in parallel)");
+        try {
+            // Messages still sitting in the write-behind buffer should be part of tonight's scores
+            chatMessageWriter.flush();
+
+            Semaphore permits = new Semaphore(Math.max(1, concurrency));
+            String after = "";
+            while (true) {
+                List<String> userIds = chatRepository.findUserIdsAfter(after, Limit.of(pageSize));
+                if (userIds.isEmpty()) {
+                    break;
+                }
+                after = userIds.get(userIds.size() - 1);
+                List<String> behind = processPage(run, userIds, permits, true);
+                while (!behind.isEmpty()) {
+                    behind = processPage(run, behind, permits, false);
+                }
+                run.usersScanned.addAndGet(userIds.size());
+                System.out.println("📈 Mood recompute: " + progress(run.status()));
+            }
+            run.state = "completed";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.state = "interrupted";
+        } catch (RuntimeException e) {
+            System.err.println("--- MOOD RECOMPUTE FAILED: " + e.getMessage());
+            run.state = "failed";
+        } finally {
+            run.endNanos = System.nanoTime();
+            run.finishedAt = LocalDateTime.now();
+            metrics.moodRecomputeRun(run.state, run.endNanos - run.startNanos);
+            running.set(false);
+            System.out.println("📈 Mood recompute " + run.state + ": " + progress(run.status()));
+        }
+    }
+
+    // Scores and saves one pass over the users; returns the ones that still have messages waiting.
+    // Users are counted (and metered) on their first pass only.
+    private List<String> processPage(Run run, List<String> userIds, Semaphore permits, boolean firstPass)
+            throws InterruptedException {
+        Map<String, MoodWatermark> watermarks = new HashMap<>();
+        for (MoodWatermark watermark : watermarkRepository.findAllById(userIds)) {
+            watermarks.put(watermark.getUserId(), watermark);
+        }
+
+        // Fan out; acquiring before submit keeps at most `concurrency` users being scored at once
+        List<Future<MoodTrackingService.Analysis>> futures = new ArrayList<>(userIds.size());
+        for (String userId : userIds) {
+            MoodWatermark watermark = watermarks.getOrDefault(userId, new MoodWatermark(userId));
+            permits.acquire();
+            try {
+                futures.add(llmExecutor.submit(() -> {
+                    try {
+                        return moodTrackingService.analyze(watermark);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        List<MoodTrackingService.Analysis> batch = new ArrayList<>();
+        List<String> behind = new ArrayList<>();
+        long failed = 0;
+        for (Future<MoodTrackingService.Analysis> future : futures) {
+            try {
+                MoodTrackingService.Analysis analysis = future.get();
+                if (analysis != null) {
+                    batch.add(analysis);
+                    run.messagesScored.addAndGet(analysis.messagesScored());
+                    if (!analysis.caughtUp()) {
+                        behind.add(analysis.watermark().getUserId());
+                    }
+                }
+            } catch (ExecutionException e) {
+                failed++;
+                System.err.println("--- Mood recompute: scoring failed: " + e.getCause());
+            }
+        }
+
+        int saved = moodTrackingService.saveAll(batch);
+        run.failures.addAndGet(failed);
+        metrics.moodRecomputeUsers("failed", failed);
+        if (firstPass) {
+            run.usersUpdated.addAndGet(saved);
+            metrics.moodRecomputeUsers("updated", saved);
+            metrics.moodRecomputeUsers("unchanged", userIds.size() - batch.size() - failed);
+            metrics.moodRecomputeUsers("conflict", batch.size() - saved);
+        }
+        return behind;
+    }
+
+    private static String progress(Status status) {
+        return status.usersScanned() + " users scanned, " + status.usersUpdated() + " updated, "
+                + status.messagesScored() + " messages scored, " + status.failures() + " failed in "
+                + Duration.ofMillis((long) (status.elapsedSeconds() * 1000)) + " ("
+                + String.format("%.1f", status.usersPerSecond()) + " users/s)";
+    }
+}
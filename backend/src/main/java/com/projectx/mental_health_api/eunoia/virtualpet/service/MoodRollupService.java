@@ -0,0 +1,130 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.projectx.mental_health_api.eunoia.virtualpet.model.MoodEntry;
+import com.projectx.mental_health_api.eunoia.virtualpet.model.MoodRollup;
+import com.projectx.mental_health_api.eunoia.virtualpet.repository.MoodRollupRepository;
+
+/**
+ * Daily and weekly mood rollups, kept up to date as MoodEntry rows are written so that
+ * /api/mood/trends never has to scan mood_entry: a three-month daily chart is ~90 rows,
+ * a weekly one ~13.
+ *
+ * {@link #record} must run inside the transaction that saves the entries, so an entry
+ * and its buckets are committed (or rolled back) together.
+ */
+@Service
+public class MoodRollupService {
+
+    // Lock order for the upserts: two transactions touching the same buckets can't deadlock
+    private static final Comparator<MoodRollup.Key> KEY_ORDER = Comparator.comparing(MoodRollup.Key::getUserId)
+            .thenComparing(MoodRollup.Key::getBucket)
+            .thenComparing(MoodRollup.Key::getBucketStart);
+
+    @Autowired
+    private MoodRollupRepository rollupRepository;
+
+    // One bucket as the API returns it
+    public record MoodTrend(LocalDate bucketStart, long entries, Stat sentiment, Stat joy, Stat sadness,
+            Stat anger) {
+    }
+
+    public record Stat(double mean, double min, double max) {
+    }
+
+    /** Folds freshly saved entries into their day and week buckets (one upsert per touched bucket). */
+    public void record(Collection<MoodEntry> entries) {
+        Map<MoodRollup.Key, MoodRollup> deltas = new TreeMap<>(KEY_ORDER);
+        for (MoodEntry entry : entries) {
+            if (entry.getUserId() == null || entry.getTimestamp() == null) {
+                continue;
+            }
+            LocalDate day = entry.getTimestamp().toLocalDate();
+            add(deltas, entry, MoodRollup.DAY, day);
+            add(deltas, entry, MoodRollup.WEEK, bucketStart(MoodRollup.WEEK, day));
+        }
+        for (MoodRollup delta : deltas.values()) {
+            rollupRepository.upsert(delta);
+        }
+    }
+
+    /** Buckets of one user between the buckets containing {@code from} and {@code to}, oldest first. */
+    public List<MoodTrend> trends(String userId, String bucket, LocalDate from, LocalDate to) {
+        return rollupRepository.findByUserIdAndBucketAndBucketStartBetweenOrderByBucketStartAsc(userId, bucket,
+                bucketStart(bucket, from), to)
+                .stream()
+                .map(MoodRollupService::toTrend)
+                .toList();
+    }
+
+    public static boolean isBucket(String bucket) {
+        return MoodRollup.DAY.equals(bucket) || MoodRollup.WEEK.equals(bucket);
+    }
+
+    // Weeks start on Monday, like date_trunc('week') in the V14 backfill
+    public static LocalDate bucketStart(String bucket, LocalDate day) {
+        return MoodRollup.WEEK.equals(bucket) ? day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)) : day;
+    }
+
+    private static void add(Map<MoodRollup.Key, MoodRollup> deltas, MoodEntry entry, String bucket,
+            LocalDate start) {
+        MoodRollup.Key key = new MoodRollup.Key(entry.getUserId(), bucket, start);
+        MoodRollup r = deltas.get(key);
+        if (r == null) {
+            r = new MoodRollup();
+            r.setUserId(key.getUserId());
+            r.setBucket(bucket);
+            r.setBucketStart(start);
+            r.setSentimentMin(Double.POSITIVE_INFINITY);
+            r.setSentimentMax(Double.NEGATIVE_INFINITY);
+            r.setJoyMin(Double.POSITIVE_INFINITY);
+            r.setJoyMax(Double.NEGATIVE_INFINITY);
+            r.setSadnessMin(Double.POSITIVE_INFINITY);
+            r.setSadnessMax(Double.NEGATIVE_INFINITY);
+            r.setAngerMin(Double.POSITIVE_INFINITY);
+            r.setAngerMax(Double.NEGATIVE_INFINITY);
+            deltas.put(key, r);
+        }
+        r.setEntries(r.getEntries() + 1);
+
+        double sentiment = entry.getOverallSentiment();
+        r.setSentimentSum(r.getSentimentSum() + sentiment);
+        r.setSentimentMin(Math.min(r.getSentimentMin(), sentiment));
+        r.setSentimentMax(Math.max(r.getSentimentMax(), sentiment));
+
+        double joy = entry.getJoyScore();
+        r.setJoySum(r.getJoySum() + joy);
+        r.setJoyMin(Math.min(r.getJoyMin(), joy));
+        r.setJoyMax(Math.max(r.getJoyMax(), joy));
+
+        double sadness = entry.getSadnessScore();
+        r.setSadnessSum(r.getSadnessSum() + sadness);
+        r.setSadnessMin(Math.min(r.getSadnessMin(), sadness));
+        r.setSadnessMax(Math.max(r.getSadnessMax(), sadness));
+
+        double anger = entry.getAngerScore();
+        r.setAngerSum(r.getAngerSum() + anger);
+        r.setAngerMin(Math.min(r.getAngerMin(), anger));
+        r.setAngerMax(Math.max(r.getAngerMax(), anger));
+    }
+
+    private static MoodTrend toTrend(MoodRollup r) {
+        double n = Math.max(r.getEntries(), 1);
+        return new MoodTrend(r.getBucketStart(), r.getEntries(),
+                new Stat(r.getSentimentSum() / n, r.getSentimentMin(), r.getSentimentMax()),
+                new Stat(r.getJoySum() / n, r.getJoyMin(), r.getJoyMax()),
+                new Stat(r.getSadnessSum() / n, r.getSadnessMin(), r.getSadnessMax()),
+                new Stat(r.getAngerSum() / n, r.getAngerMin(), r.getAngerMax()));
+    }
+}
@@ -0,0 +1,283 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.projectx.mental_health_api.eunoia.virtualpet.model.ChatMessage;
+import com.projectx.mental_health_api.eunoia.virtualpet.model.MoodEntry;
+import com.projectx.mental_health_api.eunoia.virtualpet.model.MoodWatermark;
+import com.projectx.mental_health_api.eunoia.virtualpet.repository.ChatMessageRepository;
+import com.projectx.mental_health_api.eunoia.virtualpet.repository.MoodEntryRepository;
+import com.projectx.mental_health_api.eunoia.virtualpet.repository.MoodWatermarkRepository;
+
+/**
+ * Incremental mood tracking. Each user has a {@link MoodWatermark}: the last chat
+ * message already analysed and an exponentially decayed running score. A refresh
+ * only scores the user's messages newer than the watermark and is a cheap no-op
+ * (no sentiment call, no new mood_entry row) when nothing has arrived since.
+ *
+ * Messages are read in (timestamp, id) order and only once they are older than
+ * chat.watermark-lag. {@link ChatMessageWriter} timestamps a message right before its
+ * insert, so the lag only has to cover one insert transaction for a message that commits
+ * late to still land ahead of the watermark. The last few seconds of chat count towards
+ * the next refresh instead.
+ *
+ * A refresh scores at most max-messages-per-analysis messages, the oldest ones after the
+ * watermark, and moves the watermark to the last of them. A longer backlog is picked up
+ * by the following refreshes; the bulk {@link MoodRecomputeJob} keeps going until every
+ * user has caught up.
+ */
+@Service
+public class MoodTrackingService {
+
+    @Autowired
+    private ChatMessageRepository chatRepository;
+
+    @Autowired
+    private MoodEntryRepository moodRepository;
+
+    @Autowired
+    private MoodWatermarkRepository watermarkRepository;
+
+    @Autowired
+    private SentimentService sentimentService;
+
+    @Autowired
+    private ChatMessageWriter chatMessageWriter;
+
+    @Autowired
+    private MoodRollupService rollupService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Weight of each new message in the running score (0..1); higher = reacts faster
+    @Value("${mood.decay-alpha:0.3}")
+    private double decayAlpha;
+
+    // Cap on messages scored in one refresh; a user's first refresh looks at this many recent messages,
+    // later ones at this many of the oldest not yet scored
+    @Value("${mood.max-messages-per-analysis:20}")
+    private int maxMessages;
+
+    // Longer than a chat_message insert transaction takes (ChatMessageWriter stamps rows right before it)
+    @Value("${chat.watermark-lag:5s}")
+    private Duration watermarkLag;
+
+    /**
+     * One user's new messages scored and folded into a copy of their watermark; nothing saved yet.
+     * caughtUp is false when the cap was hit, so more settled messages may be waiting.
+     */
+    public record Analysis(MoodWatermark watermark, Long expectedVersion, MoodEntry entry, int messagesScored,
+            boolean caughtUp) {
+    }
+
+    /**
+     * Brings the user's mood up to date and returns the latest MoodEntry
+     * (null if the user has never chatted).
+     */
+    public MoodEntry refresh(String userId) {
+        // Messages still sitting in the write-behind buffer must be visible to the query below
+        chatMessageWriter.flush();
+
+        MoodWatermark watermark = watermarkRepository.findById(userId).orElseGet(() -> new MoodWatermark(userId));
+
+        Analysis analysis = analyze(watermark);
+        if (analysis == null) {
+            return latestEntry(watermark);
+        }
+
+        // Save entry + watermark together; a concurrent refresh for the same user loses cleanly
+        try {
+            return transactionTemplate.execute(status -> {
+                MoodEntry result = analysis.entry();
+                if (result != null) {
+                    result = moodRepository.save(result);
+                    rollupService.record(List.of(result));
+                    watermark.setLastEntryId(result.getId());
+                } else {
+                    result = latestEntry(watermark);
+                }
+                watermarkRepository.save(watermark);
+                return result;
+            });
+        } catch (ObjectOptimisticLockingFailureException | DataIntegrityViolationException e) {
+            // Someone else analysed these messages at the same time; use their result
+            return moodRepository.findFirstByUserIdOrderByTimestampDesc(userId).orElse(null);
+        }
+    }
+
+    /**
+     * Scores the oldest messages newer than the watermark, up to the cap (one sentiment call),
+     * and folds the result into the watermark. Returns null when nothing new has arrived. The
+     * caller flushes the chat write-behind buffer first and saves the result.
+     */
+    public Analysis analyze(MoodWatermark watermark) {
+        Long expectedVersion = watermark.getVersion();
+
+        // A. Only messages we haven't seen yet and that can no longer be overtaken (oldest first, capped).
+        //    Without a watermark there is no backlog to work through: start from the most recent ones.
+        LocalDateTime settledBefore = LocalDateTime.now().minus(watermarkLag);
+        boolean firstAnalysis = watermark.getLastMessageAt() == null;
+        List<ChatMessage> newer;
+        if (firstAnalysis) {
+            newer = new ArrayList<>(chatRepository.findNewestSettled(watermark.getUserId(), settledBefore,
+                    Limit.of(maxMessages)));
+            Collections.reverse(newer);
+        } else {
+            newer = chatRepository.findSettledSince(watermark.getUserId(), watermark.getLastMessageAt(),
+                    watermark.getLastMessageId(), settledBefore, Limit.of(maxMessages));
+        }
+
+        if (newer.isEmpty()) {
+            return null;
+        }
+
+        // The watermark only moves past what was actually read
+        ChatMessage last = newer.get(newer.size() - 1);
+
+        // B. Score the user's own words, oldest first; the pet's replies say nothing about the user's mood
+        List<String> userTexts = new ArrayList<>(newer.size());
+        for (ChatMessage message : newer) {
+            if (message.isUser() && message.getContent() != null) {
+                userTexts.add(message.getContent());
+            }
+        }
+
+        MoodEntry entry = null;
+        if (!userTexts.isEmpty()) {
+            SentimentService.SentimentResult result = sentimentService.analyzeText(String.join(". ", userTexts));
+            entry = fold(watermark, result, userTexts.size());
+        }
+        watermark.setLastMessageAt(last.getTimestamp());
+        watermark.setLastMessageId(last.getId());
+        boolean caughtUp = firstAnalysis || newer.size() < maxMessages;
+        return new Analysis(watermark, expectedVersion, entry, userTexts.size(), caughtUp);
+    }
+
+    /**
+     * Saves a batch of analyses in one transaction: the mood entries go out as JDBC batch
+     * inserts (pooled sequence, see V13) and the watermarks are loaded with one IN query and
+     * updated in place. If any user was refreshed concurrently (e.g. via /analyze-batch) the
+     * batch is retried user by user and only those users are skipped.
+     *
+     * @return the number of users whose analysis was saved
+     */
+    public int saveAll(List<Analysis> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            return transactionTemplate.execute(status -> write(batch));
+        } catch (ObjectOptimisticLockingFailureException | DataIntegrityViolationException e) {
+            int saved = 0;
+            for (Analysis analysis : batch) {
+                try {
+                    saved += transactionTemplate.execute(status -> write(List.of(analysis)));
+                } catch (ObjectOptimisticLockingFailureException | DataIntegrityViolationException lost) {
+                    // Someone else analysed this user's messages meanwhile; their result stands
+                }
+            }
+            return saved;
+        }
+    }
+
+    private int write(List<Analysis> batch) {
+        List<String> userIds = new ArrayList<>(batch.size());
+        List<MoodEntry> entries = new ArrayList<>(batch.size());
+        for (Analysis analysis : batch) {
+            userIds.add(analysis.watermark().getUserId());
+            if (analysis.entry() != null) {
+                analysis.entry().setId(null); // may be left over from a rolled-back attempt
+                entries.add(analysis.entry());
+            }
+        }
+        moodRepository.saveAll(entries);
+        rollupService.record(entries);
+
+        Map<String, MoodWatermark> stored = new HashMap<>();
+        for (MoodWatermark watermark : watermarkRepository.findAllById(userIds)) {
+            stored.put(watermark.getUserId(), watermark);
+        }
+
+        List<MoodWatermark> created = new ArrayList<>();
+        for (Analysis analysis : batch) {
+            MoodWatermark source = analysis.watermark();
+            MoodWatermark target = stored.get(source.getUserId());
+            if (!Objects.equals(target == null ? null : target.getVersion(), analysis.expectedVersion())) {
+                throw new ObjectOptimisticLockingFailureException(MoodWatermark.class, source.getUserId());
+            }
+            if (target == null) {
+                target = new MoodWatermark(source.getUserId());
+                created.add(target);
+            }
+            // Copy onto the managed row so the analysis itself stays untouched for a retry
+            target.setLastMessageAt(source.getLastMessageAt());
+            target.setLastMessageId(source.getLastMessageId());
+            target.setDecayedSentiment(source.getDecayedSentiment());
+            target.setDecayedAnger(source.getDecayedAnger());
+            target.setMessagesAnalyzed(source.getMessagesAnalyzed());
+            if (analysis.entry() != null) {
+                target.setLastEntryId(analysis.entry().getId());
+            }
+        }
+        watermarkRepository.saveAll(created);
+        return batch.size();
+    }
+
+    // Folds a new batch score into the running scores and builds the MoodEntry for it
+    private MoodEntry fold(MoodWatermark watermark, SentimentService.SentimentResult result, int messageCount) {
+        double sentiment;
+        double anger;
+        if (watermark.getMessagesAnalyzed() == 0) {
+            sentiment = result.score();
+            anger = result.anger();
+        } else {
+            // The older score keeps (1 - alpha) of its weight for every new message
+            double keep = Math.pow(1 - decayAlpha, messageCount);
+            sentiment = keep * watermark.getDecayedSentiment() + (1 - keep) * result.score();
+            anger = keep * watermark.getDecayedAnger() + (1 - keep) * result.anger();
+        }
+
+        watermark.setDecayedSentiment(sentiment);
+        watermark.setDecayedAnger(anger);
+        watermark.setMessagesAnalyzed(watermark.getMessagesAnalyzed() + messageCount);
+
+        MoodEntry entry = new MoodEntry();
+        entry.setUserId(watermark.getUserId());
+        entry.setUserMessage("Analysis of " + messageCount + " new messages");
+        entry.setOverallSentiment(sentiment);
+
+        // Map specific emotion scores if available
+        if (sentiment > 0) {
+            entry.setJoyScore(sentiment);
+            entry.setSadnessScore(0.0);
+        } else {
+            entry.setSadnessScore(Math.abs(sentiment));
+            entry.setJoyScore(0.0);
+        }
+        entry.setAngerScore(anger);
+        return entry;
+    }
+
+    private MoodEntry latestEntry(MoodWatermark watermark) {
+        if (watermark.getLastEntryId() != null) {
+            return moodRepository.findById(watermark.getLastEntryId()).orElse(null);
+        }
+        return moodRepository.findFirstByUserIdOrderByTimestampDesc(watermark.getUserId()).orElse(null);
+    }
+}
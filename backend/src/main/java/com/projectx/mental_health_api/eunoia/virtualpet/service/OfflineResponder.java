@@ -0,0 +1,68 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import org.springframework.stereotype.Component;
+
+import com.projectx.mental_health_api.eunoia.virtualpet.model.AiResponse;
+
+/**
+ * Keyword-based replies that need no model: used in mock mode (no API key) and whenever
+ * Groq is unavailable (circuit open, timed out, provider errors), so the pet still answers
+ * something sensible - and still points at the right exercises - within microseconds.
+ */
+@Component
+public class OfflineResponder {
+
+    // Mock mode says so; during an outage the catch-all reply shouldn't
+    public static final String MOCK_DEFAULT_REPLY = "I am here for you! (Mock Mode active)";
+    public static final String OFFLINE_DEFAULT_REPLY = "I am here for you. Tell me a little more about how you feel?";
+
+    /** A canned reply picked by keywords, marked {@link AiResponse#isOffline() offline}. */
+    public AiResponse respond(String userMessage, String defaultReply) {
+        AiResponse response = pick(userMessage, defaultReply);
+        response.setOffline(true);
+        return response;
+    }
+
+    private AiResponse pick(String userMessage, String defaultReply) {
+        String msg = userMessage == null ? "" : userMessage.toLowerCase();
+        if (msg.contains("anxious") || msg.contains("panic") || msg.contains("worry")) {
+            return new AiResponse(
+                    "I hear you. Taking deep breaths can really help with anxiety. Let's try some breathing exercises together.",
+                    "SAD", "BREATHE", "MAT", "BREATHING");
+        } else if (msg.contains("sad") || msg.contains("low") || msg.contains("depress")) {
+            return new AiResponse(
+                    "I am sorry you are feeling down. Journaling your thoughts might help get them out.",
+                    "SAD", "IDLE", "BED", "JOURNALING");
+        } else if (msg.contains("stress") || msg.contains("tense")) {
+            return new AiResponse(
+                    "It sounds like you're carrying a lot of tension. Let's try to relax your muscles.",
+                    "CONCERNED", "SIT", "CHAIR", "RELAXATION");
+        } else if (msg.contains("overwhelm")) {
+            return new AiResponse(
+                    "Let's take it one step at a time. Grounding yourself can help bring you back to the present.",
+                    "CONCERNED", "SIT", "MAT", "GROUNDING");
+        } else if (msg.contains("negative") || msg.contains("thought")) {
+            return new AiResponse(
+                    "Challenging those negative thoughts can be helpful. Let's try some Cognitive Reframing.",
+                    "CONCERNED", "IDLE", "CHAIR", "CBT");
+        } else if (msg.contains("sleep") || msg.contains("rest") || msg.contains("tired") || msg.contains("nap")) {
+            return new AiResponse(
+                    "Rest is important. I'm going to take a quick nap too.",
+                    "CALM", "SLEEP", "BED", "NONE"); // No filter, just sleep
+        } else if (msg.contains("drink") || msg.contains("water") || msg.contains("thirsty")) {
+            return new AiResponse(
+                    "Hydration is key! Let's get some water.",
+                    "HAPPY", "DRINK", "WATER_STATION", "NONE");
+        } else if (msg.contains("happy") || msg.contains("good") || msg.contains("great") || msg.contains("love")) {
+            return new AiResponse(
+                    "That is wonderful! I love seeing you happy! Keep shining!",
+                    "EXCITED", "HAPPY", "NONE", "NONE");
+        } else if (msg.contains("hello") || msg.contains("hi")) {
+            return new AiResponse(
+                    "Hello! I'm Euna, your friend. How are you feeling right now?",
+                    "HAPPY", "WAVE", "NONE", "NONE");
+        } else {
+            return new AiResponse(defaultReply, "HAPPY", "IDLE", "NONE", "NONE");
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+/**
+ * Folds chat messages that mean the same thing ("Hi!", "  hi ", "HI!!") onto one key.
+ * Lower-cases, drops punctuation and collapses whitespace in a single pass.
+ */
+public final class PromptNormalizer {
+
+    private PromptNormalizer() {
+    }
+
+    public static String normalize(String message) {
+        if (message == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(message.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && sb.length() > 0) {
+                    sb.append(' ');
+                }
+                pendingSpace = false;
+                sb.append(Character.toLowerCase(c));
+            } else if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+            }
+            // anything else is punctuation/emoji and is dropped ("I'm" -> "im")
+        }
+        return sb.toString();
+    }
+
+    public static int wordCount(String normalized) {
+        if (normalized.isEmpty()) {
+            return 0;
+        }
+        int words = 1;
+        for (int i = 0; i < normalized.length(); i++) {
+            if (normalized.charAt(i) == ' ') {
+                words++;
+            }
+        }
+        return words;
+    }
+}
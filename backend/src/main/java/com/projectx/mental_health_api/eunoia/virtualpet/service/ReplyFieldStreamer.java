@@ -0,0 +1,113 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Pulls the "reply" string out of the model's JSON answer while it is still
+ * being streamed, so the pet can start talking before the whole object has
+ * arrived. Chunks are fed in the order Groq sends them; the decoded reply
+ * text is pushed to the consumer as soon as it is known.
+ */
+public class ReplyFieldStreamer {
+
+    private static final String KEY = "\"reply\"";
+
+    private enum State {
+        SEEK_KEY, SEEK_COLON, SEEK_QUOTE, IN_VALUE, ESCAPE, UNICODE, DONE
+    }
+
+    private final Consumer<String> onReplyText;
+    private final StringBuilder pending = new StringBuilder();
+    private final StringBuilder unicode = new StringBuilder(4);
+
+    private State state = State.SEEK_KEY;
+    private int keyMatched = 0;
+
+    public ReplyFieldStreamer(Consumer<String> onReplyText) {
+        this.onReplyText = onReplyText;
+    }
+
+    public void accept(CharSequence chunk) {
+        for (int i = 0; i < chunk.length() && state != State.DONE; i++) {
+            step(chunk.charAt(i));
+        }
+        if (pending.length() > 0) {
+            onReplyText.accept(pending.toString());
+            pending.setLength(0);
+        }
+    }
+
+    public boolean isDone() {
+        return state == State.DONE;
+    }
+
+    private void step(char c) {
+        switch (state) {
+            case SEEK_KEY -> {
+                if (c == KEY.charAt(keyMatched)) {
+                    keyMatched++;
+                    if (keyMatched == KEY.length()) {
+                        state = State.SEEK_COLON;
+                    }
+                } else {
+                    keyMatched = (c == '"') ? 1 : 0;
+                }
+            }
+            case SEEK_COLON -> {
+                if (c == ':') {
+                    state = State.SEEK_QUOTE;
+                } else if (!Character.isWhitespace(c)) {
+                    keyMatched = 0;
+                    state = State.SEEK_KEY;
+                }
+            }
+            case SEEK_QUOTE -> {
+                if (c == '"') {
+                    state = State.IN_VALUE;
+                } else if (!Character.isWhitespace(c)) {
+                    state = State.DONE; // reply is not a string, nothing to stream
+                }
+            }
+            case IN_VALUE -> {
+                if (c == '\\') {
+                    state = State.ESCAPE;
+                } else if (c == '"') {
+                    state = State.DONE;
+                } else {
+                    pending.append(c);
+                }
+            }
+            case ESCAPE -> {
+                state = State.IN_VALUE;
+                switch (c) {
+                    case 'n' -> pending.append('\n');
+                    case 't' -> pending.append('\t');
+                    case 'r' -> pending.append('\r');
+                    case 'b' -> pending.append('\b');
+                    case 'f' -> pending.append('\f');
+                    case 'u' -> {
+                        unicode.setLength(0);
+                        state = State.UNICODE;
+                    }
+                    default -> pending.append(c); // \" \\ \/
+                }
+            }
+            case UNICODE -> {
+                if (Character.digit(c, 16) < 0) {
+                    // Malformed unicode escape from the model: keep it as text and go on with this character
+                    pending.append("\\u").append(unicode);
+                    state = State.IN_VALUE;
+                    step(c);
+                    return;
+                }
+                unicode.append(c);
+                if (unicode.length() == 4) {
+                    pending.append((char) Integer.parseInt(unicode.toString(), 16));
+                    state = State.IN_VALUE;
+                }
+            }
+            case DONE -> {
+            }
+        }
+    }
+}
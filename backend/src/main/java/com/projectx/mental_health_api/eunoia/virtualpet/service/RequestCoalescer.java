@@ -0,0 +1,148 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.projectx.mental_health_api.eunoia.virtualpet.model.AiResponse;
+
+/**
+ * Single-flight for Groq calls: concurrent requests with the same normalized prompt and
+ * the same conversation context share one upstream call. The first caller (the leader) makes the call; anyone arriving
+ * with the same key while it is in flight, and within the join window of its start,
+ * waits for it and gets a copy of the same reply. Followers wait no longer than the leader's
+ * call may take (GroqResilience.callDeadline) and then give up with "timeout".
+ *
+ * Nothing is kept once the call completes, so this only caps fan-out during a burst;
+ * longer-lived reuse is AiResponseCache's job.
+ */
+@Component
+public class RequestCoalescer {
+
+    @Value("${ai.coalesce.enabled:true}")
+    private boolean enabled;
+
+    // How long after the leader started others may still join it; later arrivals make their own call
+    @Value("${ai.coalesce.join-window:2s}")
+    private Duration joinWindow;
+
+    @Autowired
+    private ChatMetrics metrics;
+
+    @Autowired
+    private GroqResilience resilience;
+
+    private final ConcurrentHashMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+
+    private record Flight(CompletableFuture<AiResponse> result, long startedAt) {
+    }
+
+    public String keyFor(String userMessage) {
+        return keyFor(userMessage, List.of());
+    }
+
+    /** Normalized prompt, plus a SHA-256 of the history turns when there are any. */
+    public String keyFor(String userMessage, List<ConversationMemory.Turn> history) {
+        if (!enabled || userMessage == null) {
+            return null;
+        }
+        String normalized = PromptNormalizer.normalize(userMessage);
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        return history.isEmpty() ? normalized : normalized + "#" + digest(history);
+    }
+
+    private static String digest(List<ConversationMemory.Turn> history) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            for (ConversationMemory.Turn turn : history) {
+                sha.update(turn.role().getBytes(StandardCharsets.UTF_8));
+                sha.update((byte) 0);
+                sha.update(turn.content().getBytes(StandardCharsets.UTF_8));
+                sha.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JVM has SHA-256
+        }
+    }
+
+    /**
+     * Runs {@code call} or joins an identical call already in flight.
+     * A null key always runs the call directly.
+     *
+     * @throws GroqResilience.GroqUnavailableException ("timeout") when the joined call
+     *                                                 outlives the resilience deadline
+     */
+    public AiResponse execute(String key, Supplier<AiResponse> call) {
+        if (key == null) {
+            return call.get();
+        }
+
+        Flight mine = new Flight(new CompletableFuture<>(), System.nanoTime());
+        while (true) {
+            Flight current = inFlight.putIfAbsent(key, mine);
+            if (current == null) {
+                break; // we are the leader
+            }
+            if (System.nanoTime() - current.startedAt() <= joinWindow.toNanos()) {
+                metrics.coalesced();
+                return copyOf(follow(current));
+            }
+            // Too old to join: take its place for whoever comes next
+            if (inFlight.replace(key, current, mine)) {
+                break;
+            }
+        }
+
+        try {
+            AiResponse response = call.get();
+            mine.result().complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            mine.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private AiResponse follow(Flight leader) {
+        long deadline = leader.startedAt() + resilience.callDeadline().toNanos();
+        try {
+            return leader.result().get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new GroqResilience.GroqUnavailableException("timeout", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GroqResilience.GroqUnavailableException("interrupted", e);
+        }
+    }
+
+    // Each caller may decorate its reply, so followers never share the leader's instance
+    private static AiResponse copyOf(AiResponse r) {
+        AiResponse copy = new AiResponse(r.getReply(), r.getEmotion(), r.getAction(), r.getTargetObject(),
+                r.getRecommendedFilter());
+        copy.setOffline(r.isOffline());
+        return copy;
+    }
+}
@@ -1,5 +1,6 @@
 package com.projectx.mental_health_api.eunoia.virtualpet.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -14,42 +15,48 @@ public class SentimentService {
     @Value("${rapidapi.key}")
     private String apiKey;
 
+    // "twinword" = RapidAPI round-trip (default), "lexicon" = in-process LexiconSentimentAnalyzer
+    @Value("${sentiment.engine:twinword}")
+    private String engine;
+
+    @Autowired
+    private LexiconSentimentAnalyzer lexiconAnalyzer;
+
+    @Autowired
+    private ChatMetrics metrics;
+
     private static final String API_URL = "https://twinword-twinword-bundle-v1.p.rapidapi.com/sentiment_analyze/";
 
+    @jakarta.annotation.PostConstruct
+    public void init() {
+        System.out.println("🧠 Sentiment engine: " + engine);
+    }
+
     public SentimentResult analyzeText(String text) {
+        if ("lexicon".equalsIgnoreCase(engine)) {
+            return metrics.timeSentimentCall("lexicon", () -> lexiconAnalyzer.analyze(text));
+        }
+
         // --- MOCK MODE (For Testing without API Key) ---
         // If API key is missing or is the default placeholder, simulate a response.
         if (apiKey == null || apiKey.isBlank() || apiKey.contains("insert_key") || apiKey.contains("placeholder")) {
             System.out.println("⚠️ SENTIMENT MOCK MODE: Generating fake sentiment score.");
-
-            String lower = text.toLowerCase();
-            double mockScore = 0.0;
-            String mockType = "neutral";
-
-            if (lower.contains("bad") || lower.contains("sad") || lower.contains("anxious")) {
-                mockScore = -0.5;
-                mockType = "negative";
-            } else if (lower.contains("good") || lower.contains("happy") || lower.contains("great")) {
-                mockScore = 0.8;
-                mockType = "positive";
-            }
-
-            return new SentimentResult(mockScore, mockType);
+            metrics.mockFallback("sentiment");
+            return mockAnalyze(text);
         }
 
-        System.out.println("--- [DEBUG] Service: Sending text to Twinword: " + text);
+        // Never log the text or the raw body here: it is the user's private chat history
+        System.out.println("--- [DEBUG] Service: Sending " + text.length() + " chars to Twinword");
 
         try {
-            HttpResponse<JsonNode> response = Unirest.post(API_URL)
+            HttpResponse<JsonNode> response = metrics.timeSentimentCall("twinword", () -> Unirest.post(API_URL)
                     .header("content-type", "application/x-www-form-urlencoded")
                     .header("X-RapidAPI-Key", apiKey)
                     .header("X-RapidAPI-Host", "twinword-twinword-bundle-v1.p.rapidapi.com")
                     .fields(java.util.Map.of("text", text))
-                    .asJson();
+                    .asJson());
 
-            // PROBE: Check the raw response
             System.out.println("--- [DEBUG] Service: API Status: " + response.getStatus());
-            System.out.println("--- [DEBUG] Service: Raw Body: " + response.getBody());
 
             if (response.getStatus() == 200) {
                 double score = response.getBody().getObject().getDouble("score");
@@ -68,7 +75,29 @@ public class SentimentService {
         return new SentimentResult(0.0, "neutral");
     }
 
-    // A simple container for the data to send back to the Controller
-    public record SentimentResult(double score, String type) {
+    // Keyword mock used when no RapidAPI key is configured
+    public static SentimentResult mockAnalyze(String text) {
+        String lower = text.toLowerCase();
+        double mockScore = 0.0;
+        String mockType = "neutral";
+
+        if (lower.contains("bad") || lower.contains("sad") || lower.contains("anxious")) {
+            mockScore = -0.5;
+            mockType = "negative";
+        } else if (lower.contains("good") || lower.contains("happy") || lower.contains("great")) {
+            mockScore = 0.8;
+            mockType = "positive";
+        }
+
+        return new SentimentResult(mockScore, mockType);
+    }
+
+    // A simple container for the data to send back to the Controller.
+    // anger is 0..1 and only filled by engines that can tell anger apart (lexicon).
+    public record SentimentResult(double score, String type, double anger) {
+
+        public SentimentResult(double score, String type) {
+            this(score, type, 0.0);
+        }
     }
-}
\ No newline at end of file
+}
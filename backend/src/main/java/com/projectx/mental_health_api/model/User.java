@@ -1,16 +1,35 @@
 package com.projectx.mental_health_api.model;
 
 import java.time.LocalDate;
+import java.io.IOException;
 import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
 
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
+// UPDATEs only carry the columns that actually changed, so a profile edit never writes back
+// a stale copy of a column someone else changed meanwhile (e.g. a password hash upgrade)
 @Entity
+@DynamicUpdate
 @Table(name = "users")
 public class User {
 
@@ -20,8 +39,12 @@ public class User {
     @Column(columnDefinition = "uuid")
     private UUID id;
 
-    @Column(name = "preferences", length = 2000)
-    private String preferences;
+    // jsonb document ({"theme": "dark", "notifications": {...}}); see PATCH /api/users/{id}/preferences.
+    // A plain string in a request body is the old free-text field and lands under "notes".
+    @JdbcTypeCode(SqlTypes.JSON)
+    @JsonDeserialize(using = PreferencesDeserializer.class)
+    @Column(name = "preferences")
+    private Map<String, Object> preferences;
 
     // ---------- CORE FIELDS ----------
     @Column(nullable = false, unique = true, length = 255)
@@ -30,6 +53,8 @@ public class User {
     @Column(nullable = false, unique = true, length = 50)
     private String username;
 
+    // Accepted in request bodies (a new password), never sent back to the client
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     @Column(name = "password_hash", nullable = false, length = 255)
     private String passwordHash;
 
@@ -93,6 +118,12 @@ public class User {
     @Column(name = "first_name", length = 100)
     private String firstName;
 
+    // Bumped on every write; sent as the ETag, and PUT/PATCH take it back in If-Match
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     // ---------- GETTERS & SETTERS ----------
     public UUID getId() {
         return id;
@@ -174,11 +205,11 @@ public class User {
         this.updates = updates;
     }
 
-    public String getPreferences() {
+    public Map<String, Object> getPreferences() {
         return preferences;
     }
 
-    public void setPreferences(String preferences) {
+    public void setPreferences(Map<String, Object> preferences) {
         this.preferences = preferences;
     }
 
@@ -277,4 +308,25 @@ public class User {
     public String getFirstName() {
         return firstName;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    // Preferences as a JSON object, or the legacy free-text form ("...") as {"notes": "..."}
+    public static class PreferencesDeserializer extends JsonDeserializer<Map<String, Object>> {
+
+        @Override
+        public Map<String, Object> deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() == JsonToken.VALUE_STRING) {
+                return new LinkedHashMap<>(Map.of("notes", p.getText()));
+            }
+            return ctxt.readValue(p, ctxt.getTypeFactory().constructType(new TypeReference<Map<String, Object>>() {
+            }));
+        }
+    }
 }
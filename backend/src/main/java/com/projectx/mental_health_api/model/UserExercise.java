@@ -19,9 +19,17 @@ public class UserExercise {
     @JoinColumn(name = "exercise_id", nullable = false)
     private Exercise exercise;
 
-    @Column(name = "completed_at")
+    // Keyset pages sort on (completed_at, id), so it is never null (V21)
+    @Column(name = "completed_at", nullable = false)
     private OffsetDateTime completedAt;
 
+    @PrePersist
+    protected void onCreate() {
+        if (this.completedAt == null) {
+            this.completedAt = OffsetDateTime.now();
+        }
+    }
+
     public Long getId() {
         return id;
     }
@@ -1,10 +1,42 @@
 package com.projectx.mental_health_api.repository;
 
+import com.projectx.mental_health_api.dto.CompletedExercise;
+import com.projectx.mental_health_api.dto.ExerciseStats;
 import com.projectx.mental_health_api.model.UserExercise;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.UUID;
 
 public interface UserExerciseRepository extends JpaRepository<UserExercise, Long> {
-    List<UserExercise> findByUserIdOrderByCompletedAtDesc(UUID userId);
+    // --- Keyset pages for /completed-exercises (served by idx_user_exercises_user_completed) ---
+    // Completion and exercise come back as one row each (a join into a DTO), never one query per exercise
+
+    // Newest page: no cursor yet
+    @Query("SELECT new com.projectx.mental_health_api.dto.CompletedExercise(e.id, e.title, e.category, e.duration, "
+            + "e.moodType, ue.id, ue.completedAt) FROM UserExercise ue JOIN ue.exercise e "
+            + "WHERE ue.userId = :userId ORDER BY ue.completedAt DESC, ue.id DESC")
+    List<CompletedExercise> findCompletedPage(@Param("userId") UUID userId, Limit limit);
+
+    // Next (older) page: everything strictly before the (completedAt, id) of the cursor completion
+    @Query("SELECT new com.projectx.mental_health_api.dto.CompletedExercise(e.id, e.title, e.category, e.duration, "
+            + "e.moodType, ue.id, ue.completedAt) FROM UserExercise ue JOIN ue.exercise e "
+            + "WHERE ue.userId = :userId AND (ue.completedAt, ue.id) < (:completedAt, :id) "
+            + "ORDER BY ue.completedAt DESC, ue.id DESC")
+    List<CompletedExercise> findCompletedPageBefore(@Param("userId") UUID userId,
+            @Param("completedAt") OffsetDateTime completedAt, @Param("id") long id, Limit limit);
+
+    // Every exercise the user has done at least once (an index-only scan thanks to the INCLUDE in V19)
+    @Query("SELECT DISTINCT ue.exercise.id FROM UserExercise ue WHERE ue.userId = :userId")
+    List<Long> findCompletedExerciseIds(@Param("userId") UUID userId);
+
+    // One aggregate over all completions: count, minutes and latest per category
+    @Query("SELECT new com.projectx.mental_health_api.dto.ExerciseStats$CategoryStats(e.category, count(ue), "
+            + "coalesce(sum(e.duration), 0), max(ue.completedAt)) FROM UserExercise ue JOIN ue.exercise e "
+            + "WHERE ue.userId = :userId GROUP BY e.category ORDER BY count(ue) DESC, e.category")
+    List<ExerciseStats.CategoryStats> findCategoryStats(@Param("userId") UUID userId);
 }
@@ -20,13 +20,37 @@ package com.projectx.mental_health_api.repository;
 
 import com.projectx.mental_health_api.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.UUID;
 
 import java.util.Optional;
 
-public interface UserRepository extends JpaRepository<User, UUID> {
+public interface UserRepository extends JpaRepository<User, UUID>, UserRepositoryCustom {
     Optional<User> findByUsername(String username);
 
     Optional<User> findByEmail(String email);
+
+    // Swaps in a new hash only if the stored one is still the value we checked against,
+    // so a password change that happened meanwhile is never overwritten
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.passwordHash = :newHash WHERE u.id = :id AND u.passwordHash = :oldHash")
+    int replacePasswordHash(@Param("id") UUID id, @Param("oldHash") String oldHash,
+            @Param("newHash") String newHash);
+
+    // Every photo URL in use, for the upload GC (see UploadStore)
+    @Query("SELECT DISTINCT u.profilePictureUrl FROM User u WHERE u.profilePictureUrl IS NOT NULL")
+    List<String> findProfilePictureUrls();
+
+    // Ids of users whose preferences contain the given JSON ({"theme": "dark"}), in id order
+    // after the cursor; @> is what the idx_users_preferences GIN index serves (see V18)
+    @Query(value = "SELECT id FROM public.users WHERE preferences @> CAST(:filter AS jsonb) AND id > :after"
+            + " ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<UUID> findIdsByPreferences(@Param("filter") String filter, @Param("after") UUID after,
+            @Param("limit") int limit);
 }
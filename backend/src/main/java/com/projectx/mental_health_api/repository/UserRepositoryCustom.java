@@ -0,0 +1,25 @@
+package com.projectx.mental_health_api.repository;
+
+import java.util.Map;
+import java.util.UUID;
+
+import com.projectx.mental_health_api.model.User;
+
+// Queries Spring Data can't derive (implemented in UserRepositoryImpl)
+public interface UserRepositoryCustom {
+
+    /**
+     * One UPDATE of just the given attributes (User field name -> new value, null clears it),
+     * bumping the version. With expectedVersion set, only applies if the row is still at that
+     * version. Returns the row as it is now, or null if nothing was updated (no such user, or
+     * a different version).
+     */
+    User patch(UUID id, Map<String, Object> changes, Long expectedVersion);
+
+    /**
+     * Merges a JSON object into users.preferences in the database (jsonb_merge_patch, see V17:
+     * nested objects merge, null removes a key), together with any other changes as in patch.
+     * The stored document is never read into the JVM first.
+     */
+    User patchPreferences(UUID id, String preferencesPatch, Map<String, Object> changes, Long expectedVersion);
+}
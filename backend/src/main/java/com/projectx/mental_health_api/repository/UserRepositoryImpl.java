@@ -0,0 +1,80 @@
+package com.projectx.mental_health_api.repository;
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.hibernate.Hibernate;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.projectx.mental_health_api.model.User;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public User patch(UUID id, Map<String, Object> changes, Long expectedVersion) {
+        return update(id, changes, expectedVersion) ? reload(id) : null;
+    }
+
+    @Override
+    @Transactional
+    public User patchPreferences(UUID id, String preferencesPatch, Map<String, Object> changes,
+            Long expectedVersion) {
+        // The version check (and bump) goes first; the merge below then runs on the row it locked
+        if (!update(id, changes, expectedVersion)) {
+            return null;
+        }
+        entityManager.createNativeQuery(
+                "UPDATE public.users SET preferences = public.jsonb_merge_patch(preferences, CAST(:patch AS jsonb))"
+                        + " WHERE id = :id")
+                .setParameter("patch", preferencesPatch)
+                .setParameter("id", id)
+                .executeUpdate();
+        return reload(id);
+    }
+
+    // false if no row matched (no such user, or a different version)
+    private boolean update(UUID id, Map<String, Object> changes, Long expectedVersion) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<User> update = cb.createCriteriaUpdate(User.class);
+        Root<User> user = update.from(User.class);
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            Path<Object> column = user.get(change.getKey());
+            if (change.getValue() == null) {
+                update.<Object>set(column, cb.nullLiteral(column.getJavaType()));
+            } else {
+                update.set(column, change.getValue());
+            }
+        }
+        Path<Long> version = user.get("version");
+        update.set(version, cb.sum(version, 1L));
+
+        Predicate where = cb.equal(user.get("id"), id);
+        if (expectedVersion != null) {
+            where = cb.and(where, cb.equal(version, expectedVersion));
+        }
+        update.where(where);
+        return entityManager.createQuery(update).executeUpdate() > 0;
+    }
+
+    // The bulk UPDATE went around the persistence context: a user already loaded there is stale
+    private User reload(UUID id) {
+        User patched = entityManager.getReference(User.class, id);
+        if (Hibernate.isInitialized(patched)) {
+            entityManager.refresh(patched);
+            return patched;
+        }
+        return Hibernate.unproxy(patched, User.class);
+    }
+}
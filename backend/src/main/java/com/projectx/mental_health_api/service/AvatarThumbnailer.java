@@ -0,0 +1,221 @@
+package com.projectx.mental_health_api.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Square avatar thumbnails (64/128/256 px by default) for the uploaded originals, at
+ * uploads/thumbs/{size}/ + the original's place in the UploadStore, in the same image format.
+ *
+ * Made in the background right after an upload, on the bounded imageExecutor (see AsyncConfig).
+ * A thumbnail that doesn't exist yet - still being made, the pool was full, or the photo
+ * predates thumbnails - is requested from the same pool on its first request instead (see
+ * WebConfig), and concurrent requests for the same photo share one job. Requests never decode
+ * images themselves, so at most uploads.thumbnail.threads originals are in memory at once.
+ */
+@Service
+public class AvatarThumbnailer {
+
+    private final UploadStore uploadStore;
+    private final Set<Integer> sizes;
+    private final long maxPixels;
+    private final ExecutorService imageExecutor;
+
+    // Photos whose thumbnails are being made right now
+    private final Map<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+
+    public AvatarThumbnailer(UploadStore uploadStore,
+            @Value("${uploads.thumbnail.sizes:64,128,256}") List<Integer> sizes,
+            @Value("${uploads.thumbnail.max-pixels:16000000}") long maxPixels,
+            @Qualifier("imageExecutor") ExecutorService imageExecutor) {
+        this.uploadStore = uploadStore;
+        this.sizes = new TreeSet<>(sizes);
+        this.maxPixels = maxPixels;
+        this.imageExecutor = imageExecutor;
+    }
+
+    public Set<Integer> sizes() {
+        return sizes;
+    }
+
+    public Path thumbnailPath(int size, String filename) {
+        return uploadStore.thumbnailPath(size, filename);
+    }
+
+    /** Starts making every thumbnail size for an uploaded photo; completes with false if it isn't an image we can scale. */
+    public CompletableFuture<Boolean> generateAsync(String filename) {
+        CompletableFuture<Boolean> job = new CompletableFuture<>();
+        CompletableFuture<Boolean> running = inFlight.putIfAbsent(filename, job);
+        if (running != null) {
+            return running;
+        }
+        try {
+            imageExecutor.execute(() -> {
+                try {
+                    job.complete(generate(filename));
+                } finally {
+                    inFlight.remove(filename, job);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Pool busy: the thumbnails will be made when first requested
+            inFlight.remove(filename, job);
+            job.complete(false);
+        }
+        return job;
+    }
+
+    /**
+     * Makes sure the thumbnail exists, starting (or joining) the photo's job on the image pool
+     * and waiting up to {@code wait} for it. False if it can't be made, the pool is full, or it
+     * isn't done in time (the job keeps running for the next request).
+     */
+    public boolean ensure(int size, String filename, Duration wait) {
+        if (!sizes.contains(size) || uploadStore.pathOf(filename) == null) {
+            return false;
+        }
+        if (Files.exists(thumbnailPath(size, filename))) {
+            return true;
+        }
+        try {
+            generateAsync(filename).get(wait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            return false;
+        }
+        return Files.exists(thumbnailPath(size, filename));
+    }
+
+    // All sizes of one photo; false if it isn't an image ImageIO can read and write back
+    boolean generate(String filename) {
+        Path original = uploadStore.pathOf(filename);
+        String format = formatOf(filename);
+        if (original == null || format == null || !Files.isRegularFile(original)) {
+            return false;
+        }
+        try {
+            BufferedImage image = read(original);
+            if (image == null) {
+                return false;
+            }
+            for (int size : sizes) {
+                write(squareThumbnail(image, size, !format.equals("png") && !format.equals("gif")), format,
+                        thumbnailPath(size, filename));
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("--- THUMBNAIL FAILED for " + filename + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Decodes the image, refusing anything whose header claims more than max-pixels (decompression bombs)
+    private BufferedImage read(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    throw new IOException("image too large (" + pixels + " pixels)");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Centre-crops to a square and scales down to size x size. Large images are halved step
+     * by step first, which keeps bilinear scaling from skipping pixels (visible aliasing).
+     */
+    static BufferedImage squareThumbnail(BufferedImage source, int size, boolean opaque) {
+        int side = Math.min(source.getWidth(), source.getHeight());
+        BufferedImage current = source.getSubimage((source.getWidth() - side) / 2, (source.getHeight() - side) / 2,
+                side, side);
+        int type = opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+        int currentSize = side;
+        do {
+            currentSize = Math.max(size, currentSize / 2);
+            if (currentSize < size * 2) {
+                currentSize = size;
+            }
+            BufferedImage next = new BufferedImage(currentSize, currentSize, type);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, currentSize, currentSize, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (currentSize > size);
+        return current;
+    }
+
+    // Written next to the target and renamed, so a reader never sees half a file
+    private static void write(BufferedImage image, String format, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), ".thumb", ".part");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                if (!ImageIO.write(image, format, out)) {
+                    throw new IOException("no " + format + " writer");
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // ImageIO format for the file's extension, or null if we can't both read and write it
+    private static String formatOf(String filename) {
+        int dot = filename.lastIndexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        String ext = filename.substring(dot + 1).toLowerCase(Locale.ROOT);
+        String format = ext.equals("jpeg") ? "jpg" : ext;
+        boolean readable = ImageIO.getImageReadersBySuffix(format).hasNext();
+        boolean writable = ImageIO.getImageWritersBySuffix(format).hasNext();
+        return readable && writable ? format : null;
+    }
+}
@@ -0,0 +1,192 @@
+package com.projectx.mental_health_api.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.projectx.mental_health_api.model.Exercise;
+import com.projectx.mental_health_api.repository.ExerciseRepository;
+
+/**
+ * Read-through, in-memory copy of the exercises table.
+ *
+ * The catalog is small and rarely written, so every read is served from an immutable
+ * snapshot that holds the full list plus a precomputed result list for each combination
+ * of the category / duration / mood filters (same exact-match semantics as
+ * ExerciseRepository.searchExercises). Writes go through the repository as before and
+ * then call {@link #reload()}, which builds a new snapshot and swaps it in atomically;
+ * readers never see a half-built index and never block.
+ *
+ * The snapshot also indexes exercises by category and by mood type (case-insensitive,
+ * shortest first) for {@link #recommend}, which turns the chat's recommendedFilter into
+ * exercises. The LLM's words don't always match the catalog ("BREATHE" for Breathing,
+ * moods like "ANXIOUS" offered as categories), so they go through FILTER_ALIASES first.
+ */
+@Service
+public class ExerciseCatalog {
+
+    // recommendedFilter words (see AiService's prompt) -> the catalog's category / mood name
+    private static final Map<String, String> FILTER_ALIASES = Map.ofEntries(
+            Map.entry("BREATHE", "BREATHING"),
+            Map.entry("BREATH", "BREATHING"),
+            Map.entry("BREATHWORK", "BREATHING"),
+            Map.entry("GROUND", "GROUNDING"),
+            Map.entry("RELAX", "RELAXATION"),
+            Map.entry("RELAXING", "RELAXATION"),
+            Map.entry("SLEEP", "RELAXATION"),
+            Map.entry("REST", "RELAXATION"),
+            Map.entry("MINDFUL", "MINDFULNESS"),
+            Map.entry("MEDITATE", "MEDITATION"),
+            Map.entry("JOURNAL", "JOURNALING"),
+            Map.entry("JOURNALLING", "JOURNALING"),
+            Map.entry("ANXIETY", "ANXIOUS"),
+            Map.entry("PANIC", "ANXIOUS"),
+            Map.entry("PANICKED", "ANXIOUS"),
+            Map.entry("STRESS", "STRESSED"),
+            Map.entry("TENSION", "TENSE"),
+            Map.entry("OVERWHELM", "OVERWHELMED"),
+            Map.entry("LONELINESS", "LONELY"),
+            Map.entry("DEPRESSED", "LOW"),
+            Map.entry("DOWN", "LOW"));
+
+    private final ExerciseRepository exerciseRepository;
+
+    private volatile Snapshot snapshot;
+
+    public ExerciseCatalog(ExerciseRepository exerciseRepository) {
+        this.exerciseRepository = exerciseRepository;
+    }
+
+    // Filter combination; a null field means "any"
+    private record Key(String category, Integer duration, String mood) {
+    }
+
+    // byCategory / byMood: upper-cased name -> exercises, shortest first
+    private record Snapshot(List<Exercise> all, Map<Key, List<Exercise>> byFilter, Map<Long, Exercise> byId,
+            Map<String, List<Exercise>> byCategory, Map<String, List<Exercise>> byMood) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        reload();
+    }
+
+    /**
+     * Exercises matching the given filters (null = no filter), ordered by id.
+     * The returned list is shared and unmodifiable.
+     */
+    public List<Exercise> search(String category, Integer duration, String mood) {
+        return current().byFilter().getOrDefault(new Key(category, duration, mood), List.of());
+    }
+
+    /**
+     * Up to limit exercises for a chat recommendedFilter: the first word of it that names a
+     * category (or an alias of one) wins, else the first that names a mood type. Empty for
+     * "NONE" or anything the catalog has nothing for.
+     */
+    public List<Exercise> recommend(String filter, int limit) {
+        if (filter == null || limit <= 0) {
+            return List.of();
+        }
+        Snapshot s = current();
+        List<String> words = new ArrayList<>();
+        for (String word : filter.toUpperCase(Locale.ROOT).split("[^A-Z]+")) {
+            if (!word.isEmpty()) {
+                words.add(FILTER_ALIASES.getOrDefault(word, word));
+            }
+        }
+        for (Map<String, List<Exercise>> index : List.of(s.byCategory(), s.byMood())) {
+            for (String word : words) {
+                List<Exercise> matches = index.get(word);
+                if (matches != null) {
+                    return matches.size() <= limit ? matches : matches.subList(0, limit);
+                }
+            }
+        }
+        return List.of();
+    }
+
+    public Optional<Exercise> findById(Long id) {
+        return Optional.ofNullable(current().byId().get(id));
+    }
+
+    /**
+     * Re-reads the table and swaps in the new snapshot. Called after every write;
+     * reloads are serialized so the last one to run always reflects the latest commit.
+     */
+    public synchronized void reload() {
+        List<Exercise> all = new ArrayList<>(exerciseRepository.findAll());
+        all.sort(Comparator.comparing(Exercise::getId));
+
+        Map<Key, List<Exercise>> byFilter = new HashMap<>();
+        Map<Long, Exercise> byId = new HashMap<>();
+        for (Exercise e : all) {
+            byId.put(e.getId(), e);
+            // Every exercise belongs to the 8 keys made of its own values or "any"
+            for (int mask = 0; mask < 8; mask++) {
+                Key key = new Key(
+                        (mask & 1) != 0 ? e.getCategory() : null,
+                        (mask & 2) != 0 ? e.getDuration() : null,
+                        (mask & 4) != 0 ? e.getMoodType() : null);
+                if (isReachable(key, mask)) {
+                    byFilter.computeIfAbsent(key, k -> new ArrayList<>()).add(e);
+                }
+            }
+        }
+        byFilter.replaceAll((k, v) -> Collections.unmodifiableList(v));
+
+        snapshot = new Snapshot(Collections.unmodifiableList(all), byFilter, byId,
+                byName(all, Exercise::getCategory), byName(all, Exercise::getMoodType));
+        System.out.println("📚 Exercise catalog loaded: " + all.size() + " exercises, " + byFilter.size()
+                + " filter combinations");
+    }
+
+    // Exercises grouped by the upper-cased value of one column, quickest (shortest duration) first
+    private static Map<String, List<Exercise>> byName(List<Exercise> all, Function<Exercise, String> column) {
+        Map<String, List<Exercise>> byName = new HashMap<>();
+        for (Exercise e : all) {
+            String name = column.apply(e);
+            if (name != null && !name.isBlank()) {
+                byName.computeIfAbsent(name.trim().toUpperCase(Locale.ROOT), k -> new ArrayList<>()).add(e);
+            }
+        }
+        Comparator<Exercise> quickest = Comparator.comparing(Exercise::getDuration,
+                Comparator.nullsLast(Comparator.naturalOrder()));
+        byName.replaceAll((k, v) -> {
+            v.sort(quickest); // stable: equal durations stay in id order
+            return Collections.unmodifiableList(v);
+        });
+        return byName;
+    }
+
+    // If the exercise has no value for a filtered column the key collapses into the "any" key
+    // for that column, which the loop adds separately; skip it so nothing is listed twice.
+    private static boolean isReachable(Key key, int mask) {
+        return ((mask & 1) == 0 || key.category() != null)
+                && ((mask & 2) == 0 || key.duration() != null)
+                && ((mask & 4) == 0 || key.mood() != null);
+    }
+
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        if (s == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                s = snapshot;
+            }
+        }
+        return s;
+    }
+}
@@ -0,0 +1,95 @@
+package com.projectx.mental_health_api.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+/**
+ * BCrypt hashing and checking, run on the bounded passwordHashExecutor (see AsyncConfig).
+ *
+ * Accounts created before hashing existed still hold their password in plain text
+ * (and the dev seeder uses "dummy-hash-123" for "secret123"). Those are still accepted;
+ * callers should re-hash them on a successful login (see {@link #needsRehash}).
+ *
+ * The returned futures are created with supplyAsync, so a full pool surfaces as a
+ * {@link RejectedExecutionException} thrown straight from hash()/matches(). They complete
+ * on a virtual thread (llmExecutor), not on the pool: callers chain user lookups and saves
+ * onto them, and that database I/O must not hold a hashing thread.
+ */
+@Service
+public class PasswordService {
+
+    private static final String DEV_SEED_HASH = "dummy-hash-123";
+    private static final String DEV_SEED_PASSWORD = "secret123";
+
+    private final BCryptPasswordEncoder encoder;
+    private final ExecutorService hashExecutor;
+    private final Executor completionExecutor;
+
+    // Checked when the username doesn't exist, so unknown users take as long as wrong passwords
+    private final String unknownUserHash;
+
+    public PasswordService(@Value("${auth.bcrypt.strength:10}") int strength,
+            @Qualifier("passwordHashExecutor") ExecutorService hashExecutor,
+            @Qualifier("llmExecutor") Executor completionExecutor) {
+        this.encoder = new BCryptPasswordEncoder(strength);
+        this.hashExecutor = hashExecutor;
+        this.completionExecutor = completionExecutor;
+        this.unknownUserHash = encoder.encode("unknown-user-placeholder");
+    }
+
+    public CompletableFuture<String> hash(String rawPassword) {
+        return offPool(CompletableFuture.supplyAsync(() -> encoder.encode(rawPassword), hashExecutor));
+    }
+
+    /**
+     * Checks a login attempt against the stored value; storedHash is null when the
+     * user doesn't exist (always false, but costs the same as a real check).
+     */
+    public CompletableFuture<Boolean> matches(String rawPassword, String storedHash) {
+        if (rawPassword == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        if (storedHash == null) {
+            return offPool(CompletableFuture.supplyAsync(() -> {
+                encoder.matches(rawPassword, unknownUserHash);
+                return false;
+            }, hashExecutor));
+        }
+        if (isBcrypt(storedHash)) {
+            return offPool(CompletableFuture.supplyAsync(() -> encoder.matches(rawPassword, storedHash),
+                    hashExecutor));
+        }
+        // Legacy plain-text value: cheap, no need for the pool
+        boolean legacyMatch = constantTimeEquals(rawPassword, storedHash)
+                || (DEV_SEED_HASH.equals(storedHash) && DEV_SEED_PASSWORD.equals(rawPassword));
+        return CompletableFuture.completedFuture(legacyMatch);
+    }
+
+    // The hashing thread only computes; whatever the caller chains on runs on completionExecutor
+    private <T> CompletableFuture<T> offPool(CompletableFuture<T> onPool) {
+        return onPool.thenApplyAsync(result -> result, completionExecutor);
+    }
+
+    // True for legacy plain-text values and for BCrypt hashes weaker than the configured strength
+    public boolean needsRehash(String storedHash) {
+        return !isBcrypt(storedHash) || encoder.upgradeEncoding(storedHash);
+    }
+
+    private static boolean isBcrypt(String value) {
+        return value.length() == 60 && (value.startsWith("$2a$") || value.startsWith("$2b$")
+                || value.startsWith("$2y$"));
+    }
+
+    private static boolean constantTimeEquals(String a, String b) {
+        return MessageDigest.isEqual(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,294 @@
+package com.projectx.mental_health_api.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.projectx.mental_health_api.repository.UserRepository;
+
+/**
+ * Content-addressed storage for uploaded photos.
+ *
+ * A photo is named after the SHA-256 of its bytes ({hash}.{ext}), so uploading the same
+ * picture twice stores it once, and a name always means the same content (safe to cache
+ * forever). Files live in two levels of hash-prefix directories,
+ * uploads/store/ab/cd/abcd....png, which keeps every directory small (at most 256 entries
+ * per level) however many photos there are. URLs stay flat: /uploads/{hash}.{ext}.
+ *
+ * Photos uploaded before the store (uploads/{id}_{time}_{name}) are still served from
+ * the top-level directory.
+ *
+ * Nightly, photos that no user's profilePictureUrl points to any more (replaced or
+ * deleted accounts) are removed along with their thumbnails. Anything written within
+ * uploads.gc.min-age is kept, so an upload whose user row isn't saved yet survives.
+ */
+@Service
+public class UploadStore {
+
+    private static final Pattern HASH_NAME = Pattern.compile("[0-9a-f]{64}\\.[a-z0-9]{1,5}");
+
+    private final Path root;
+    private final Path store;
+    private final Path tmp;
+    private final long maxBytes;
+    private final Set<String> extensions;
+    private final Duration gcMinAge;
+    private final UserRepository userRepository;
+
+    // A stored photo's name, and whether these bytes were new (false = deduplicated)
+    public record Stored(String name, boolean created) {
+    }
+
+    public static class TooLargeException extends IOException {
+        public TooLargeException(long maxBytes) {
+            super("file is larger than " + DataSize.ofBytes(maxBytes).toKilobytes() + " KB");
+        }
+    }
+
+    public static class UnsupportedTypeException extends IOException {
+        public UnsupportedTypeException(String message) {
+            super(message);
+        }
+    }
+
+    public UploadStore(@Value("${uploads.directory:uploads}") Path root,
+            @Value("${uploads.max-size:5MB}") DataSize maxSize,
+            @Value("${uploads.extensions:jpg,png,gif,webp,bmp}") List<String> extensions,
+            @Value("${uploads.gc.min-age:1h}") Duration gcMinAge,
+            UserRepository userRepository) {
+        this.root = root;
+        this.store = root.resolve("store");
+        this.tmp = root.resolve("tmp");
+        this.maxBytes = maxSize.toBytes();
+        this.extensions = Set.copyOf(extensions.stream().map(e -> e.trim().toLowerCase(Locale.ROOT)).toList());
+        this.gcMinAge = gcMinAge;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Stores an upload: streamed to a temp file (FileChannel.transferFrom, hashed on the
+     * way, cut off one byte past uploads.max-size), then renamed into its shard.
+     */
+    public Stored save(InputStream content, String originalFilename) throws IOException {
+        String ext = extensionOf(originalFilename);
+        if (ext == null) {
+            throw new UnsupportedTypeException("only " + String.join(", ", extensions) + " photos are accepted");
+        }
+        Files.createDirectories(tmp);
+        Path temp = Files.createTempFile(tmp, "upload", ".part");
+        try {
+            MessageDigest digest = sha256();
+            long size = 0;
+            try (ReadableByteChannel in = Channels.newChannel(new DigestInputStream(content, digest));
+                    FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long n;
+                // Asking for one byte more than allowed tells "exactly the limit" from "too large"
+                // without reading the rest of an oversized upload
+                while (size <= maxBytes && (n = out.transferFrom(in, size, maxBytes + 1 - size)) > 0) {
+                    size += n;
+                }
+                if (size > maxBytes) {
+                    throw new TooLargeException(maxBytes);
+                }
+                out.force(false);
+            }
+            if (size == 0) {
+                throw new UnsupportedTypeException("file is empty");
+            }
+
+            String name = HexFormat.of().formatHex(digest.digest()) + "." + ext;
+            Path target = pathOf(name);
+            if (Files.exists(target)) {
+                try {
+                    // Same bytes already stored; a fresh mtime keeps the GC off it until the user row is saved
+                    Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                    return new Stored(name, false);
+                } catch (NoSuchFileException e) {
+                    // Collected in the meantime: store it again below
+                }
+            }
+            Files.createDirectories(target.getParent());
+            // A concurrent upload of the same bytes may win the rename; the content is identical either way
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new Stored(name, true);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /** Where the photo with this URL name lives on disk, or null if the name isn't one we serve. */
+    public Path pathOf(String name) {
+        if (HASH_NAME.matcher(name).matches()) {
+            return store.resolve(shardOf(name));
+        }
+        return isPlainName(name) ? root.resolve(name) : null;
+    }
+
+    /** uploads/thumbs/{size}/ + the same shard directories as the original. */
+    public Path thumbnailPath(int size, String name) {
+        Path thumbs = root.resolve("thumbs").resolve(Integer.toString(size));
+        return thumbs.resolve(shardOf(name));
+    }
+
+    @Scheduled(cron = "${uploads.gc.cron:0 15 4 * * *}")
+    public void nightly() {
+        try {
+            collectGarbage();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("--- UPLOAD GC FAILED: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes every photo (and its thumbnails, in whatever sizes exist) older than uploads.gc.min-age
+     * that no profilePictureUrl references, plus temp files left by interrupted uploads.
+     * Returns the number of photos deleted.
+     */
+    public int collectGarbage() throws IOException {
+        if (!Files.isDirectory(root)) {
+            return 0;
+        }
+        Set<String> referenced = new HashSet<>();
+        for (String url : userRepository.findProfilePictureUrls()) {
+            referenced.add(nameOf(url));
+        }
+        Instant cutoff = Instant.now().minus(gcMinAge);
+        int deleted = 0;
+
+        // Content-addressed photos: store/ab/cd/{hash}.{ext}
+        if (Files.isDirectory(store)) {
+            try (Stream<Path> files = Files.walk(store, 3)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    deleted += collect(file, referenced, cutoff);
+                }
+            }
+        }
+        // Flat uploads from before the store
+        try (Stream<Path> files = Files.list(root)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                deleted += collect(file, referenced, cutoff);
+            }
+        }
+        if (Files.isDirectory(tmp)) {
+            try (Stream<Path> files = Files.list(tmp)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    try {
+                        if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                            Files.deleteIfExists(file);
+                        }
+                    } catch (NoSuchFileException e) {
+                        // That upload just finished
+                    }
+                }
+            }
+        }
+        if (deleted > 0) {
+            System.out.println("🧹 Upload GC: removed " + deleted + " unreferenced photo(s)");
+        }
+        return deleted;
+    }
+
+    // 1 if the file was an unreferenced photo past the grace period (now deleted), else 0
+    private int collect(Path file, Set<String> referenced, Instant cutoff) throws IOException {
+        String name = file.getFileName().toString();
+        if (!Files.isRegularFile(file) || referenced.contains(name)) {
+            return 0;
+        }
+        try {
+            // Read right before deleting: a dedup hit refreshes it (see save)
+            if (!Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                return 0;
+            }
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+        if (!Files.deleteIfExists(file)) {
+            return 0;
+        }
+        Path thumbs = root.resolve("thumbs");
+        if (Files.isDirectory(thumbs)) {
+            try (Stream<Path> sizes = Files.list(thumbs)) {
+                for (Path size : (Iterable<Path>) sizes::iterator) {
+                    Files.deleteIfExists(size.resolve(shardOf(name)));
+                }
+            }
+        }
+        return 1;
+    }
+
+    // Last path segment of a profilePictureUrl, e.g. http://host/uploads/abc.png -> abc.png
+    static String nameOf(String url) {
+        int end = url.length();
+        int query = url.indexOf('?');
+        if (query >= 0) {
+            end = query;
+        }
+        int fragment = url.indexOf('#');
+        if (fragment >= 0 && fragment < end) {
+            end = fragment;
+        }
+        return url.substring(url.lastIndexOf('/', end - 1) + 1, end);
+    }
+
+    // ab/cd/abcd....png for content-addressed names; flat uploads have no shard
+    private static Path shardOf(String name) {
+        if (!HASH_NAME.matcher(name).matches()) {
+            return Path.of(name);
+        }
+        return Path.of(name.substring(0, 2), name.substring(2, 4), name);
+    }
+
+    // Lower-cased extension if it's an accepted photo type (jpeg counts as jpg), else null
+    private String extensionOf(String filename) {
+        if (filename == null) {
+            return null;
+        }
+        int dot = filename.lastIndexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        String ext = filename.substring(dot + 1).toLowerCase(Locale.ROOT);
+        if (ext.equals("jpeg")) {
+            ext = "jpg";
+        }
+        return extensions.contains(ext) ? ext : null;
+    }
+
+    private static boolean isPlainName(String name) {
+        return !name.isEmpty() && !name.startsWith(".") && !name.contains("/") && !name.contains("\\")
+                && !name.contains("..");
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
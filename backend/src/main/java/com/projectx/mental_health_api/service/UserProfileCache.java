@@ -0,0 +1,98 @@
+package com.projectx.mental_health_api.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.projectx.mental_health_api.model.User;
+
+/**
+ * Bounded cache of user profiles for GET /api/users/{id} (the profile screen and every chat
+ * page load it). Writes go through it (see UserProfileService), so this instance never serves
+ * a profile older than its own last write; the TTL bounds how long another instance's write
+ * can go unseen.
+ *
+ * Never hands out an older version than it holds: a slow read that loaded the row before a
+ * concurrent write can't overwrite the newer profile. The least recently used profile is
+ * evicted when full; max-entries=0 turns the cache off.
+ */
+@Component
+public class UserProfileCache {
+
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    // access-order LinkedHashMap = LRU; guarded by "this"
+    private final LinkedHashMap<UUID, Entry> entries;
+
+    // Cached users are never modified: writes replace them
+    private record Entry(User user, long storedAt) {
+    }
+
+    public UserProfileCache(@Value("${user.cache.ttl:5m}") Duration ttl,
+            @Value("${user.cache.max-entries:10000}") int maxEntries) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+                return size() > UserProfileCache.this.maxEntries;
+            }
+        };
+    }
+
+    /** The cached profile, or null on a miss. */
+    public synchronized User get(UUID id) {
+        Entry entry = entries.get(id);
+        if (entry != null && System.nanoTime() - entry.storedAt() > ttlNanos) {
+            entries.remove(id);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.user();
+    }
+
+    /** Caches a profile just read or written, unless a newer version is already cached. */
+    public synchronized void put(User user) {
+        if (maxEntries <= 0 || user == null || user.getId() == null) {
+            return;
+        }
+        Entry current = entries.get(user.getId());
+        if (current != null && isNewer(current.user(), user)) {
+            return;
+        }
+        entries.put(user.getId(), new Entry(user, System.nanoTime()));
+    }
+
+    public synchronized void evict(UUID id) {
+        entries.remove(id);
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static boolean isNewer(User a, User b) {
+        return a.getVersion() != null && b.getVersion() != null && a.getVersion() > b.getVersion();
+    }
+}
@@ -0,0 +1,251 @@
+package com.projectx.mental_health_api.service;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.projectx.mental_health_api.model.User;
+import com.projectx.mental_health_api.repository.UserRepository;
+
+/**
+ * Profile reads through the UserProfileCache, and RFC 7396 merge-patch updates.
+ *
+ * A patch is a JSON object of the fields to change ({"smsNotifications": false}); null
+ * clears a field, absent fields stay as they are. It becomes a single UPDATE of just those
+ * columns plus the version, with no read of the row first. passwordHash takes a raw
+ * password, as in PUT, hashed on the password pool before the UPDATE. preferences is merged into the stored document in the database
+ * (an object merges key by key, a string is the old free-text field and goes to "notes").
+ */
+@Service
+public class UserProfileService {
+
+    // Fields a patch may touch (JSON name = User field) and their types; the rest is read-only
+    private static final Map<String, Class<?>> PATCHABLE = Map.ofEntries(
+            Map.entry("email", String.class),
+            Map.entry("username", String.class),
+            Map.entry("passwordHash", String.class),
+            Map.entry("firstName", String.class),
+            Map.entry("fullName", String.class),
+            Map.entry("lastName", String.class),
+            Map.entry("phoneNumber", String.class),
+            Map.entry("preferences", Map.class),
+            Map.entry("progress", String.class),
+            Map.entry("profilePictureUrl", String.class),
+            Map.entry("dateOfBirth", LocalDate.class),
+            Map.entry("emailNotifications", Boolean.class),
+            Map.entry("smsNotifications", Boolean.class),
+            Map.entry("isActive", Boolean.class),
+            Map.entry("isEmailVerified", Boolean.class),
+            Map.entry("updates", String.class));
+
+    // Page size bounds for preference matching
+    private static final int MAX_MATCH_LIMIT = 5000;
+
+    // NOT NULL columns
+    private static final Set<String> REQUIRED = Set.of("email", "username", "passwordHash", "firstName", "lastName");
+
+    private final UserRepository userRepository;
+    private final UserProfileCache cache;
+    private final PasswordService passwordService;
+    private final ObjectMapper objectMapper;
+
+    public enum PatchStatus {
+        UPDATED, NOT_FOUND, VERSION_MISMATCH, INVALID, CONFLICT, BUSY
+    }
+
+    // user is set for UPDATED, error for INVALID / CONFLICT / BUSY
+    public record PatchResult(PatchStatus status, User user, String error) {
+    }
+
+    // One page of user ids, and the cursor for the next (null on the last page)
+    public record PreferenceMatches(List<UUID> userIds, UUID nextAfter, boolean hasMore) {
+    }
+
+    public UserProfileService(UserRepository userRepository, UserProfileCache cache,
+            PasswordService passwordService, ObjectMapper objectMapper) {
+        this.userRepository = userRepository;
+        this.cache = cache;
+        this.passwordService = passwordService;
+        this.objectMapper = objectMapper;
+    }
+
+    public Optional<User> find(UUID id) {
+        User cached = cache.get(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<User> user = userRepository.findById(id);
+        user.ifPresent(cache::put);
+        return user;
+    }
+
+    /** Write-through after any other save of a user (PUT, photo upload). */
+    public void saved(User user) {
+        cache.put(user);
+    }
+
+    public void deleted(UUID id) {
+        cache.evict(id);
+    }
+
+    /**
+     * Applies a merge patch; with expectedVersion (from If-Match), only on top of that version.
+     * Completes on the password pool when the patch changes the password (BUSY if it is full).
+     */
+    public CompletableFuture<PatchResult> patch(UUID id, JsonNode patch, Long expectedVersion) {
+        if (patch == null || !patch.isObject()) {
+            return invalid("a merge patch must be a JSON object");
+        }
+        Map<String, Object> changes = new LinkedHashMap<>();
+        String preferencesPatch = null;
+        for (Map.Entry<String, JsonNode> field : patch.properties()) {
+            String name = field.getKey();
+            JsonNode value = field.getValue();
+            Class<?> type = PATCHABLE.get(name);
+            if (type == null) {
+                return invalid(name + " can't be changed");
+            }
+            if (type == Map.class && !value.isNull()) {
+                if (value.isObject()) {
+                    preferencesPatch = value.toString();
+                } else if (value.isTextual()) {
+                    preferencesPatch = objectMapper.createObjectNode().put("notes", value.asText()).toString();
+                } else {
+                    return invalid(name + " must be an object");
+                }
+                continue;
+            }
+            if (value.isNull()) {
+                if (REQUIRED.contains(name)) {
+                    return invalid(name + " can't be removed");
+                }
+                changes.put(name, null);
+                continue;
+            }
+            try {
+                changes.put(name, valueOf(value, type));
+            } catch (IllegalArgumentException e) {
+                return invalid(name + " must be a " + type.getSimpleName());
+            }
+        }
+        Object password = changes.get("passwordHash");
+        if (password == null) {
+            return CompletableFuture.completedFuture(apply(id, changes, preferencesPatch, expectedVersion));
+        }
+        if (password.toString().isBlank()) {
+            return invalid("passwordHash can't be blank");
+        }
+        String preferences = preferencesPatch;
+        try {
+            return passwordService.hash(password.toString()).thenApply(hash -> {
+                changes.put("passwordHash", hash);
+                return apply(id, changes, preferences, expectedVersion);
+            });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(
+                    new PatchResult(PatchStatus.BUSY, null, "Too many password changes, please retry"));
+        }
+    }
+
+    private PatchResult apply(UUID id, Map<String, Object> changes, String preferencesPatch, Long expectedVersion) {
+        if (changes.isEmpty() && preferencesPatch == null) {
+            // Nothing to write; still answer for the version the client asked about
+            Optional<User> user = userRepository.findById(id);
+            if (user.isEmpty()) {
+                return new PatchResult(PatchStatus.NOT_FOUND, null, null);
+            }
+            if (expectedVersion != null && !expectedVersion.equals(user.get().getVersion())) {
+                return new PatchResult(PatchStatus.VERSION_MISMATCH, null, null);
+            }
+            return new PatchResult(PatchStatus.UPDATED, user.get(), null);
+        }
+
+        User patched;
+        try {
+            patched = preferencesPatch == null ? userRepository.patch(id, changes, expectedVersion)
+                    : userRepository.patchPreferences(id, preferencesPatch, changes, expectedVersion);
+        } catch (DataIntegrityViolationException e) {
+            return new PatchResult(PatchStatus.CONFLICT, null,
+                    "email or username is already taken, or a value is too long");
+        }
+        if (patched == null) {
+            return new PatchResult(userRepository.existsById(id) ? PatchStatus.VERSION_MISMATCH
+                    : PatchStatus.NOT_FOUND, null, null);
+        }
+        cache.put(patched);
+        return new PatchResult(PatchStatus.UPDATED, patched, null);
+    }
+
+    /** Merges a JSON object into the user's preferences (PATCH /api/users/{id}/preferences). */
+    public CompletableFuture<PatchResult> patchPreferences(UUID id, JsonNode preferences, Long expectedVersion) {
+        if (preferences == null || !preferences.isObject()) {
+            return invalid("preferences must be a JSON object");
+        }
+        return patch(id, objectMapper.createObjectNode().set("preferences", preferences), expectedVersion);
+    }
+
+    /**
+     * Ids of the users whose preferences contain filter (a JSON object: {"theme": "dark"},
+     * {"notifications": {"email": true}}), limit at a time in id order. Pass nextAfter back as
+     * after for the next page, so a segment job walks all matches without loading any users.
+     */
+    public PreferenceMatches matchPreferences(JsonNode filter, UUID after, int limit) {
+        if (filter == null || !filter.isObject()) {
+            throw new IllegalArgumentException("filter must be a JSON object");
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_MATCH_LIMIT));
+        List<UUID> rows = userRepository.findIdsByPreferences(filter.toString(),
+                after == null ? new UUID(0, 0) : after, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        List<UUID> page = hasMore ? rows.subList(0, pageSize) : rows;
+        return new PreferenceMatches(page, hasMore ? page.get(page.size() - 1) : null, hasMore);
+    }
+
+    /**
+     * The version in an If-Match header ("3" or W/"3"), null for none or "*",
+     * -1 (matches nothing) if it isn't one of our ETags.
+     */
+    public static Long versionOf(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    // Objects and arrays for a text field are kept as their JSON text
+    private Object valueOf(JsonNode value, Class<?> type) {
+        if (type == String.class) {
+            return value.isContainerNode() ? value.toString() : value.asText();
+        }
+        if (type == Boolean.class && !value.isBoolean()) {
+            throw new IllegalArgumentException();
+        }
+        return objectMapper.convertValue(value, type);
+    }
+
+    private static CompletableFuture<PatchResult> invalid(String error) {
+        return CompletableFuture.completedFuture(new PatchResult(PatchStatus.INVALID, null, error));
+    }
+}
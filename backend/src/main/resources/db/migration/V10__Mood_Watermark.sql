@@ -0,0 +1,13 @@
+-- Per-user progress of incremental mood tracking (see MoodTrackingService):
+-- the last chat_message already analysed plus the running, exponentially decayed scores.
+CREATE TABLE public.mood_watermark (
+    user_id character varying(255) NOT NULL,
+    last_message_id bigint NOT NULL DEFAULT 0,
+    decayed_sentiment double precision NOT NULL DEFAULT 0,
+    decayed_anger double precision NOT NULL DEFAULT 0,
+    messages_analyzed bigint NOT NULL DEFAULT 0,
+    last_entry_id bigint,
+    updated_at timestamp(6) without time zone,
+    version bigint NOT NULL DEFAULT 0,
+    CONSTRAINT mood_watermark_pkey PRIMARY KEY (user_id)
+);
@@ -0,0 +1,12 @@
+-- chat_message ids move from IDENTITY to a pooled sequence (allocation size 50) so Hibernate
+-- can hand out ids in memory and send inserts as JDBC batches.
+ALTER TABLE public.chat_message ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS public.chat_message_seq INCREMENT BY 50;
+
+-- Start past every existing id (Hibernate's pooled optimizer uses [value - 49, value])
+SELECT setval('public.chat_message_seq', COALESCE((SELECT MAX(id) FROM public.chat_message), 0) + 50);
+
+-- Keep plain SQL inserts working
+ALTER TABLE public.chat_message ALTER COLUMN id SET DEFAULT nextval('public.chat_message_seq');
+ALTER SEQUENCE public.chat_message_seq OWNED BY public.chat_message.id;
@@ -0,0 +1,9 @@
+-- History reads ("newest N messages / mood entries of a user") were sorting the whole table.
+-- (user_id, timestamp DESC, id DESC) serves them and the keyset pages of /api/chat/history
+-- straight from the index. Built CONCURRENTLY so chat writes are not blocked while it builds;
+-- Flyway runs this script outside a transaction because of that, so keep it to these statements.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_chat_message_user_ts
+    ON public.chat_message (user_id, "timestamp" DESC, id DESC);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_mood_entry_user_ts
+    ON public.mood_entry (user_id, "timestamp" DESC, id DESC);
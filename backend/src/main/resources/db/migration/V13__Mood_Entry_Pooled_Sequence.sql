@@ -0,0 +1,12 @@
+-- mood_entry ids move from IDENTITY to a pooled sequence (allocation size 50), like chat_message
+-- in V11, so the bulk mood recompute job (MoodRecomputeJob) can insert a page of entries as JDBC batches.
+ALTER TABLE public.mood_entry ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+CREATE SEQUENCE IF NOT EXISTS public.mood_entry_seq INCREMENT BY 50;
+
+-- Start past every existing id (Hibernate's pooled optimizer uses [value - 49, value])
+SELECT setval('public.mood_entry_seq', COALESCE((SELECT MAX(id) FROM public.mood_entry), 0) + 50);
+
+-- Keep plain SQL inserts working
+ALTER TABLE public.mood_entry ALTER COLUMN id SET DEFAULT nextval('public.mood_entry_seq');
+ALTER SEQUENCE public.mood_entry_seq OWNED BY public.mood_entry.id;
@@ -0,0 +1,35 @@
+-- Daily and weekly mood rollups per user, maintained as mood_entry rows are written
+-- (see MoodRollupService) and read by GET /api/mood/trends. Sums rather than means are kept
+-- so a new entry is folded in with a single upsert: mean = *_sum / entries.
+-- bucket is 'day' or 'week'; bucket_start is the day, or the Monday of the (ISO) week.
+CREATE TABLE public.mood_rollup (
+    user_id character varying(255) NOT NULL,
+    bucket character varying(8) NOT NULL,
+    bucket_start date NOT NULL,
+    entries bigint NOT NULL,
+    sentiment_sum double precision NOT NULL,
+    sentiment_min double precision NOT NULL,
+    sentiment_max double precision NOT NULL,
+    joy_sum double precision NOT NULL,
+    joy_min double precision NOT NULL,
+    joy_max double precision NOT NULL,
+    sadness_sum double precision NOT NULL,
+    sadness_min double precision NOT NULL,
+    sadness_max double precision NOT NULL,
+    anger_sum double precision NOT NULL,
+    anger_min double precision NOT NULL,
+    anger_max double precision NOT NULL,
+    CONSTRAINT mood_rollup_pkey PRIMARY KEY (user_id, bucket, bucket_start)
+);
+
+-- Backfill from the entries written so far (date_trunc('week') starts on Monday, like the service)
+INSERT INTO public.mood_rollup
+SELECT user_id, b.bucket, date_trunc(b.bucket, "timestamp")::date, count(*),
+       sum(overall_sentiment), min(overall_sentiment), max(overall_sentiment),
+       sum(joy_score), min(joy_score), max(joy_score),
+       sum(sadness_score), min(sadness_score), max(sadness_score),
+       sum(anger_score), min(anger_score), max(anger_score)
+FROM public.mood_entry
+CROSS JOIN (VALUES ('day'), ('week')) AS b(bucket)
+WHERE user_id IS NOT NULL AND "timestamp" IS NOT NULL
+GROUP BY user_id, b.bucket, date_trunc(b.bucket, "timestamp")::date;
@@ -0,0 +1,67 @@
+-- chat_message becomes a table of monthly range partitions on "timestamp" (chat_message_y2025m01, ...),
+-- so old months can be archived and detached (see ChatPartitionMaintenance) instead of one heap
+-- that vacuum, index builds and backups have to walk in full. Reads that sort on "timestamp"
+-- (history pages) only touch the newest partitions.
+--
+-- The partition key has to be part of the primary key, hence (id, "timestamp"); ids still come
+-- from chat_message_seq and stay unique. "timestamp" is now NOT NULL (ChatMessage always sets it).
+-- There is deliberately no DEFAULT partition: it would stop DETACH ... CONCURRENTLY.
+
+ALTER TABLE public.chat_message RENAME TO chat_message_unpartitioned;
+ALTER TABLE public.chat_message_unpartitioned ALTER COLUMN id DROP DEFAULT;
+ALTER SEQUENCE public.chat_message_seq OWNED BY NONE;
+
+CREATE TABLE public.chat_message (
+    id bigint NOT NULL DEFAULT nextval('public.chat_message_seq'),
+    content text,
+    is_user boolean NOT NULL,
+    "timestamp" timestamp(6) without time zone NOT NULL,
+    user_id character varying(255)
+) PARTITION BY RANGE ("timestamp");
+
+-- Creates any missing monthly partition from the month of from_month up to months_ahead months
+-- past the current one. Returns how many were created. Safe to call repeatedly (the app does so
+-- at startup and daily); months that were archived are never recreated because the range starts
+-- at the current month there.
+CREATE OR REPLACE FUNCTION public.ensure_chat_message_partitions(from_month date, months_ahead integer)
+RETURNS integer
+LANGUAGE plpgsql
+AS $$
+DECLARE
+    month date := date_trunc('month', from_month)::date;
+    last_month date := (date_trunc('month', now()) + make_interval(months => months_ahead))::date;
+    partition_name text;
+    created integer := 0;
+BEGIN
+    WHILE month <= last_month LOOP
+        partition_name := 'chat_message_y' || to_char(month, 'YYYY') || 'm' || to_char(month, 'MM');
+        IF to_regclass('public.' || partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE public.%I PARTITION OF public.chat_message FOR VALUES FROM (%L) TO (%L)',
+                           partition_name, month, (month + interval '1 month')::date);
+            created := created + 1;
+        END IF;
+        month := (month + interval '1 month')::date;
+    END LOOP;
+    RETURN created;
+END;
+$$;
+
+-- Partitions for every month that has messages, plus three ahead
+SELECT public.ensure_chat_message_partitions(
+    COALESCE((SELECT min("timestamp") FROM public.chat_message_unpartitioned), now())::date, 3);
+
+-- The odd legacy row without a timestamp goes into the oldest month
+INSERT INTO public.chat_message (id, content, is_user, "timestamp", user_id)
+SELECT id, content, is_user,
+       COALESCE("timestamp", (SELECT min("timestamp") FROM public.chat_message_unpartitioned), now()),
+       user_id
+FROM public.chat_message_unpartitioned;
+
+DROP TABLE public.chat_message_unpartitioned;
+
+ALTER SEQUENCE public.chat_message_seq OWNED BY public.chat_message.id;
+
+-- Declared on the parent, created on every partition (and on new ones automatically)
+ALTER TABLE public.chat_message ADD CONSTRAINT chat_message_pkey PRIMARY KEY (id, "timestamp");
+
+CREATE INDEX idx_chat_message_user_ts ON public.chat_message (user_id, "timestamp" DESC, id DESC);
@@ -0,0 +1,4 @@
+-- Optimistic locking for profile edits (User.version): every write bumps it, GET /api/users/{id}
+-- sends it as the ETag, and PUT/PATCH with If-Match only apply on top of the version the client saw.
+-- A constant default is kept in the catalog (no table rewrite), so this is instant on a big users table.
+ALTER TABLE public.users ADD COLUMN IF NOT EXISTS version bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,54 @@
+-- users.preferences back to jsonb (V4 had turned it into text), so settings can be changed
+-- and queried inside the document. The profile screen stored free text in it, so only valid
+-- JSON objects are kept as they are; any other text is kept under "notes", blank becomes NULL.
+-- ALTER TYPE rewrites the table under an exclusive lock: run it in a quiet window on big tables.
+CREATE OR REPLACE FUNCTION public.preferences_to_jsonb(t text) RETURNS jsonb
+    LANGUAGE plpgsql IMMUTABLE AS $$
+DECLARE
+    doc jsonb;
+BEGIN
+    IF t IS NULL OR btrim(t) = '' THEN
+        RETURN NULL;
+    END IF;
+    BEGIN
+        doc := t::jsonb;
+    EXCEPTION WHEN others THEN
+        RETURN jsonb_build_object('notes', t);
+    END;
+    IF jsonb_typeof(doc) = 'object' THEN
+        RETURN doc;
+    END IF;
+    RETURN jsonb_build_object('notes', t);
+END
+$$;
+
+ALTER TABLE public.users
+    ALTER COLUMN preferences TYPE jsonb USING public.preferences_to_jsonb(preferences);
+
+DROP FUNCTION public.preferences_to_jsonb(text);
+
+-- RFC 7396 merge patch of one jsonb document into another: keys set to null are removed,
+-- objects are merged key by key (jsonb_set), anything else replaces the old value.
+-- PATCH /api/users/{id}/preferences applies changes with it inside the UPDATE, so the
+-- document never makes a round trip through the application.
+CREATE OR REPLACE FUNCTION public.jsonb_merge_patch(target jsonb, patch jsonb) RETURNS jsonb
+    LANGUAGE plpgsql IMMUTABLE AS $$
+DECLARE
+    result jsonb;
+    k text;
+    v jsonb;
+BEGIN
+    IF patch IS NULL OR jsonb_typeof(patch) <> 'object' THEN
+        RETURN patch;
+    END IF;
+    result := CASE WHEN jsonb_typeof(target) = 'object' THEN target ELSE '{}'::jsonb END;
+    FOR k, v IN SELECT * FROM jsonb_each(patch) LOOP
+        IF jsonb_typeof(v) = 'null' THEN
+            result := result - k;
+        ELSE
+            result := jsonb_set(result, ARRAY[k], public.jsonb_merge_patch(result -> k, v), true);
+        END IF;
+    END LOOP;
+    RETURN result;
+END
+$$;
@@ -0,0 +1,6 @@
+-- Containment lookups on preferences (preferences @> '{"theme": "dark"}', see
+-- UserRepository.findIdsByPreferences). jsonb_path_ops only serves @>, which is all we run,
+-- and is a fraction of the size of the default jsonb_ops index.
+-- CONCURRENTLY, so Flyway runs this outside a transaction: keep it to this one statement.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_preferences
+    ON public.users USING gin (preferences jsonb_path_ops);
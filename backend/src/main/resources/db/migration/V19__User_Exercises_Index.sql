@@ -0,0 +1,7 @@
+-- /api/users/{id}/completed-exercises read and sorted every completion of the user, and the
+-- exercise-stats aggregate scanned the table. (user_id, completed_at DESC, id DESC) serves the
+-- keyset pages straight from the index; INCLUDE (exercise_id) lets the stats and the completed-ids
+-- lookup join to exercises without visiting the table (index-only scans).
+-- Built CONCURRENTLY, so Flyway runs this outside a transaction: keep it to this statement.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_user_exercises_user_completed
+    ON public.user_exercises (user_id, completed_at DESC, id DESC) INCLUDE (exercise_id);
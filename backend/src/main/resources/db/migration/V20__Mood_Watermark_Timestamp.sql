@@ -0,0 +1,14 @@
+-- The mood watermark was the highest analysed chat_message.id, but ids come from a pooled
+-- sequence (V11): a message with a lower id can commit after a higher one and was then never
+-- analysed. The watermark is now the (timestamp, id) of the last analysed message, and
+-- MoodTrackingService only reads messages older than chat.watermark-lag, which have all committed.
+ALTER TABLE public.mood_watermark ADD COLUMN last_message_at timestamp(6) without time zone;
+
+-- Existing watermarks take the timestamp of the message they point at; if that one has been
+-- archived since, the time of the last analysis is a close enough upper bound
+UPDATE public.mood_watermark w
+SET last_message_at = COALESCE(
+        (SELECT m."timestamp" FROM public.chat_message m
+         WHERE m.id = w.last_message_id AND m.user_id = w.user_id),
+        w.updated_at)
+WHERE w.last_message_id > 0;
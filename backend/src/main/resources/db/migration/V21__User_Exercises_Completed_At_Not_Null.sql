@@ -0,0 +1,11 @@
+-- completed_at was nullable (V5). Postgres sorts NULLs first under DESC, so a /completed-exercises
+-- page could end on a completion without a time: its cursor was refused, and the (completed_at, id)
+-- keyset comparison never returns such rows anyway. Those rows get the user's account creation
+-- time (the epoch if that is unknown too), the oldest moment they can have happened, so they sort
+-- last; after that the column can't be NULL any more.
+UPDATE public.user_exercises ue
+SET completed_at = COALESCE((SELECT u.created_at FROM public.users u WHERE u.id = ue.user_id),
+        TIMESTAMPTZ 'epoch')
+WHERE ue.completed_at IS NULL;
+
+ALTER TABLE public.user_exercises ALTER COLUMN completed_at SET NOT NULL;
@@ -0,0 +1,119 @@
+package com.projectx.mental_health_api.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.projectx.mental_health_api.dto.CompletedExercise;
+import com.projectx.mental_health_api.dto.ExerciseStats;
+import com.projectx.mental_health_api.model.Exercise;
+import com.projectx.mental_health_api.model.UserExercise;
+import com.projectx.mental_health_api.repository.ExerciseRepository;
+import com.projectx.mental_health_api.repository.UserExerciseRepository;
+
+@ActiveProfiles("test")
+@SpringBootTest
+class UserExerciseControllerTest {
+
+	private static final OffsetDateTime T0 = OffsetDateTime.of(2025, 3, 1, 12, 0, 0, 0, ZoneOffset.UTC);
+
+	@Autowired
+	private UserExerciseController controller;
+
+	@Autowired
+	private UserExerciseRepository userExercises;
+
+	@Autowired
+	private ExerciseRepository exercises;
+
+	private final UUID userId = UUID.randomUUID();
+
+	private Exercise exercise(String title, String category, int duration) {
+		Exercise e = new Exercise();
+		e.setTitle(title);
+		e.setCategory(category);
+		e.setDuration(duration);
+		e.setMoodType("Anxious");
+		return exercises.save(e);
+	}
+
+	private long complete(UUID user, Exercise exercise, OffsetDateTime at) {
+		UserExercise ue = new UserExercise();
+		ue.setUserId(user);
+		ue.setExercise(exercise);
+		ue.setCompletedAt(at);
+		return userExercises.save(ue).getId();
+	}
+
+	@Test
+	void pagesWalkEveryCompletionOnceNewestFirst() {
+		Exercise box = exercise("Box Breathing", "Breathing", 5);
+		Exercise grounding = exercise("5-4-3-2-1", "Grounding", 3);
+		long oldest = complete(userId, box, T0);
+		long tieA = complete(userId, grounding, T0.plusHours(1));
+		long tieB = complete(userId, box, T0.plusHours(1)); // same time: the higher id comes first
+		long newest = complete(userId, box, T0.plusHours(2));
+		complete(UUID.randomUUID(), box, T0.plusHours(3)); // someone else's
+
+		List<Long> seen = new ArrayList<>();
+		Long before = null;
+		int pages = 0;
+		do {
+			UserExerciseController.CompletedPage page = controller.getCompletedExercises(userId, before, 2).getBody();
+			page.exercises().forEach(e -> seen.add(e.completionId()));
+			assertEquals(page.hasMore(), page.nextBefore() != null);
+			before = page.nextBefore();
+			pages++;
+		} while (before != null);
+
+		assertEquals(List.of(newest, tieB, tieA, oldest), seen);
+		assertEquals(2, pages);
+
+		// Exactly a page's worth left: the last page says so instead of handing out a cursor
+		UserExerciseController.CompletedPage last = controller.getCompletedExercises(userId, tieB, 2).getBody();
+		assertFalse(last.hasMore());
+		assertNull(last.nextBefore());
+
+		ResponseEntity<?> foreignCursor = controller.getCompletedExercises(UUID.randomUUID(), newest, 2);
+		assertEquals(400, foreignCursor.getStatusCode().value());
+	}
+
+	@Test
+	void statsAggregateEveryCompletionPerCategory() {
+		Exercise box = exercise("Box Breathing", "Breathing", 5);
+		Exercise reset = exercise("30-Second Reset", "Breathing", 1);
+		Exercise record = exercise("Thought Record", "CBT", 10);
+		complete(userId, box, T0);
+		complete(userId, reset, T0.plusDays(1));
+		complete(userId, box, T0.plusDays(2));
+		complete(userId, record, T0.plusDays(3));
+
+		ExerciseStats stats = controller.getExerciseStats(userId).getBody();
+
+		assertEquals(4, stats.completed());
+		assertEquals(21, stats.minutes());
+		assertTrue(stats.lastCompletedAt().isEqual(T0.plusDays(3)));
+		assertEquals(List.of("Breathing", "CBT"), stats.categories().stream().map(ExerciseStats.CategoryStats::category).toList());
+		ExerciseStats.CategoryStats breathing = stats.categories().get(0);
+		assertEquals(3, breathing.completed());
+		assertEquals(11, breathing.minutes());
+		assertTrue(breathing.lastCompletedAt().isEqual(T0.plusDays(2)));
+
+		List<CompletedExercise> none = controller.getCompletedExercises(UUID.randomUUID(), null, 10).getBody().exercises();
+		assertTrue(none.isEmpty());
+		assertEquals(0, controller.getExerciseStats(UUID.randomUUID()).getBody().completed());
+	}
+}
@@ -0,0 +1,149 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.projectx.mental_health_api.MentalHealthApiApplication;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Blocking vs async /api/chat/send against a local stub LLM with a fixed delay.
+ * Not part of the normal build; run with:
+ *
+ * ./mvnw test -Dtest=ChatThroughputComparisonTest -Dperf=true
+ */
+@EnabledIfSystemProperty(named = "perf", matches = "true")
+class ChatThroughputComparisonTest {
+
+	private static final int STUB_DELAY_MS = 200;
+	private static final int TOMCAT_THREADS = 16;
+	private static final int CONCURRENCY = 200;
+	private static final int REQUESTS = 2_000;
+
+	private static final String STUB_COMPLETION = """
+			{"choices":[{"message":{"role":"assistant","content":"{\\"reply\\":\\"Hi there! I'm here for you.\\",\\"emotion\\":\\"HAPPY\\",\\"action\\":\\"WAVE\\",\\"targetObject\\":\\"NONE\\",\\"recommendedFilter\\":\\"NONE\\"}"}}]}
+			""";
+
+	private static HttpServer stubLlm;
+
+	@BeforeAll
+	static void startStubLlm() throws Exception {
+		stubLlm = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+		stubLlm.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		stubLlm.createContext("/openai/v1/chat/completions", exchange -> {
+			exchange.getRequestBody().readAllBytes();
+			try {
+				Thread.sleep(STUB_DELAY_MS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			byte[] body = STUB_COMPLETION.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		stubLlm.start();
+	}
+
+	@AfterAll
+	static void stopStubLlm() {
+		stubLlm.stop(0);
+	}
+
+	@Test
+	void compareBlockingAndAsyncThroughput() throws Exception {
+		double blocking = measure(false);
+		double async = measure(true);
+
+		System.out.println("=================================================");
+		System.out.printf("Stub LLM delay %d ms, %d Tomcat threads, %d concurrent clients, %d requests%n",
+				STUB_DELAY_MS, TOMCAT_THREADS, CONCURRENCY, REQUESTS);
+		System.out.printf("BLOCKING : %8.1f req/s%n", blocking);
+		System.out.printf("ASYNC    : %8.1f req/s%n", async);
+		System.out.println("=================================================");
+	}
+
+	private double measure(boolean asyncEnabled) throws Exception {
+		String stubUrl = "http://localhost:" + stubLlm.getAddress().getPort() + "/openai/v1/chat/completions";
+
+		try (ConfigurableApplicationContext app = new SpringApplicationBuilder(MentalHealthApiApplication.class)
+				.profiles("test")
+				.properties(
+						"server.port=0",
+						"server.tomcat.threads.max=" + TOMCAT_THREADS,
+						"spring.jpa.show-sql=false",
+						"groq.api.key=stub-key",
+						"groq.api.url=" + stubUrl,
+						"chat.async.enabled=" + asyncEnabled)
+				.run()) {
+
+			int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+			URI sendUri = URI.create("http://localhost:" + port + "/api/chat/send");
+			HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+			// Warm up connections, JIT and the DB pool before timing
+			fire(client, sendUri, CONCURRENCY);
+
+			long start = System.nanoTime();
+			int ok = fire(client, sendUri, REQUESTS);
+			double seconds = (System.nanoTime() - start) / 1e9;
+
+			assertEquals(REQUESTS, ok);
+			return REQUESTS / seconds;
+		}
+	}
+
+	private int fire(HttpClient client, URI sendUri, int requests) throws Exception {
+		Semaphore inFlight = new Semaphore(CONCURRENCY);
+		List<Future<Integer>> results = new ArrayList<>(requests);
+
+		try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < requests; i++) {
+				String body = "{\"message\":\"hello " + i + "\",\"userId\":\"perf-user\"}";
+				inFlight.acquire();
+				results.add(clients.submit(() -> {
+					try {
+						HttpRequest request = HttpRequest.newBuilder(sendUri)
+								.header("Content-Type", "application/json")
+								.POST(HttpRequest.BodyPublishers.ofString(body))
+								.build();
+						return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+					} finally {
+						inFlight.release();
+					}
+				}));
+			}
+		}
+
+		int ok = 0;
+		for (Future<Integer> result : results) {
+			if (result.get() == 200) {
+				ok++;
+			}
+		}
+		return ok;
+	}
+}
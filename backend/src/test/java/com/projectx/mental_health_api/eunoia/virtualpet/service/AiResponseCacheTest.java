@@ -0,0 +1,92 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.projectx.mental_health_api.eunoia.virtualpet.model.AiResponse;
+import com.projectx.mental_health_api.model.Exercise;
+
+class AiResponseCacheTest {
+
+	private static AiResponse reply(String text) {
+		return new AiResponse(text, "HAPPY", "NONE", "NONE", "NONE");
+	}
+
+	@Test
+	void keysOnlyShortNormalizedMessages() {
+		AiResponseCache cache = new AiResponseCache(true, Duration.ofMinutes(10), 10, 1, 4);
+
+		assertEquals("hi", cache.keyFor("Hi!!"));
+		assertEquals(cache.keyFor("i'm tired"), cache.keyFor("  IM TIRED. "));
+		assertNull(cache.keyFor("i had a really long day"));
+		assertNull(cache.keyFor("?!"));
+		assertNull(new AiResponseCache(false, Duration.ofMinutes(10), 10, 1, 4).keyFor("hi"));
+	}
+
+	@Test
+	void missesUntilAllVariantsAreCollectedThenRotates() {
+		AiResponseCache cache = new AiResponseCache(true, Duration.ofMinutes(10), 10, 2, 4);
+
+		cache.put("hi", reply("Hello!"));
+		assertNull(cache.get("hi"));
+		cache.put("hi", reply("Hey there!"));
+		cache.put("hi", reply("ignored, already full"));
+
+		assertEquals("Hello!", cache.get("hi").getReply());
+		assertEquals("Hey there!", cache.get("hi").getReply());
+		assertEquals("Hello!", cache.get("hi").getReply());
+		assertEquals(3, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	void expiredEntriesAreDropped() throws InterruptedException {
+		AiResponseCache cache = new AiResponseCache(true, Duration.ofMillis(20), 10, 1, 4);
+		cache.put("hi", reply("Hello!"));
+		assertNotNull(cache.get("hi"));
+
+		Thread.sleep(40);
+
+		assertNull(cache.get("hi"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedKeyWhenFull() {
+		AiResponseCache cache = new AiResponseCache(true, Duration.ofMinutes(10), 2, 1, 4);
+		cache.put("hi", reply("Hello!"));
+		cache.put("hello", reply("Hi!"));
+		cache.get("hi"); // "hello" is now the eldest
+
+		cache.put("hey", reply("Hey!"));
+
+		assertEquals(2, cache.size());
+		assertNotNull(cache.get("hi"));
+		assertNotNull(cache.get("hey"));
+		assertNull(cache.get("hello"));
+	}
+
+	@Test
+	void callersNeverShareTheCachedInstance() {
+		AiResponseCache cache = new AiResponseCache(true, Duration.ofMinutes(10), 10, 1, 4);
+		AiResponse original = reply("Hello!");
+		cache.put("hi", original);
+		original.setReply("mutated after put");
+
+		AiResponse first = cache.get("hi");
+		first.setReply("mutated after get");
+		first.setRecommendedExercises(List.of(new Exercise()));
+
+		AiResponse second = cache.get("hi");
+		assertNotSame(first, second);
+		assertEquals("Hello!", second.getReply());
+		assertNull(second.getRecommendedExercises());
+	}
+}
@@ -0,0 +1,118 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.projectx.mental_health_api.eunoia.virtualpet.model.ChatMessage;
+import com.projectx.mental_health_api.eunoia.virtualpet.repository.ChatMessageRepository;
+
+class ChatMessageWriterTest {
+
+	private final ChatMessageRepository repository = mock(ChatMessageRepository.class);
+	private final ChatMessageWriter writer = new ChatMessageWriter();
+	private final List<String> saved = new ArrayList<>();
+
+	@TempDir
+	Path dir;
+
+	private void start(int batchSize, int capacity) {
+		ReflectionTestUtils.setField(writer, "chatMessageRepository", repository);
+		ReflectionTestUtils.setField(writer, "writeBehind", true);
+		ReflectionTestUtils.setField(writer, "batchSize", batchSize);
+		ReflectionTestUtils.setField(writer, "flushInterval", Duration.ofHours(1)); // flushed by the test only
+		ReflectionTestUtils.setField(writer, "capacity", capacity);
+		ReflectionTestUtils.setField(writer, "maxAttempts", 3);
+		ReflectionTestUtils.setField(writer, "deadLetterFile", dir.resolve("dead-letter.csv"));
+		writer.init();
+
+		// Any batch holding "poison" fails as a whole, like a constraint violation would
+		when(repository.saveAll(anyList())).thenAnswer(inv -> {
+			List<ChatMessage> batch = inv.getArgument(0);
+			if (batch.stream().anyMatch(m -> m.getContent().equals("poison"))) {
+				throw new IllegalStateException("value too long");
+			}
+			batch.forEach(m -> saved.add(m.getContent()));
+			return batch;
+		});
+		doAnswer(inv -> {
+			ChatMessage m = inv.getArgument(0);
+			if (m.getContent().equals("poison")) {
+				throw new IllegalStateException("value too long");
+			}
+			saved.add(m.getContent());
+			return m;
+		}).when(repository).save(any(ChatMessage.class));
+	}
+
+	@AfterEach
+	void stop() {
+		ReflectionTestUtils.setField(writer, "maxAttempts", 0); // nothing left to drain
+		writer.shutdown();
+	}
+
+	@Test
+	void poisonRowIsDeadLetteredAfterMaxAttemptsAndStopsBlocking() throws Exception {
+		start(10, 100);
+		writer.write(new ChatMessage("hello", true, "u1"), new ChatMessage("poison", true, "u1"),
+				new ChatMessage("bye", true, "u1"));
+
+		writer.flush();
+		writer.flush();
+		assertTrue(saved.isEmpty());
+
+		writer.flush(); // third failure: split the batch up
+		assertEquals(List.of("hello", "bye"), saved);
+
+		writer.write(new ChatMessage("later", true, "u2"));
+		writer.flush();
+		assertEquals(List.of("hello", "bye", "later"), saved);
+
+		List<String> deadLetters = Files.readAllLines(dir.resolve("dead-letter.csv"));
+		assertEquals(2, deadLetters.size());
+		assertTrue(deadLetters.get(1).startsWith("0,\"poison\",true,"));
+		assertTrue(deadLetters.get(1).endsWith(",\"u1\""));
+	}
+
+	@Test
+	void fullBufferNeverThrowsIntoTheCaller() {
+		start(100, 2);
+
+		// The poison row fills the buffer with the first message: the writer has to flush inline
+		writer.write(new ChatMessage("poison", true, "u1"), new ChatMessage("one", true, "u1"),
+				new ChatMessage("two", true, "u1"));
+		writer.flush();
+
+		assertEquals(List.of("one", "two"), saved);
+	}
+
+	@Test
+	void messagesAreTimestampedWhenTheyAreInserted() throws Exception {
+		start(10, 100);
+		ChatMessage slow = new ChatMessage("asked before a slow reply", true, "u1");
+		Thread.sleep(20);
+
+		LocalDateTime beforeWrite = LocalDateTime.now();
+		writer.write(slow);
+		writer.flush();
+
+		assertEquals(List.of("asked before a slow reply"), saved);
+		assertTrue(!slow.getTimestamp().isBefore(beforeWrite));
+	}
+}
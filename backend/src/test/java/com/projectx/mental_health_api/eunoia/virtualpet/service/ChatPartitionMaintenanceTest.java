@@ -0,0 +1,31 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.YearMonth;
+
+import org.junit.jupiter.api.Test;
+
+class ChatPartitionMaintenanceTest {
+
+	@Test
+	void onlyMonthlyPartitionNamesAreRecognised() {
+		assertEquals(YearMonth.of(2025, 3), ChatPartitionMaintenance.monthOf("chat_message_y2025m03"));
+		assertNull(ChatPartitionMaintenance.monthOf("chat_message_default"));
+		assertNull(ChatPartitionMaintenance.monthOf("chat_message_y2025m03_old"));
+	}
+
+	@Test
+	void rowsAreWrittenAsQuotedCsv() throws IOException {
+		StringWriter out = new StringWriter();
+
+		ChatPartitionMaintenance.writeRow(out, 42, "she said \"hi\",\nthen left", true, "2025-03-01T10:15:30", "u1");
+		ChatPartitionMaintenance.writeRow(out, 43, null, false, "2025-03-01T10:16", null);
+
+		assertEquals("42,\"she said \"\"hi\"\",\nthen left\",true,2025-03-01T10:15:30,\"u1\"\n"
+				+ "43,,false,2025-03-01T10:16,\n", out.toString());
+	}
+}
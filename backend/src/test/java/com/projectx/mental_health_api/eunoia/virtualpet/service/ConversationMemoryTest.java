@@ -0,0 +1,85 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.util.unit.DataSize;
+
+import com.projectx.mental_health_api.eunoia.virtualpet.model.ChatMessage;
+import com.projectx.mental_health_api.eunoia.virtualpet.repository.ChatMessageRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ConversationMemoryTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final ChatMessageRepository repository = mock(ChatMessageRepository.class);
+
+	private ConversationMemory memory(int maxTurns, int tokenBudget, DataSize maxMemory) {
+		return new ConversationMemory(true, maxTurns, tokenBudget, Duration.ofMinutes(30), maxMemory,
+				repository, mock(ChatMessageWriter.class), new ChatMetrics(registry));
+	}
+
+	@Test
+	void seedsFromHistoryOnceThenServesFromMemory() {
+		when(repository.findPage(anyString(), any(Limit.class))).thenReturn(List.of(
+				new ChatMessage("Let's breathe together.", false, "u1"),
+				new ChatMessage("I feel anxious", true, "u1")));
+		ConversationMemory memory = memory(12, 1500, DataSize.ofMegabytes(1));
+
+		List<ConversationMemory.Turn> first = memory.recall("u1");
+		memory.record("u1", "ok, thanks", "Any time!");
+		List<ConversationMemory.Turn> second = memory.recall("u1");
+
+		assertEquals(List.of("user", "assistant"), first.stream().map(ConversationMemory.Turn::role).toList());
+		assertEquals("I feel anxious", first.get(0).content());
+		assertEquals("{\"reply\":\"Let's breathe together.\"}", first.get(1).content());
+		assertEquals(4, second.size());
+		assertEquals("{\"reply\":\"Any time!\"}", second.get(3).content());
+		verify(repository, times(1)).findPage(anyString(), any(Limit.class));
+	}
+
+	@Test
+	void keepsOnlyTheLastTurnsWithinTheTokenBudget() {
+		when(repository.findPage(anyString(), any(Limit.class))).thenReturn(List.of());
+		ConversationMemory memory = memory(4, 30, DataSize.ofMegabytes(1));
+		memory.recall("u1");
+
+		for (int i = 0; i < 5; i++) {
+			memory.record("u1", "message number " + i, "reply " + i);
+		}
+		List<ConversationMemory.Turn> turns = memory.recall("u1");
+
+		// 4 turns in the ring, but only the newest that fit 30 tokens are sent
+		assertTrue(turns.stream().mapToInt(ConversationMemory.Turn::tokens).sum() <= 30);
+		assertEquals("{\"reply\":\"reply 4\"}", turns.get(turns.size() - 1).content());
+		assertTrue(turns.size() < 4);
+	}
+
+	@Test
+	void evictsLeastRecentlyUsedContextsOverTheMemoryCap() {
+		when(repository.findPage(anyString(), any(Limit.class))).thenReturn(List.of());
+		ConversationMemory memory = memory(12, 1500, DataSize.ofBytes(2_000));
+
+		for (int i = 0; i < 50; i++) {
+			memory.recall("user-" + i);
+			memory.record("user-" + i, "hello there, how are you", "I'm doing well, thank you!");
+		}
+
+		assertTrue(memory.estimatedBytes() <= 2_000);
+		assertTrue(memory.size() < 50);
+		assertTrue(registry.counter("eunoia.context.evictions", "reason", "memory").count() > 0);
+		assertEquals(memory.estimatedBytes(), registry.get("eunoia.context.bytes").gauge().value());
+	}
+}
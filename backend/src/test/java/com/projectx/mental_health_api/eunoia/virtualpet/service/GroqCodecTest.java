@@ -0,0 +1,62 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.projectx.mental_health_api.eunoia.virtualpet.model.AiResponse;
+
+class GroqCodecTest {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final GroqCodec codec = new GroqCodec(objectMapper, "llama", "Be kind.\n\"JSON\" only", 0.7);
+
+	@Test
+	void encodesTheSameRequestAsTheTreeModel() throws Exception {
+		List<ConversationMemory.Turn> history = List.of(
+				new ConversationMemory.Turn("user", "I feel ünruhig 😟", 5),
+				new ConversationMemory.Turn("assistant", "{\"reply\":\"Let's breathe.\"}", 8));
+
+		byte[] body = codec.encode(history, "tab\there, quote \" and \\ backslash", true);
+
+		Map<String, Object> expected = Map.of(
+				"model", "llama",
+				"temperature", 0.7,
+				"stream", true,
+				"messages", List.of(
+						Map.of("role", "system", "content", "Be kind.\n\"JSON\" only"),
+						Map.of("role", "user", "content", "I feel ünruhig 😟"),
+						Map.of("role", "assistant", "content", "{\"reply\":\"Let's breathe.\"}"),
+						Map.of("role", "user", "content", "tab\there, quote \" and \\ backslash")));
+		assertEquals(objectMapper.valueToTree(expected), objectMapper.readTree(body));
+	}
+
+	@Test
+	void readsTheReplyFromAFencedCompletion() throws Exception {
+		String content = "Sure!\n```json\n{\"reply\":\"Hi {friend}\",\"emotion\":\"HAPPY\",\"action\":\"WAVE\","
+				+ "\"targetObject\":\"NONE\",\"recommendedFilter\":\"NONE\"}\n```";
+		String body = "{\"id\":\"x\",\"usage\":{\"total_tokens\":3},\"choices\":[{\"index\":0,\"message\":"
+				+ "{\"role\":\"assistant\",\"content\":" + objectMapper.writeValueAsString(content)
+				+ "}},{\"index\":1}]}";
+
+		AiResponse reply = codec.readReply(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+		assertEquals("Hi {friend}", reply.getReply());
+		assertEquals("WAVE", reply.getAction());
+		assertEquals(reply.getReply(), codec.bindReply(content, GroqCodec.replyStart(content)).getReply());
+	}
+
+	@Test
+	void readsStreamDeltas() throws Exception {
+		assertEquals(" relax", codec.readDelta("{\"id\":\"x\",\"choices\":[{\"index\":0,\"delta\":{\"role\":\"assistant\","
+				+ "\"content\":\" relax\"},\"finish_reason\":null}]}"));
+		assertNull(codec.readDelta("{\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}]}"));
+	}
+}
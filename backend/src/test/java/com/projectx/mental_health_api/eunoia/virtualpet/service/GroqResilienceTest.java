@@ -0,0 +1,140 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class GroqResilienceTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+	private final GroqResilience resilience = new GroqResilience();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(resilience, "enabled", true);
+		ReflectionTestUtils.setField(resilience, "minTimeout", Duration.ofSeconds(1));
+		ReflectionTestUtils.setField(resilience, "maxTimeout", Duration.ofSeconds(1));
+		ReflectionTestUtils.setField(resilience, "timeoutMultiplier", 2.0);
+		ReflectionTestUtils.setField(resilience, "hedgeEnabled", true);
+		ReflectionTestUtils.setField(resilience, "minHedgeDelay", Duration.ofMillis(50));
+		ReflectionTestUtils.setField(resilience, "latencyWindow", 50);
+		ReflectionTestUtils.setField(resilience, "minSamples", 5);
+		ReflectionTestUtils.setField(resilience, "breakerWindow", 4);
+		ReflectionTestUtils.setField(resilience, "breakerMinCalls", 4);
+		ReflectionTestUtils.setField(resilience, "breakerFailureRate", 50.0);
+		ReflectionTestUtils.setField(resilience, "breakerOpenDuration", Duration.ofMinutes(1));
+		ReflectionTestUtils.setField(resilience, "llmExecutor", executor);
+		ChatMetrics metrics = new ChatMetrics(registry);
+		GroqScheduler scheduler = new GroqScheduler();
+		ReflectionTestUtils.setField(scheduler, "enabled", true);
+		ReflectionTestUtils.setField(scheduler, "requestsPerMinute", 1_000);
+		ReflectionTestUtils.setField(scheduler, "tokensPerMinute", 1_000_000);
+		ReflectionTestUtils.setField(scheduler, "queueCapacity", 10);
+		ReflectionTestUtils.setField(scheduler, "maxWait", Duration.ofSeconds(1));
+		ReflectionTestUtils.setField(scheduler, "metrics", metrics);
+		scheduler.init();
+		ReflectionTestUtils.setField(resilience, "metrics", metrics);
+		ReflectionTestUtils.setField(resilience, "scheduler", scheduler);
+		resilience.init();
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void slowFirstAttemptIsOvertakenByTheHedge() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			resilience.call(100, hedge -> "warm-up");
+		}
+
+		long start = System.nanoTime();
+		String reply = resilience.call(100, hedge -> {
+			if (!hedge) {
+				Thread.sleep(5_000);
+			}
+			return hedge ? "hedge" : "first";
+		});
+
+		assertEquals("hedge", reply);
+		assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1_000);
+		assertEquals(1, registry.counter("eunoia.llm.hedges", "outcome", "won").count());
+	}
+
+	@Test
+	void callsThatOutliveTheTimeoutFailFast() {
+		ReflectionTestUtils.setField(resilience, "hedgeEnabled", false);
+		ReflectionTestUtils.setField(resilience, "maxTimeout", Duration.ofMillis(200));
+
+		GroqResilience.GroqUnavailableException e = assertThrows(GroqResilience.GroqUnavailableException.class,
+				() -> resilience.call(100, hedge -> {
+					Thread.sleep(5_000);
+					return "too late";
+				}));
+
+		assertEquals("timeout", e.getReason());
+		assertEquals(1, registry.counter("eunoia.llm.timeouts").count());
+	}
+
+	@Test
+	void openBreakerRefusesWithoutCallingGroq() {
+		AtomicInteger calls = new AtomicInteger();
+		GroqResilience.Attempt<String> failing = hedge -> {
+			calls.incrementAndGet();
+			throw new ResourceAccessException("connection reset", new IOException("reset"));
+		};
+		for (int i = 0; i < 4; i++) {
+			assertThrows(GroqResilience.GroqUnavailableException.class, () -> resilience.call(100, failing));
+		}
+
+		GroqResilience.GroqUnavailableException e = assertThrows(GroqResilience.GroqUnavailableException.class,
+				() -> resilience.call(100, failing));
+
+		assertEquals("open", e.getReason());
+		assertEquals(4, calls.get());
+		assertEquals(CircuitBreaker.State.OPEN, resilience.breakerState());
+	}
+
+	@Test
+	void rateLimitsPauseTheSchedulerInsteadOfTrippingTheBreaker() {
+		for (int i = 0; i < 6; i++) {
+			GroqResilience.GroqUnavailableException e = assertThrows(GroqResilience.GroqUnavailableException.class,
+					() -> resilience.call(100, hedge -> {
+						throw new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS);
+					}));
+			assertTrue(e.getReason().equals("rate-limited") || e.getReason().equals("throttled"));
+		}
+
+		assertEquals(CircuitBreaker.State.CLOSED, resilience.breakerState());
+		assertTrue(registry.counter("eunoia.llm.rate.limited").count() >= 1);
+	}
+
+	@Test
+	void clientErrorsAreNotBlamedOnTheProvider() {
+		for (int i = 0; i < 6; i++) {
+			assertThrows(HttpClientErrorException.class, () -> resilience.call(100, hedge -> {
+				throw new HttpClientErrorException(HttpStatus.UNAUTHORIZED);
+			}));
+		}
+
+		assertEquals(CircuitBreaker.State.CLOSED, resilience.breakerState());
+	}
+}
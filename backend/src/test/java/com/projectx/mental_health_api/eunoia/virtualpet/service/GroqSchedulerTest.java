@@ -0,0 +1,82 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class GroqSchedulerTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final GroqScheduler scheduler = new GroqScheduler();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(scheduler, "enabled", true);
+		ReflectionTestUtils.setField(scheduler, "requestsPerMinute", 600);
+		ReflectionTestUtils.setField(scheduler, "tokensPerMinute", 1_000_000);
+		ReflectionTestUtils.setField(scheduler, "queueCapacity", 10);
+		ReflectionTestUtils.setField(scheduler, "maxWait", Duration.ofSeconds(5));
+		ReflectionTestUtils.setField(scheduler, "metrics", new ChatMetrics(registry));
+		scheduler.init();
+	}
+
+	@Test
+	void interactiveCallsGoBeforeQueuedBackgroundWork() throws Exception {
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.RETRY_AFTER, "0.3");
+		scheduler.onRateLimited(headers); // everyone queues until the pause is over
+		List<String> order = new CopyOnWriteArrayList<>();
+
+		try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < 3; i++) {
+				pool.submit(() -> acquire(GroqScheduler.Priority.BACKGROUND, "background", order));
+			}
+			while (scheduler.queueDepth() < 3) {
+				Thread.sleep(5);
+			}
+			pool.submit(() -> acquire(GroqScheduler.Priority.INTERACTIVE, "interactive", order));
+		}
+
+		assertEquals(List.of("interactive", "background", "background", "background"), order);
+	}
+
+	@Test
+	void givesUpWhenTheQuotaWouldTakeLongerThanMaxWait() throws Exception {
+		ReflectionTestUtils.setField(scheduler, "maxWait", Duration.ofMillis(50));
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.RETRY_AFTER, "30");
+		scheduler.onRateLimited(headers);
+
+		GroqResilience.GroqUnavailableException e = assertThrows(GroqResilience.GroqUnavailableException.class,
+				() -> scheduler.acquire(GroqScheduler.Priority.INTERACTIVE, 10));
+
+		assertEquals("throttled", e.getReason());
+		assertEquals(0, scheduler.queueDepth());
+	}
+
+	@Test
+	void parsesGroqResetDurations() {
+		assertEquals(Duration.ofMillis(7_660), GroqScheduler.duration("7.66s"));
+		assertEquals(Duration.ofMillis(179_560), GroqScheduler.duration("2m59.56s"));
+		assertEquals(Duration.ofMillis(250), GroqScheduler.duration("250ms"));
+		assertEquals(Duration.ofSeconds(3_723), GroqScheduler.duration("1h2m3s"));
+	}
+
+	private Void acquire(GroqScheduler.Priority priority, String label, List<String> order) throws Exception {
+		scheduler.acquire(priority, 1);
+		order.add(label);
+		return null;
+	}
+}
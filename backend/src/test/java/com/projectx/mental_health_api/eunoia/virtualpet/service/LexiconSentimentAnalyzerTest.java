@@ -0,0 +1,35 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import com.projectx.mental_health_api.eunoia.virtualpet.service.SentimentService.SentimentResult;
+
+class LexiconSentimentAnalyzerTest {
+
+	private final LexiconSentimentAnalyzer analyzer =
+			new LexiconSentimentAnalyzer(new ClassPathResource("sentiment/lexicon.tsv"));
+
+	@Test
+	void scoresPositiveAndNegativeText() {
+		assertEquals("positive", analyzer.analyze("Today was GREAT, I feel so happy!").type());
+		assertEquals("negative", analyzer.analyze("I'm exhausted and really anxious").type());
+		assertEquals("neutral", analyzer.analyze("I had pasta for lunch").type());
+	}
+
+	@Test
+	void negationFlipsSentiment() {
+		SentimentResult result = analyzer.analyze("I don't feel happy at all");
+
+		assertTrue(result.score() < 0);
+	}
+
+	@Test
+	void fillsAngerOnlyForAngryText() {
+		assertTrue(analyzer.analyze("I'm so angry and frustrated with him").anger() > 0.5);
+		assertEquals(0.0, analyzer.analyze("I'm sad and tired").anger());
+	}
+}
@@ -0,0 +1,143 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.projectx.mental_health_api.eunoia.virtualpet.model.MoodEntry;
+import com.projectx.mental_health_api.eunoia.virtualpet.model.MoodWatermark;
+import com.projectx.mental_health_api.eunoia.virtualpet.repository.ChatMessageRepository;
+import com.projectx.mental_health_api.eunoia.virtualpet.repository.MoodWatermarkRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MoodRecomputeJobTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+	private final ChatMessageRepository chatRepository = mock(ChatMessageRepository.class);
+	private final MoodWatermarkRepository watermarkRepository = mock(MoodWatermarkRepository.class);
+	private final MoodTrackingService tracking = mock(MoodTrackingService.class);
+	private final MoodRecomputeJob job = new MoodRecomputeJob();
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(job, "scheduleEnabled", true);
+		ReflectionTestUtils.setField(job, "pageSize", 10);
+		ReflectionTestUtils.setField(job, "concurrency", 3);
+		ReflectionTestUtils.setField(job, "chatRepository", chatRepository);
+		ReflectionTestUtils.setField(job, "watermarkRepository", watermarkRepository);
+		ReflectionTestUtils.setField(job, "moodTrackingService", tracking);
+		ReflectionTestUtils.setField(job, "chatMessageWriter", mock(ChatMessageWriter.class));
+		ReflectionTestUtils.setField(job, "metrics", new ChatMetrics(registry));
+		ReflectionTestUtils.setField(job, "llmExecutor", executor);
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	void walksEveryUserPageByPageWithBoundedConcurrency() {
+		List<String> users = IntStream.range(0, 25).mapToObj(i -> String.format("user-%02d", i)).toList();
+		when(chatRepository.findUserIdsAfter(anyString(), any(Limit.class))).thenAnswer(inv -> {
+			String after = inv.getArgument(0);
+			return users.stream().filter(u -> u.compareTo(after) > 0).limit(10).toList();
+		});
+		when(watermarkRepository.findAllById(anyList())).thenReturn(List.of());
+
+		AtomicInteger inFlight = new AtomicInteger();
+		AtomicInteger maxInFlight = new AtomicInteger();
+		when(tracking.analyze(any(MoodWatermark.class))).thenAnswer(inv -> {
+			MoodWatermark watermark = inv.getArgument(0);
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			Thread.sleep(20);
+			inFlight.decrementAndGet();
+			// Every other user has nothing new to score
+			boolean odd = Integer.parseInt(watermark.getUserId().substring(5)) % 2 == 1;
+			return odd ? null : new MoodTrackingService.Analysis(watermark, null, new MoodEntry(), 2, true);
+		});
+		when(tracking.saveAll(anyList())).thenAnswer(inv -> ((List<?>) inv.getArgument(0)).size());
+
+		job.nightly();
+
+		MoodRecomputeJob.Status status = job.status();
+		assertEquals("completed", status.state());
+		assertEquals(25, status.usersScanned());
+		assertEquals(13, status.usersUpdated());
+		assertEquals(26, status.messagesScored());
+		assertTrue(maxInFlight.get() <= 3, "at most 3 users scored at once, saw " + maxInFlight.get());
+		assertTrue(maxInFlight.get() > 1, "users should be scored in parallel");
+		verify(tracking, times(3)).saveAll(anyList()); // one batched save per page
+		assertEquals(12, registry.counter("eunoia.mood.recompute.users", "result", "unchanged").count());
+	}
+
+	@Test
+	void usersWithABacklogGetMorePassesUntilCaughtUp() {
+		when(chatRepository.findUserIdsAfter(anyString(), any(Limit.class))).thenAnswer(inv -> {
+			String after = inv.getArgument(0);
+			return after.isEmpty() ? List.of("behind", "current") : List.of();
+		});
+		when(watermarkRepository.findAllById(anyList())).thenReturn(List.of());
+
+		// "behind" has three capped batches waiting, "current" one
+		AtomicInteger behindBatches = new AtomicInteger(3);
+		when(tracking.analyze(any(MoodWatermark.class))).thenAnswer(inv -> {
+			MoodWatermark watermark = inv.getArgument(0);
+			boolean caughtUp = !watermark.getUserId().equals("behind") || behindBatches.decrementAndGet() == 0;
+			return new MoodTrackingService.Analysis(watermark, null, new MoodEntry(), 20, caughtUp);
+		});
+		when(tracking.saveAll(anyList())).thenAnswer(inv -> ((List<?>) inv.getArgument(0)).size());
+
+		job.nightly();
+
+		MoodRecomputeJob.Status status = job.status();
+		assertEquals("completed", status.state());
+		assertEquals(2, status.usersScanned());
+		assertEquals(2, status.usersUpdated());
+		assertEquals(80, status.messagesScored());
+		verify(tracking, times(4)).analyze(any(MoodWatermark.class));
+		verify(tracking, times(3)).saveAll(anyList());
+	}
+
+	@Test
+	void onlyOneRunAtATime() throws Exception {
+		when(chatRepository.findUserIdsAfter(anyString(), any(Limit.class))).thenAnswer(inv -> {
+			Thread.sleep(300);
+			return List.of();
+		});
+
+		assertTrue(job.start());
+		assertFalse(job.start());
+		assertEquals("running", job.status().state());
+
+		long deadline = System.currentTimeMillis() + 5_000;
+		boolean restarted;
+		while (!(restarted = job.start()) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(20);
+		}
+		assertTrue(restarted);
+		assertEquals("running", job.status().state()); // the second run
+		assertEquals(0, job.status().usersScanned());
+	}
+}
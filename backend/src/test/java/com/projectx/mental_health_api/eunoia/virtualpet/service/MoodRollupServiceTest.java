@@ -0,0 +1,88 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.projectx.mental_health_api.eunoia.virtualpet.model.MoodEntry;
+import com.projectx.mental_health_api.eunoia.virtualpet.model.MoodRollup;
+import com.projectx.mental_health_api.eunoia.virtualpet.repository.MoodRollupRepository;
+
+class MoodRollupServiceTest {
+
+	private final MoodRollupRepository repository = mock(MoodRollupRepository.class);
+	private final MoodRollupService service = new MoodRollupService();
+
+	MoodRollupServiceTest() {
+		ReflectionTestUtils.setField(service, "rollupRepository", repository);
+	}
+
+	private static MoodEntry entry(String userId, String timestamp, double sentiment) {
+		MoodEntry entry = new MoodEntry();
+		entry.setUserId(userId);
+		entry.setTimestamp(LocalDateTime.parse(timestamp));
+		entry.setOverallSentiment(sentiment);
+		entry.setJoyScore(Math.max(sentiment, 0));
+		entry.setSadnessScore(Math.max(-sentiment, 0));
+		return entry;
+	}
+
+	@Test
+	void foldsEntriesIntoOneUpsertPerDayAndWeek() {
+		List<MoodRollup> upserts = new ArrayList<>();
+		when(repository.upsert(any())).thenAnswer(inv -> {
+			upserts.add(inv.getArgument(0));
+			return 1;
+		});
+
+		// Sunday evening, then twice on Monday: two days, two ISO weeks
+		service.record(List.of(
+				entry("u1", "2026-10-11T21:00:00", 0.5),
+				entry("u1", "2026-10-12T08:00:00", -0.2),
+				entry("u1", "2026-10-12T19:30:00", 0.8)));
+
+		assertEquals(4, upserts.size());
+		MoodRollup monday = upserts.stream()
+				.filter(r -> r.getBucket().equals(MoodRollup.DAY) && r.getBucketStart().equals(LocalDate.of(2026, 10, 12)))
+				.findFirst().orElseThrow();
+		assertEquals(2, monday.getEntries());
+		assertEquals(0.6, monday.getSentimentSum(), 1e-9);
+		assertEquals(-0.2, monday.getSentimentMin());
+		assertEquals(0.8, monday.getSentimentMax());
+		assertEquals(0.2, monday.getSadnessMax(), 1e-9);
+
+		List<LocalDate> weeks = upserts.stream().filter(r -> r.getBucket().equals(MoodRollup.WEEK))
+				.map(MoodRollup::getBucketStart).toList();
+		assertEquals(List.of(LocalDate.of(2026, 10, 5), LocalDate.of(2026, 10, 12)), weeks);
+	}
+
+	@Test
+	void trendsTurnSumsIntoMeansAndStartAtTheWeekContainingFrom() {
+		MoodRollup week = new MoodRollup();
+		week.setBucketStart(LocalDate.of(2026, 10, 12));
+		week.setEntries(4);
+		week.setSentimentSum(-1.0);
+		week.setSentimentMin(-0.5);
+		week.setSentimentMax(0.25);
+		when(repository.findByUserIdAndBucketAndBucketStartBetweenOrderByBucketStartAsc("u1", MoodRollup.WEEK,
+				LocalDate.of(2026, 10, 12), LocalDate.of(2026, 10, 31))).thenReturn(List.of(week));
+
+		List<MoodRollupService.MoodTrend> trends = service.trends("u1", MoodRollup.WEEK,
+				LocalDate.of(2026, 10, 15), LocalDate.of(2026, 10, 31));
+
+		assertEquals(1, trends.size());
+		assertEquals(new MoodRollupService.Stat(-0.25, -0.5, 0.25), trends.get(0).sentiment());
+		verify(repository).findByUserIdAndBucketAndBucketStartBetweenOrderByBucketStartAsc("u1", MoodRollup.WEEK,
+				LocalDate.of(2026, 10, 12), LocalDate.of(2026, 10, 31));
+	}
+}
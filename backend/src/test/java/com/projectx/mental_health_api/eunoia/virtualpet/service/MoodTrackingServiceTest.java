@@ -0,0 +1,85 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.projectx.mental_health_api.eunoia.virtualpet.model.ChatMessage;
+import com.projectx.mental_health_api.eunoia.virtualpet.model.MoodWatermark;
+import com.projectx.mental_health_api.eunoia.virtualpet.repository.MoodWatermarkRepository;
+
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:moodtracking",
+		"sentiment.engine=lexicon",
+		"chat.watermark-lag=200ms",
+		"mood.max-messages-per-analysis=3" })
+class MoodTrackingServiceTest {
+
+	private static final long SETTLE_MS = 400;
+
+	@Autowired
+	private MoodTrackingService tracking;
+
+	@Autowired
+	private ChatMessageWriter writer;
+
+	@Autowired
+	private MoodWatermarkRepository watermarks;
+
+	// Its upsert is Postgres-only (ON CONFLICT ... DO UPDATE)
+	@MockBean
+	private MoodRollupService rollupService;
+
+	private final String userId = "mood-" + UUID.randomUUID();
+
+	private long analyzed() {
+		return watermarks.findById(userId).map(MoodWatermark::getMessagesAnalyzed).orElse(0L);
+	}
+
+	@Test
+	void messageCommittedAfterTheLagIsStillScored() throws Exception {
+		// Built first, but only saved once its (slow) reply is back, long after the lag
+		ChatMessage slowTurn = new ChatMessage("I feel awful and sad", true, userId);
+
+		writer.write(new ChatMessage("I am happy today", true, userId));
+		Thread.sleep(SETTLE_MS);
+		assertNotNull(tracking.refresh(userId));
+		assertEquals(1, analyzed());
+
+		writer.write(slowTurn);
+		Thread.sleep(SETTLE_MS);
+		tracking.refresh(userId);
+		assertEquals(2, analyzed());
+	}
+
+	@Test
+	void backlogIsWorkedThroughOldestFirstWithoutDroppingMessages() throws Exception {
+		writer.write(new ChatMessage("hello", true, userId));
+		Thread.sleep(SETTLE_MS);
+		tracking.refresh(userId);
+		assertEquals(1, analyzed());
+
+		for (int i = 0; i < 7; i++) {
+			writer.write(new ChatMessage("message " + i, true, userId));
+		}
+		Thread.sleep(SETTLE_MS);
+
+		// Three per refresh (the cap), then the remaining one
+		tracking.refresh(userId);
+		assertEquals(4, analyzed());
+		tracking.refresh(userId);
+		assertEquals(7, analyzed());
+		tracking.refresh(userId);
+		assertEquals(8, analyzed());
+		tracking.refresh(userId);
+		assertEquals(8, analyzed());
+	}
+}
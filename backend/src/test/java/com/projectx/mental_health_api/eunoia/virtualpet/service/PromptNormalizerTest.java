@@ -0,0 +1,26 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class PromptNormalizerTest {
+
+	@Test
+	void equivalentGreetingsShareOneKey() {
+		assertEquals("hi", PromptNormalizer.normalize("Hi!"));
+		assertEquals("hi", PromptNormalizer.normalize("  hi "));
+		assertEquals("hi", PromptNormalizer.normalize("HI!!"));
+		assertEquals("im tired", PromptNormalizer.normalize("I'm\t tired..."));
+		assertEquals("good morning", PromptNormalizer.normalize("good 🌞 morning"));
+		assertEquals("", PromptNormalizer.normalize("?!"));
+		assertEquals("", PromptNormalizer.normalize(null));
+	}
+
+	@Test
+	void countsWordsOfNormalizedText() {
+		assertEquals(0, PromptNormalizer.wordCount(""));
+		assertEquals(1, PromptNormalizer.wordCount("hi"));
+		assertEquals(3, PromptNormalizer.wordCount(PromptNormalizer.normalize(" how are   you? ")));
+	}
+}
@@ -0,0 +1,44 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ReplyFieldStreamerTest {
+
+	@Test
+	void streamsReplyAcrossChunkBoundaries() {
+		StringBuilder out = new StringBuilder();
+		ReplyFieldStreamer streamer = new ReplyFieldStreamer(out::append);
+
+		String json = "{\"reply\": \"Hi \\\"friend\\\"\\nI\\u2019m here.\", \"emotion\": \"HAPPY\"}";
+		for (int i = 0; i < json.length(); i += 3) {
+			streamer.accept(json.substring(i, Math.min(json.length(), i + 3)));
+		}
+
+		assertEquals("Hi \"friend\"\nI’m here.", out.toString());
+		assertTrue(streamer.isDone());
+	}
+
+	@Test
+	void ignoresTextBeforeTheJsonObject() {
+		StringBuilder out = new StringBuilder();
+		ReplyFieldStreamer streamer = new ReplyFieldStreamer(out::append);
+
+		streamer.accept("Sure! ```json\n{\"emotion\":\"CALM\",\"reply\":\"Breathe with me.\"}```");
+
+		assertEquals("Breathe with me.", out.toString());
+	}
+
+	@Test
+	void keepsMalformedUnicodeEscapesAsText() {
+		StringBuilder out = new StringBuilder();
+		ReplyFieldStreamer streamer = new ReplyFieldStreamer(out::append);
+
+		streamer.accept("{\"reply\": \"50\\u00zz off\\u12\"}");
+
+		assertEquals("50\\u00zz off\\u12", out.toString());
+		assertTrue(streamer.isDone());
+	}
+}
@@ -0,0 +1,123 @@
+package com.projectx.mental_health_api.eunoia.virtualpet.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.projectx.mental_health_api.eunoia.virtualpet.model.AiResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RequestCoalescerTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final RequestCoalescer coalescer = new RequestCoalescer();
+	private final GroqResilience resilience = mock(GroqResilience.class);
+
+	@BeforeEach
+	void setUp() {
+		ReflectionTestUtils.setField(coalescer, "enabled", true);
+		ReflectionTestUtils.setField(coalescer, "joinWindow", Duration.ofSeconds(2));
+		ReflectionTestUtils.setField(coalescer, "metrics", new ChatMetrics(registry));
+		ReflectionTestUtils.setField(coalescer, "resilience", resilience);
+		when(resilience.callDeadline()).thenReturn(Duration.ofSeconds(10));
+	}
+
+	@Test
+	void concurrentIdenticalPromptsShareOneCall() throws Exception {
+		AtomicInteger upstreamCalls = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		int callers = 20;
+
+		List<Future<AiResponse>> results = new ArrayList<>();
+		try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < callers; i++) {
+				String message = i % 2 == 0 ? "Hi!" : "hi";
+				results.add(pool.submit(() -> coalescer.execute(coalescer.keyFor(message), () -> {
+					upstreamCalls.incrementAndGet();
+					await(release);
+					return new AiResponse("Hello!", "HAPPY", "WAVE", "NONE", "NONE");
+				})));
+			}
+			while (registry.counter("eunoia.llm.coalesced").count() < callers - 1) {
+				Thread.sleep(5);
+			}
+			release.countDown();
+		}
+
+		assertEquals(1, upstreamCalls.get());
+		for (Future<AiResponse> result : results) {
+			assertEquals("Hello!", result.get().getReply());
+		}
+		assertNotSame(results.get(0).get(), results.get(1).get());
+	}
+
+	@Test
+	void nothingIsKeptAfterTheCallCompletes() {
+		String key = coalescer.keyFor("hello");
+
+		coalescer.execute(key, () -> new AiResponse("one", "HAPPY", "IDLE", "NONE", "NONE"));
+		AiResponse second = coalescer.execute(key, () -> new AiResponse("two", "HAPPY", "IDLE", "NONE", "NONE"));
+
+		assertEquals("two", second.getReply());
+	}
+
+	@Test
+	void conversationContextIsPartOfTheKey() {
+		List<ConversationMemory.Turn> history = List.of(new ConversationMemory.Turn("user", "my cat died", 4),
+				new ConversationMemory.Turn("assistant", "I'm so sorry.", 4));
+		List<ConversationMemory.Turn> other = List.of(new ConversationMemory.Turn("user", "i got the job", 4));
+
+		assertEquals("hi", coalescer.keyFor("Hi!", List.of()));
+		assertEquals(coalescer.keyFor("Hi!", history), coalescer.keyFor("hi", List.copyOf(history)));
+		assertNotEquals(coalescer.keyFor("hi"), coalescer.keyFor("hi", history));
+		assertNotEquals(coalescer.keyFor("hi", history), coalescer.keyFor("hi", other));
+	}
+
+	@Test
+	void followersGiveUpAtTheResilienceDeadline() throws Exception {
+		when(resilience.callDeadline()).thenReturn(Duration.ofMillis(200));
+		CountDownLatch leaderStarted = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+			Future<AiResponse> leader = pool.submit(() -> coalescer.execute("hi", () -> {
+				leaderStarted.countDown();
+				await(release);
+				return new AiResponse("Hello!", "HAPPY", "WAVE", "NONE", "NONE");
+			}));
+			leaderStarted.await();
+
+			GroqResilience.GroqUnavailableException e = assertThrows(GroqResilience.GroqUnavailableException.class,
+					() -> coalescer.execute("hi", () -> new AiResponse("own call", "HAPPY", "IDLE", "NONE", "NONE")));
+			assertEquals("timeout", e.getReason());
+
+			release.countDown();
+			assertEquals("Hello!", leader.get().getReply());
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,112 @@
+package com.projectx.mental_health_api.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+class AvatarThumbnailerTest {
+
+	@TempDir
+	Path uploads;
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private AvatarThumbnailer thumbnailer(long maxPixels) {
+		UploadStore store = new UploadStore(uploads, DataSize.ofMegabytes(5), List.of("jpg", "png"), Duration.ofHours(1),
+				null);
+		return new AvatarThumbnailer(store, List.of(256, 64, 128), maxPixels, executor);
+	}
+
+	private void photo(String name, int width, int height) throws Exception {
+		BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		g.setColor(Color.BLUE);
+		g.fillRect(0, 0, width, height);
+		g.setColor(Color.RED);
+		g.fillRect(width / 2 - 10, height / 2 - 10, 20, 20);
+		g.dispose();
+		ImageIO.write(image, name.substring(name.lastIndexOf('.') + 1), uploads.resolve(name).toFile());
+	}
+
+	@Test
+	void uploadsGetSquareThumbnailsInEverySize() throws Exception {
+		photo("u1_1_me.jpg", 1200, 800);
+		AvatarThumbnailer thumbnailer = thumbnailer(40_000_000);
+
+		assertTrue(thumbnailer.generateAsync("u1_1_me.jpg").get());
+
+		for (int size : List.of(64, 128, 256)) {
+			BufferedImage thumb = ImageIO.read(thumbnailer.thumbnailPath(size, "u1_1_me.jpg").toFile());
+			assertEquals(size, thumb.getWidth());
+			assertEquals(size, thumb.getHeight());
+		}
+		// Centre crop: the red square in the middle of the photo stays in the middle
+		BufferedImage thumb = ImageIO.read(thumbnailer.thumbnailPath(256, "u1_1_me.jpg").toFile());
+		assertTrue(new Color(thumb.getRGB(128, 128)).getRed() > 200);
+		assertTrue(new Color(thumb.getRGB(5, 5)).getBlue() > 200);
+	}
+
+	@Test
+	void missingThumbnailsAreMadeOnDemandOnlyForKnownSizesAndNames() throws Exception {
+		photo("u1_2_me.png", 300, 300);
+		AvatarThumbnailer thumbnailer = thumbnailer(40_000_000);
+
+		assertTrue(thumbnailer.ensure(64, "u1_2_me.png", Duration.ofSeconds(5)));
+		assertTrue(Files.exists(thumbnailer.thumbnailPath(128, "u1_2_me.png")));
+		assertFalse(thumbnailer.ensure(100, "u1_2_me.png", Duration.ofSeconds(5)));
+		assertFalse(thumbnailer.ensure(64, "../u1_2_me.png", Duration.ofSeconds(5)));
+		assertFalse(thumbnailer.ensure(64, "missing.png", Duration.ofSeconds(5)));
+	}
+
+	@Test
+	void requestsWaitForThePoolInsteadOfDecodingThemselves() throws Exception {
+		photo("u1_4_me.png", 300, 300);
+		AvatarThumbnailer thumbnailer = thumbnailer(40_000_000);
+		CountDownLatch busy = new CountDownLatch(1);
+		executor.execute(() -> {
+			try {
+				busy.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		// The only image thread is taken: the request gives up after its wait, nothing is decoded inline
+		assertFalse(thumbnailer.ensure(64, "u1_4_me.png", Duration.ofMillis(100)));
+		assertFalse(Files.exists(thumbnailer.thumbnailPath(64, "u1_4_me.png")));
+
+		busy.countDown();
+		assertTrue(thumbnailer.ensure(64, "u1_4_me.png", Duration.ofSeconds(5)));
+	}
+
+	@Test
+	void oversizedImagesAreNotDecoded() throws Exception {
+		photo("u1_3_huge.png", 2000, 2000);
+
+		assertFalse(thumbnailer(1_000_000).generateAsync("u1_3_huge.png").get());
+		assertFalse(Files.exists(uploads.resolve("thumbs")));
+	}
+}
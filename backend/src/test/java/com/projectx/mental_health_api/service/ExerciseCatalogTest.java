@@ -0,0 +1,66 @@
+package com.projectx.mental_health_api.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.projectx.mental_health_api.model.Exercise;
+import com.projectx.mental_health_api.repository.ExerciseRepository;
+
+class ExerciseCatalogTest {
+
+	private final ExerciseRepository repository = mock(ExerciseRepository.class);
+	private final ExerciseCatalog catalog = new ExerciseCatalog(repository);
+	private final List<Exercise> table = new ArrayList<>(List.of(
+			exercise(1, "Box Breathing", "Breathing", 5, "Anxious"),
+			exercise(2, "30-Second Reset", "Breathing", 1, "Overwhelmed"),
+			exercise(3, "5-4-3-2-1", "Grounding", 3, "Anxious"),
+			exercise(4, "Thought Record", "CBT", 10, "Low")));
+
+	ExerciseCatalogTest() {
+		when(repository.findAll()).thenAnswer(inv -> List.copyOf(table));
+	}
+
+	private static Exercise exercise(long id, String title, String category, int duration, String mood) {
+		Exercise e = new Exercise();
+		e.setId(id);
+		e.setTitle(title);
+		e.setCategory(category);
+		e.setDuration(duration);
+		e.setMoodType(mood);
+		return e;
+	}
+
+	private List<String> titles(String filter, int limit) {
+		return catalog.recommend(filter, limit).stream().map(Exercise::getTitle).toList();
+	}
+
+	@Test
+	void llmWordsResolveToCategoriesFirstThenMoods() {
+		assertEquals(List.of("30-Second Reset", "Box Breathing"), titles("BREATHE", 3));
+		assertEquals(List.of("30-Second Reset"), titles("breathing", 1));
+		assertEquals(List.of("5-4-3-2-1", "Box Breathing"), titles("ANXIOUS", 3));
+		assertEquals(List.of("Thought Record"), titles("DEPRESSED", 3));
+		assertEquals(List.of("5-4-3-2-1"), titles("Anxiety / grounding", 3));
+		assertTrue(titles("NONE", 3).isEmpty());
+		assertTrue(titles("JOURNALING", 3).isEmpty());
+		assertTrue(titles(null, 3).isEmpty());
+	}
+
+	@Test
+	void recommendationsFollowCatalogWrites() {
+		assertTrue(titles("journal", 3).isEmpty());
+
+		table.add(exercise(5, "Gratitude List", "Journaling", 5, "Sad"));
+		catalog.reload();
+
+		assertEquals(List.of("Gratitude List"), titles("journal", 3));
+		assertEquals(List.of("Gratitude List"), titles("SAD", 3));
+	}
+}
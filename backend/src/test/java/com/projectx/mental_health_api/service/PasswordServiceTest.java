@@ -0,0 +1,61 @@
+package com.projectx.mental_health_api.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class PasswordServiceTest {
+
+	private final ExecutorService hashPool = Executors.newSingleThreadExecutor(r -> new Thread(r, "password-hash-1"));
+	private final ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+	private final PasswordService passwords = new PasswordService(4, hashPool, virtualThreads);
+
+	@AfterEach
+	void tearDown() {
+		hashPool.shutdownNow();
+		virtualThreads.shutdownNow();
+	}
+
+	@Test
+	void whatCallersChainOnRunsOffTheHashingPool() throws Exception {
+		String hash = passwords.hash("secret").get();
+
+		// Keep the pool busy so the check is still pending when the next stage is chained on
+		CountDownLatch release = new CountDownLatch(1);
+		hashPool.execute(() -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		// Stands in for the user lookup / save a controller chains on
+		CompletableFuture<String> thread = passwords.matches("secret", hash)
+				.thenApply(ok -> {
+					assertTrue(ok);
+					return Thread.currentThread().getName();
+				});
+		release.countDown();
+
+		String name = thread.get();
+		assertFalse(name.startsWith("password-hash"), "chained stage ran on " + name);
+	}
+
+	@Test
+	void unknownUsersAndWrongPasswordsDontMatch() throws Exception {
+		String hash = passwords.hash("secret").get();
+
+		assertFalse(passwords.matches("wrong", hash).get());
+		assertFalse(passwords.matches("secret", null).get());
+		assertTrue(passwords.needsRehash("plain-text"));
+		assertFalse(passwords.needsRehash(hash));
+	}
+}
@@ -0,0 +1,101 @@
+package com.projectx.mental_health_api.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import com.projectx.mental_health_api.repository.UserRepository;
+
+class UploadStoreTest {
+
+	@TempDir
+	Path uploads;
+
+	private final UserRepository userRepository = mock(UserRepository.class);
+
+	private UploadStore store() {
+		return new UploadStore(uploads, DataSize.ofBytes(1000), List.of("jpg", "png"), Duration.ofHours(1),
+				userRepository);
+	}
+
+	private static ByteArrayInputStream bytes(int length, int seed) {
+		byte[] content = new byte[length];
+		for (int i = 0; i < length; i++) {
+			content[i] = (byte) (i * 31 + seed);
+		}
+		return new ByteArrayInputStream(content);
+	}
+
+	@Test
+	void identicalUploadsAreStoredOnceUnderTheirHashInShardDirectories() throws Exception {
+		UploadStore store = store();
+
+		UploadStore.Stored first = store.save(bytes(1000, 1), "Me.JPEG");
+		UploadStore.Stored again = store.save(bytes(1000, 1), "copy.jpg");
+
+		assertTrue(first.created());
+		assertFalse(again.created());
+		assertEquals(first.name(), again.name());
+		assertTrue(first.name().matches("[0-9a-f]{64}\\.jpg"));
+		Path file = store.pathOf(first.name());
+		assertEquals(uploads.resolve("store").resolve(first.name().substring(0, 2))
+				.resolve(first.name().substring(2, 4)).resolve(first.name()), file);
+		assertArrayEquals(bytes(1000, 1).readAllBytes(), Files.readAllBytes(file));
+		assertEquals(List.of(), Files.list(uploads.resolve("tmp")).toList());
+	}
+
+	@Test
+	void oversizedOrUnknownFilesAreRejectedWithoutLeftovers() throws Exception {
+		UploadStore store = store();
+
+		assertThrows(UploadStore.TooLargeException.class, () -> store.save(bytes(1001, 2), "big.png"));
+		assertThrows(UploadStore.UnsupportedTypeException.class, () -> store.save(bytes(10, 3), "script.html"));
+		assertThrows(UploadStore.UnsupportedTypeException.class, () -> store.save(bytes(0, 4), "empty.png"));
+
+		assertFalse(Files.exists(uploads.resolve("store")));
+		assertEquals(List.of(), Files.list(uploads.resolve("tmp")).toList());
+		assertEquals(null, store.pathOf("../etc/passwd"));
+	}
+
+	@Test
+	void garbageCollectionKeepsReferencedAndRecentPhotos() throws Exception {
+		UploadStore store = store();
+		String kept = store.save(bytes(100, 5), "a.png").name();
+		String orphan = store.save(bytes(100, 6), "b.png").name();
+		String recent = store.save(bytes(100, 7), "c.png").name();
+		Path legacy = Files.writeString(uploads.resolve("u1_1700000000000_old.png"), "old");
+		Path orphanThumb = store.thumbnailPath(64, orphan);
+		Files.createDirectories(orphanThumb.getParent());
+		Files.writeString(orphanThumb, "thumb");
+		FileTime old = FileTime.from(Instant.now().minus(Duration.ofDays(2)));
+		for (Path p : List.of(store.pathOf(kept), store.pathOf(orphan), legacy)) {
+			Files.setLastModifiedTime(p, old);
+		}
+		when(userRepository.findProfilePictureUrls())
+				.thenReturn(List.of("http://localhost:8080/uploads/" + kept + "?v=2"));
+
+		assertEquals(2, store.collectGarbage());
+
+		assertTrue(Files.exists(store.pathOf(kept)));
+		assertTrue(Files.exists(store.pathOf(recent)));
+		assertFalse(Files.exists(store.pathOf(orphan)));
+		assertFalse(Files.exists(orphanThumb));
+		assertFalse(Files.exists(legacy));
+	}
+}
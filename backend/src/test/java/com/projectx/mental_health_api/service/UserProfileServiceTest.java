@@ -0,0 +1,144 @@
+package com.projectx.mental_health_api.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.projectx.mental_health_api.model.User;
+import com.projectx.mental_health_api.repository.UserRepository;
+
+class UserProfileServiceTest {
+
+	private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+	private final UserRepository repository = mock(UserRepository.class);
+	private final UserProfileCache cache = new UserProfileCache(Duration.ofMinutes(5), 100);
+	private final UserProfileService service = new UserProfileService(repository, cache, null, mapper);
+	private final UUID id = UUID.randomUUID();
+
+	private User user(long version) {
+		User user = new User();
+		user.setId(id);
+		user.setVersion(version);
+		return user;
+	}
+
+	@Test
+	void repeatedReadsComeFromTheCacheAndNeverGoBackInVersion() {
+		when(repository.findById(id)).thenReturn(Optional.of(user(3)));
+
+		service.find(id);
+		service.find(id);
+		verify(repository, times(1)).findById(id);
+
+		// A slow read that loaded version 2 before version 3 was written doesn't replace it
+		cache.put(user(2));
+		assertEquals(3L, service.find(id).orElseThrow().getVersion());
+	}
+
+	@Test
+	void patchTouchesOnlyTheGivenFieldsAndWritesThrough() throws Exception {
+		User patched = user(4);
+		Map<String, Object> changes = new HashMap<>();
+		when(repository.patchPreferences(eq(id), eq("{\"theme\":\"dark\"}"), anyMap(), eq(3L))).thenAnswer(inv -> {
+			changes.putAll(inv.getArgument(2));
+			return patched;
+		});
+
+		UserProfileService.PatchResult result = service.patch(id, mapper.readTree("""
+				{"smsNotifications": false, "fullName": null, "dateOfBirth": "1999-12-31",
+				 "preferences": {"theme": "dark"}}
+				"""), 3L).join();
+
+		assertEquals(UserProfileService.PatchStatus.UPDATED, result.status());
+		Map<String, Object> expected = new HashMap<>();
+		expected.put("smsNotifications", false);
+		expected.put("fullName", null);
+		expected.put("dateOfBirth", LocalDate.of(1999, 12, 31));
+		assertEquals(expected, changes);
+		assertSame(patched, service.find(id).orElseThrow());
+		verify(repository, never()).findById(any());
+	}
+
+	@Test
+	void preferencesAreMergedAndMatchedInTheDatabase() throws Exception {
+		when(repository.patchPreferences(eq(id), anyString(), anyMap(), isNull())).thenReturn(user(2));
+
+		service.patch(id, mapper.readTree("{\"preferences\": \"quiet music\"}"), null).join();
+		verify(repository).patchPreferences(id, "{\"notes\":\"quiet music\"}", Map.of(), null);
+		service.patch(id, mapper.readTree("{\"preferences\": null}"), null).join();
+		verify(repository).patch(eq(id), eq(Collections.singletonMap("preferences", null)), isNull());
+		assertEquals(UserProfileService.PatchStatus.INVALID,
+				service.patchPreferences(id, mapper.readTree("[1]"), null).join().status());
+
+		UUID a = new UUID(0, 1);
+		UUID b = new UUID(0, 2);
+		when(repository.findIdsByPreferences("{\"theme\":\"dark\"}", new UUID(0, 0), 2))
+				.thenReturn(List.of(a, b));
+		UserProfileService.PreferenceMatches page = service.matchPreferences(mapper.readTree("{\"theme\":\"dark\"}"),
+				null, 1);
+		assertEquals(List.of(a), page.userIds());
+		assertEquals(a, page.nextAfter());
+	}
+
+	@Test
+	void invalidPatchesAndStaleVersionsAreRefused() throws Exception {
+		assertEquals(UserProfileService.PatchStatus.INVALID,
+				service.patch(id, mapper.readTree("{\"version\": 7}"), null).join().status());
+		assertEquals(UserProfileService.PatchStatus.INVALID,
+				service.patch(id, mapper.readTree("{\"email\": null}"), null).join().status());
+		assertEquals(UserProfileService.PatchStatus.INVALID,
+				service.patch(id, mapper.readTree("{\"isActive\": \"yes\"}"), null).join().status());
+		verify(repository, never()).patch(any(), anyMap(), any());
+
+		when(repository.existsById(id)).thenReturn(true);
+		assertEquals(UserProfileService.PatchStatus.VERSION_MISMATCH,
+				service.patch(id, mapper.readTree("{\"updates\": \"hi\"}"), 1L).join().status());
+
+		assertEquals(5L, UserProfileService.versionOf("W/\"5\""));
+		assertNull(UserProfileService.versionOf("*"));
+		assertEquals(-1L, UserProfileService.versionOf("\"abc\""));
+	}
+
+	@Test
+	void passwordPatchesWaitForTheHashingPoolAndReportAFullOne() throws Exception {
+		PasswordService passwords = mock(PasswordService.class);
+		UserProfileService withPasswords = new UserProfileService(repository, cache, passwords, mapper);
+		CompletableFuture<String> hash = new CompletableFuture<>();
+		when(passwords.hash("s3cret")).thenReturn(hash).thenThrow(new RejectedExecutionException());
+		when(repository.patch(id, Map.of("passwordHash", "$2a$hash"), null)).thenReturn(user(2));
+
+		CompletableFuture<UserProfileService.PatchResult> pending = withPasswords.patch(id,
+				mapper.readTree("{\"passwordHash\": \"s3cret\"}"), null);
+		verify(repository, never()).patch(any(), anyMap(), any());
+		hash.complete("$2a$hash");
+		assertEquals(UserProfileService.PatchStatus.UPDATED, pending.join().status());
+
+		assertEquals(UserProfileService.PatchStatus.BUSY, withPasswords.patch(id,
+				mapper.readTree("{\"passwordHash\": \"s3cret\"}"), null).join().status());
+	}
+}
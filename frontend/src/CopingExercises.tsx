@@ -51,10 +51,9 @@ export default function CopingExercises({ userId, initialQuery = "", initialCate
         // 2. Fetch Completed
         let completed: number[] = [];
         try {
-          const resComp = await fetch(`${API_URL}/api/users/${userId}/completed-exercises`);
+          const resComp = await fetch(`${API_URL}/api/users/${userId}/completed-exercises/ids`);
           if (resComp.ok) {
-            const dataComp = await resComp.json();
-            completed = dataComp.map((e: any) => e.id);
+            completed = await resComp.json();
           }
         } catch (e) {
           console.warn("Could not load completed exercises", e);
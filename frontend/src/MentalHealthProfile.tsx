@@ -34,18 +34,22 @@ function MentalHealthProfile({ userId, onLogout }: MentalHealthProfileProps) {
         setFirstName(data.firstName ?? "");
         setLastName(data.lastName ?? "");
         setEmail(data.email ?? "");
-        setPreferences(data.preferences ?? "");
+        setPreferences(data.preferences?.notes ?? "");
         // setProgress(data.progress ?? "");
         setUpdates(data.updates ?? "");
         setProfilePictureUrl(data.profilePictureUrl ?? "");
 
-        // Fetch completed exercises
-        const resEx = await fetch(`${API_URL}/api/users/${userId}/completed-exercises`);
-        if (resEx.ok) {
-          const exercises = await resEx.json();
+        // Fetch totals and the most recent completed exercises
+        const [resEx, resStats] = await Promise.all([
+          fetch(`${API_URL}/api/users/${userId}/completed-exercises?limit=10`),
+          fetch(`${API_URL}/api/users/${userId}/exercise-stats`),
+        ]);
+        if (resEx.ok && resStats.ok) {
+          const { exercises, hasMore } = await resEx.json();
+          const stats = await resStats.json();
           if (exercises.length > 0) {
             const titles = exercises.map((e: any) => `• ${e.title}`).join("\n");
-            setProgress(`You have completed ${exercises.length} exercises:\n${titles}`);
+            setProgress(`You have completed ${stats.completed} exercises (${stats.minutes} min):\n${titles}${hasMore ? "\n• ..." : ""}`);
 
             const latest = exercises[0];
             setUpdates(`Great job completing "${latest.title}"! Keep up the momentum. Check My Room for more.`);
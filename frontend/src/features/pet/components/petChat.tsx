@@ -13,6 +13,7 @@ interface AiResponse {
   emotion: string; // Backend sends: "HAPPY", "SAD", "ANXIOUS"
   action: string;  // Backend sends: "BREATHE", "EAT"
   recommendedFilter?: string; // e.g., "breathing", "anxious"
+  recommendedExercises?: Array<{ id: number; title: string; duration?: number }>; // resolved server-side
 }
 
 export default function PetChat({ onAnimationTrigger, userId, onNavigateToExercises }: PetChatProps) {
@@ -101,8 +102,14 @@ export default function PetChat({ onAnimationTrigger, userId, onNavigateToExerci
         // The CopingExercises page accepts 'initialCategory' and 'initialMood' logic if we pass it right.
         // For now, let's pass it as a generic filter.
 
+        // The backend already sends the matching exercises, so name them right away
+        const picks = data.recommendedExercises ?? [];
         setMessages(prev => [...prev, {
-          text: "💡 I found some exercises that might help. Check the 'Coping' tab!",
+          text: picks.length > 0
+            ? "💡 These might help right now:\n"
+              + picks.map(e => `• ${e.title}${e.duration ? ` (${e.duration} min)` : ""}`).join("\n")
+              + "\nYou'll find them in the 'Coping' tab!"
+            : "💡 I found some exercises that might help. Check the 'Coping' tab!",
           isUser: false
         }]);
 
@@ -137,7 +144,7 @@ export default function PetChat({ onAnimationTrigger, userId, onNavigateToExerci
       <div className="flex-1 overflow-y-auto space-y-4 pr-2 custom-scrollbar">
         {messages.map((msg, idx) => (
           <div key={idx} className={`flex ${msg.isUser ? 'justify-end' : 'justify-start'}`}>
-            <div className={`max-w-[85%] px-5 py-3 text-sm leading-relaxed rounded-2xl shadow-sm
+            <div className={`max-w-[85%] px-5 py-3 text-sm leading-relaxed whitespace-pre-line rounded-2xl shadow-sm
               ${msg.isUser
                 ? 'bg-[#e6a394] text-white rounded-br-none'
                 : 'bg-[#f3f4f6] text-[#4b5563] rounded-bl-none'